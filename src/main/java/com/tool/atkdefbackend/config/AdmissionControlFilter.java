@@ -0,0 +1,520 @@
+package com.tool.atkdefbackend.config;
+
+import com.tool.atkdefbackend.service.proxy.RequestDeadline;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission Control Filter - priority scheduling and load shedding
+ *
+ * Runs inside the Spring Security chain right after authorization (see WebSecurityConfig),
+ * so requests are classified on the authenticated principal, and caps the number of
+ * requests doing work at once (admission.max-concurrent). A slot is held until the
+ * response is complete, including the async part of DeferredResult handlers, so the cap
+ * bounds upstream work; pure waits (tick long-poll, SSE results stream) give it back
+ * when they park. When all slots are busy, requests wait in ONE priority queue:
+ *
+ *   SUBMISSION > TICK > PUBLIC_READ > ADMIN > UPLOAD > EXTRACT
+ *
+ * Waiting requests are parked with servlet async (no Tomcat thread held) and
+ * re-dispatched when granted a slot. A freed slot always goes to the highest class;
+ * within a class the earliest deadline wins, so a submission whose client sent a short
+ * X-Request-Timeout (its flag is about to expire) jumps ahead of relaxed ones. Every
+ * class has a queue latency target and a queue bound; requests that would exceed
+ * either are shed with 503 + Retry-After.
+ */
+@Slf4j
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    public enum RequestClass {
+        SUBMISSION, TICK, PUBLIC_READ, ADMIN, UPLOAD, EXTRACT
+    }
+
+    private static final String GRANTED_ATTRIBUTE = AdmissionControlFilter.class.getName() + ".GRANTED";
+
+    /**
+     * Handlers whose async part only waits (no upstream work): the slot is freed when they park
+     */
+    private static final Set<String> WAIT_ONLY_PATHS = Set.of("/api/proxy/ticks/next", "/api/proxy/submissions/async/stream");
+
+    @Value("${admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${admission.max-concurrent:120}")
+    private int maxConcurrent;
+
+    @Value("${server.tomcat.threads.max:200}")
+    private int tomcatMaxThreads;
+
+    @Value("${admission.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    @Value("${admission.submission.max-wait-ms:5000}")
+    private long submissionMaxWaitMs;
+
+    @Value("${admission.submission.max-queued:40}")
+    private int submissionMaxQueued;
+
+    @Value("${admission.tick.max-wait-ms:1000}")
+    private long tickMaxWaitMs;
+
+    @Value("${admission.tick.max-queued:15}")
+    private int tickMaxQueued;
+
+    @Value("${admission.public-read.max-wait-ms:300}")
+    private long publicReadMaxWaitMs;
+
+    @Value("${admission.public-read.max-queued:10}")
+    private int publicReadMaxQueued;
+
+    @Value("${admission.admin.max-wait-ms:2000}")
+    private long adminMaxWaitMs;
+
+    @Value("${admission.admin.max-queued:5}")
+    private int adminMaxQueued;
+
+    @Value("${admission.upload.max-wait-ms:5000}")
+    private long uploadMaxWaitMs;
+
+    @Value("${admission.upload.max-queued:2}")
+    private int uploadMaxQueued;
+
+    @Value("${admission.extract.max-wait-ms:5000}")
+    private long extractMaxWaitMs;
+
+    @Value("${admission.extract.max-queued:2}")
+    private int extractMaxQueued;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+    private final int[] queued = new int[RequestClass.values().length];
+    private int inFlight;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<RequestClass, ClassStats> stats = new EnumMap<>(RequestClass.class);
+
+    public AdmissionControlFilter() {
+        for (RequestClass requestClass : RequestClass.values()) {
+            stats.put(requestClass, new ClassStats());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        int totalQueued = Arrays.stream(RequestClass.values()).mapToInt(this::maxQueued).sum();
+        if (enabled && maxConcurrent + totalQueued >= tomcatMaxThreads) {
+            log.warn("admission.max-concurrent ({}) + queue bounds ({}) reach server.tomcat.threads.max ({})",
+                    maxConcurrent, totalQueued, tomcatMaxThreads);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return !enabled || path.startsWith("/swagger-ui") || path.startsWith("/v3/api-docs")
+                || path.startsWith("/actuator");
+    }
+
+    /**
+     * Parked requests come back as an async dispatch
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        if (isAsyncDispatch(request)) {
+            Waiter waiter = (Waiter) request.getAttribute(GRANTED_ATTRIBUTE);
+            if (waiter == null) {
+                chain.doFilter(request, response); // DeferredResult result dispatch, slot already accounted for
+                return;
+            }
+            request.removeAttribute(GRANTED_ATTRIBUTE);
+            resume(waiter, request, response, chain);
+            return;
+        }
+
+        RequestClass requestClass = classify(request);
+        long arrived = System.nanoTime();
+        Waiter waiter = new Waiter(requestClass, arrived + TimeUnit.MILLISECONDS.toNanos(waitBudgetMs(requestClass)),
+                sequence.incrementAndGet(), arrived);
+
+        switch (acquireOrPark(waiter, request, response)) {
+            case ADMITTED -> {
+                admitted(waiter);
+                proceed(request, response, chain);
+            }
+            case PARKED -> log.debug("Parked {} request {} {}", requestClass, request.getMethod(), request.getRequestURI());
+            case SHED -> {
+                shed(waiter, request);
+                reject(response, requestClass);
+            }
+        }
+    }
+
+    /**
+     * Request class from the authenticated principal, method and path (+ multipart for uploads)
+     */
+    RequestClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        String contentType = request.getContentType();
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean authenticated = authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken);
+
+        if (path.startsWith("/api/proxy/submissions/extract")) {
+            return RequestClass.EXTRACT; // streams megabytes of exploit output, own queue so it never delays uploads
+        }
+        if (authenticated && "POST".equals(method)
+                && (path.equals("/api/proxy/submissions") || path.equals("/api/proxy/submissions/async"))) {
+            return RequestClass.SUBMISSION;
+        }
+        if ((contentType != null && contentType.startsWith("multipart/")) || path.contains("/upload")) {
+            return RequestClass.UPLOAD;
+        }
+        if ("GET".equals(method) && (path.startsWith("/api/proxy/ticks") || path.startsWith("/api/proxy/attack-info")
+                || path.startsWith("/api/proxy/dashboard"))) {
+            return RequestClass.TICK;
+        }
+        if ("GET".equals(method) && (path.startsWith("/api/proxy/scoreboard") || path.startsWith("/api/scoreboard")
+                || path.equals("/api/teams") || path.startsWith("/api/proxy/submissions"))) {
+            return RequestClass.PUBLIC_READ;
+        }
+        return RequestClass.ADMIN; // admin / management calls, login, everything else
+    }
+
+    private long waitBudgetMs(RequestClass requestClass) {
+        return switch (requestClass) {
+            // Bots may announce how long the flag is still worth submitting (X-Request-Timeout)
+            case SUBMISSION -> Math.max(0, Math.min(submissionMaxWaitMs,
+                    RequestDeadline.remainingMillis().orElse(submissionMaxWaitMs)));
+            case TICK -> tickMaxWaitMs;
+            case PUBLIC_READ -> publicReadMaxWaitMs;
+            case ADMIN -> adminMaxWaitMs;
+            case UPLOAD -> uploadMaxWaitMs;
+            case EXTRACT -> extractMaxWaitMs;
+        };
+    }
+
+    private int maxQueued(RequestClass requestClass) {
+        return switch (requestClass) {
+            case SUBMISSION -> submissionMaxQueued;
+            case TICK -> tickMaxQueued;
+            case PUBLIC_READ -> publicReadMaxQueued;
+            case ADMIN -> adminMaxQueued;
+            case UPLOAD -> uploadMaxQueued;
+            case EXTRACT -> extractMaxQueued;
+        };
+    }
+
+    // === Slot scheduling ===
+
+    private enum Admission {
+        ADMITTED, PARKED, SHED
+    }
+
+    private Admission acquireOrPark(Waiter waiter, HttpServletRequest request, HttpServletResponse response) {
+        lock.lock();
+        try {
+            Waiter head = queue.peek();
+            if (inFlight < maxConcurrent && (head == null || head.requestClass.compareTo(waiter.requestClass) > 0)) {
+                inFlight++;
+                return Admission.ADMITTED;
+            }
+            long budgetMs = TimeUnit.NANOSECONDS.toMillis(waiter.deadlineNanos - waiter.arrived);
+            if (budgetMs <= 0 || queued[waiter.requestClass.ordinal()] >= maxQueued(waiter.requestClass)) {
+                return Admission.SHED;
+            }
+            // Park without a thread: the request returns to the container until a slot is granted
+            waiter.park(request, response, budgetMs);
+            queue.add(waiter);
+            queued[waiter.requestClass.ordinal()]++;
+            return Admission.PARKED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Granted waiter re-dispatched by the container: restore what the outer filters set up on
+     * the original dispatch (principal, deadline) and run the rest of the chain
+     */
+    private void resume(Waiter waiter, HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        admitted(waiter);
+        SecurityContextHolder.setContext(waiter.securityContext);
+        if (waiter.requestDeadlineNanos.isPresent()) {
+            RequestDeadline.set(TimeUnit.NANOSECONDS.toMillis(waiter.requestDeadlineNanos.getAsLong() - System.nanoTime()));
+        }
+        try {
+            proceed(request, response, chain);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    /**
+     * Run the chain holding a slot; an async handler keeps it until its response completes
+     */
+    private void proceed(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean handedOver = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted() && !WAIT_ONLY_PATHS.contains(request.getRequestURI())) {
+                request.getAsyncContext().addListener(new SlotRelease());
+                handedOver = true;
+            }
+        } finally {
+            if (!handedOver) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Hand the slot to the best waiter that can still make its deadline, or free it.
+     * Waiters found expired on the way are answered with 503.
+     */
+    private void release() {
+        List<Waiter> expired = new ArrayList<>();
+        Waiter granted = null;
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            Waiter next;
+            while ((next = queue.poll()) != null) {
+                queued[next.requestClass.ordinal()]--;
+                if (next.deadlineNanos - now > 0) {
+                    granted = next; // slot transferred, inFlight unchanged
+                    break;
+                }
+                stats.get(next.requestClass).expired.increment();
+                expired.add(next);
+            }
+            if (granted == null) {
+                inFlight--;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (Waiter waiter : expired) {
+            waiter.rejectParked();
+        }
+        if (granted != null) {
+            try {
+                granted.request.setAttribute(GRANTED_ATTRIBUTE, granted);
+                granted.asyncContext.dispatch();
+            } catch (IllegalStateException e) {
+                release(); // timed out while being granted: pass the slot on
+            }
+        }
+    }
+
+    /**
+     * Parked waiter ran out of budget (container async timeout) or its client went away
+     */
+    private void abandon(Waiter waiter, boolean respond) {
+        boolean removed;
+        lock.lock();
+        try {
+            removed = queue.remove(waiter);
+            if (removed) {
+                queued[waiter.requestClass.ordinal()]--;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (removed) {
+            if (respond) {
+                shed(waiter, waiter.request);
+                waiter.rejectParked();
+            } else {
+                waiter.asyncContext.complete();
+            }
+        }
+    }
+
+    private void admitted(Waiter waiter) {
+        ClassStats classStats = stats.get(waiter.requestClass);
+        classStats.admitted.increment();
+        classStats.waitNanos.add(System.nanoTime() - waiter.arrived);
+    }
+
+    private void shed(Waiter waiter, HttpServletRequest request) {
+        stats.get(waiter.requestClass).shed.increment();
+        log.warn("Shedding {} request {} {} (waited {} ms)", waiter.requestClass, request.getMethod(),
+                request.getRequestURI(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiter.arrived));
+    }
+
+    private void reject(HttpServletResponse response, RequestClass requestClass) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write(String.format(
+                "{\"success\":false,\"error\":\"Server overloaded, retry later\",\"status\":503,\"class\":\"%s\"}",
+                requestClass));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            result.put("in_flight", inFlight);
+            result.put("max_concurrent", maxConcurrent);
+            result.put("queued", queue.size());
+        } finally {
+            lock.unlock();
+        }
+        Map<String, Object> classes = new LinkedHashMap<>();
+        stats.forEach((requestClass, classStats) -> {
+            long admitted = classStats.admitted.sum();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("admitted", admitted);
+            entry.put("shed", classStats.shed.sum());
+            entry.put("expired_in_queue", classStats.expired.sum());
+            entry.put("avg_wait_ms", admitted == 0 ? 0.0
+                    : TimeUnit.NANOSECONDS.toMicros(classStats.waitNanos.sum() / admitted) / 1000.0);
+            classes.put(requestClass.name().toLowerCase(Locale.ROOT), entry);
+        });
+        result.put("classes", classes);
+        return result;
+    }
+
+    /**
+     * Gives the slot back once when an async response completes (re-registers across async cycles)
+     */
+    private class SlotRelease implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // completion follows
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // completion follows
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    /**
+     * A parked request: ordered by class, then deadline, then arrival
+     */
+    private class Waiter implements Comparable<Waiter>, AsyncListener {
+        private final RequestClass requestClass;
+        private final long deadlineNanos;
+        private final long seq;
+        private final long arrived;
+
+        private HttpServletRequest request;
+        private AsyncContext asyncContext;
+        private SecurityContext securityContext;
+        private OptionalLong requestDeadlineNanos = OptionalLong.empty();
+
+        Waiter(RequestClass requestClass, long deadlineNanos, long seq, long arrived) {
+            this.requestClass = requestClass;
+            this.deadlineNanos = deadlineNanos;
+            this.seq = seq;
+            this.arrived = arrived;
+        }
+
+        void park(HttpServletRequest request, HttpServletResponse response, long budgetMs) {
+            this.request = request;
+            this.securityContext = SecurityContextHolder.getContext();
+            this.requestDeadlineNanos = RequestDeadline.deadlineNanos();
+            this.asyncContext = request.startAsync(request, response);
+            asyncContext.setTimeout(budgetMs);
+            asyncContext.addListener(this);
+        }
+
+        void rejectParked() {
+            try {
+                reject((HttpServletResponse) asyncContext.getResponse(), requestClass);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Could not answer shed request: {}", e.getMessage());
+            } finally {
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            abandon(this, true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            abandon(this, false);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // nothing to do: granted waiters are re-dispatched, others answered with 503
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // handler started its own async cycle after the re-dispatch; not ours to track
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byClass = requestClass.compareTo(other.requestClass);
+            if (byClass != 0) {
+                return byClass;
+            }
+            int byDeadline = Long.compare(deadlineNanos - other.deadlineNanos, 0);
+            return byDeadline != 0 ? byDeadline : Long.compare(seq, other.seq);
+        }
+    }
+
+    private static class ClassStats {
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LongAdder expired = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+    }
+}
@@ -1,13 +1,59 @@
 package com.tool.atkdefbackend.config;
 
+import com.tool.atkdefbackend.service.proxy.RequestDeadline;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Configuration
 public class AppConfig {
+
+    @Value("${python.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${python.read-timeout-ms:300000}")
+    private long readTimeoutMs;
+
+    /**
+     * RestTemplate on the JDK HttpClient: interrupting the calling thread aborts the
+     * in-flight exchange, which is how abandoned upstream calls get cancelled.
+     * Every request carries the caller's remaining budget as X-Request-Timeout.
+     * The read timeout is only a backstop (uploads); API requests are bounded by their deadline.
+     */
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        ClientHttpRequestInterceptor deadlineHeader = (request, body, execution) -> {
+            RequestDeadline.remainingMillis().ifPresent(remaining ->
+                    request.getHeaders().set(RequestDeadline.HEADER, String.valueOf(Math.max(0, remaining))));
+            return execution.execute(request, body);
+        };
+
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        restTemplate.getInterceptors().add(deadlineHeader);
+        return restTemplate;
+    }
+
+    /**
+     * Executor for blocking upstream calls that must run off the request thread
+     * (hedged attempts, parallel fan-out). Virtual threads keep parked calls cheap.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService upstreamExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
     }
 }
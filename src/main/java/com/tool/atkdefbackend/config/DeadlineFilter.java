@@ -0,0 +1,102 @@
+package com.tool.atkdefbackend.config;
+
+import com.tool.atkdefbackend.service.proxy.RequestDeadline;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Deadline Filter - binds a time budget to every API request
+ *
+ * Budget = X-Request-Timeout header (ms, capped at deadline.max-ms), else
+ * deadline.upload-ms for multipart uploads, else the per-route default from
+ * deadline.routes (longest prefix wins), else deadline.default-ms.
+ * Runs before admission control so queueing time counts.
+ * PythonProxyService forwards the remaining budget to the core and abandons
+ * (cancels) upstream calls once it is spent.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    @Value("${deadline.default-ms:10000}")
+    private long defaultMs;
+
+    @Value("${deadline.max-ms:60000}")
+    private long maxMs;
+
+    @Value("${deadline.upload-ms:300000}")
+    private long uploadMs;
+
+    @Value("${deadline.routes:}")
+    private List<String> routeDefaults;
+
+    private final Map<String, Long> routes = new TreeMap<>(Comparator.comparing(String::length).reversed()
+            .thenComparing(Comparator.naturalOrder()));
+
+    @PostConstruct
+    public void init() {
+        for (String entry : routeDefaults) {
+            int separator = entry.lastIndexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                routes.put(entry.substring(0, separator).trim(), Long.parseLong(entry.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid deadline route '{}'", entry);
+            }
+        }
+        log.info("Request deadlines: default {} ms, routes {}", defaultMs, routes);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestDeadline.set(budgetMs(request));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    private long budgetMs(HttpServletRequest request) {
+        String header = request.getHeader(RequestDeadline.HEADER);
+        if (header != null) {
+            try {
+                return Math.max(0, Math.min(Long.parseLong(header.trim()), maxMs));
+            } catch (NumberFormatException ignored) {
+                // fall back to route default
+            }
+        }
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.startsWith("multipart/")) {
+            return uploadMs;
+        }
+        String path = request.getRequestURI();
+        for (Map.Entry<String, Long> route : routes.entrySet()) {
+            if (path.startsWith(route.getKey())) {
+                return route.getValue();
+            }
+        }
+        return defaultMs;
+    }
+}
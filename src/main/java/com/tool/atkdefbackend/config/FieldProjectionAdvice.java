@@ -0,0 +1,78 @@
+package com.tool.atkdefbackend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tool.atkdefbackend.service.proxy.FieldProjection;
+import com.tool.atkdefbackend.service.proxy.ResponseCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * ?fields= on every JSON GET response, not only the core pass-through ones
+ *
+ * Bodies the controllers build as objects (leaderboard, team submission listings,
+ * dashboard, stats, ...) are encoded and cut down by {@link FieldProjection} exactly like
+ * pass-through bytes. Raw JSON bytes were already projected by PythonProxyService;
+ * HTTP errors and error replies from the core are passed through untouched.
+ */
+@RestControllerAdvice
+public class FieldProjectionAdvice implements ResponseBodyAdvice<Object> {
+
+    private final FieldProjection fieldProjection;
+    private final ResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+
+    public FieldProjectionAdvice(FieldProjection fieldProjection, ResponseCache responseCache, ObjectMapper objectMapper) {
+        this.fieldProjection = fieldProjection;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body == null || !HttpMethod.GET.equals(request.getMethod())
+                || !(request instanceof ServletServerHttpRequest servletRequest)
+                || !(response instanceof ServletServerHttpResponse servletResponse)) {
+            return body;
+        }
+        HttpServletRequest httpRequest = servletRequest.getServletRequest();
+        HttpServletResponse httpResponse = servletResponse.getServletResponse();
+        if (httpRequest.getParameter(FieldProjection.PARAM) == null || httpResponse.getStatus() >= 400) {
+            return body;
+        }
+        String fields = fieldProjection.requestedFields(httpRequest);
+        if (fields == null) {
+            return body;
+        }
+        ResponseCache.Body full = responseCache.encode(body);
+        ResponseCache.Body projected = fieldProjection.apply(full, fields);
+        if (projected == full) { // error reply from the core
+            return body;
+        }
+        try {
+            return objectMapper.readTree(projected.json());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot project response", e);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import java.time.LocalDateTime;
@@ -328,6 +329,55 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(ex.getStatusCode()).body(errorResponse);
     }
 
+    /**
+     * Handle exhausted request deadlines (upstream call abandoned)
+     * HTTP 504 Gateway Timeout
+     */
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleDeadlineExceeded(DeadlineExceededException ex) {
+        Map<String, Object> errorResponse = createErrorResponse(
+                ex.getMessage(),
+                HttpStatus.GATEWAY_TIMEOUT.value(),
+                null);
+
+        log.warn("Deadline exceeded: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(errorResponse);
+    }
+
+    /**
+     * Handle work shed by a full gateway queue
+     * HTTP 503 Service Unavailable + Retry-After
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> handleServiceOverloaded(ServiceOverloadedException ex) {
+        Map<String, Object> errorResponse = createErrorResponse(
+                ex.getMessage(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                null);
+
+        log.warn("Overloaded: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
+    /**
+     * Handle a team over its flag submission budget
+     * HTTP 429 Too Many Requests + Retry-After
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleRateLimitExceeded(RateLimitExceededException ex) {
+        Map<String, Object> errorResponse = createErrorResponse(
+                ex.getMessage(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                null);
+
+        log.warn("Rate limited: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", String.valueOf(ex.getRetryAfterSeconds()))
+                .body(errorResponse);
+    }
+
     /**
      * Handle connection errors to Python Core API
      * HTTP 503 Service Unavailable
@@ -343,6 +393,21 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
     }
 
+    /**
+     * Handle connection errors of the async (WebClient) proxy path
+     * HTTP 503 Service Unavailable
+     */
+    @ExceptionHandler(WebClientRequestException.class)
+    public ResponseEntity<Map<String, Object>> handleWebClientRequest(WebClientRequestException ex) {
+        Map<String, Object> errorResponse = createErrorResponse(
+                "Failed to connect to game server: " + ex.getMessage(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                null);
+
+        log.error("Connection error: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
     /**
      * Handle all other unexpected errors
      * HTTP 500 Internal Server Error
@@ -9,6 +9,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
@@ -25,12 +26,27 @@ public class HttpClientConfig {
     @Value("${python.server-url:http://localhost:8000}")
     private String pythonServerUrl;
 
+    @Value("${python.webclient.max-connections:500}")
+    private int maxConnections;
+
+    @Value("${python.webclient.pending-acquire-max:5000}")
+    private int pendingAcquireMax;
+
+    @Value("${python.webclient.max-in-memory-bytes:16777216}")
+    private int maxInMemoryBytes;
+
     /**
      * Configure HttpClient with connection and timeout settings
+     * The pool bounds sockets to the core; excess async requests wait for a connection
+     * (pending-acquire-max) instead of holding a thread
      */
     @Bean
     public HttpClient httpClient() {
-        return HttpClient.create()
+        ConnectionProvider pool = ConnectionProvider.builder("python-core")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .build();
+        return HttpClient.create(pool)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 30000)
                 .responseTimeout(Duration.ofSeconds(30))
                 .doOnConnected(conn -> conn
@@ -47,6 +63,7 @@ public class HttpClientConfig {
         return WebClient.builder()
                 .baseUrl(pythonServerUrl)
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemoryBytes)) // large lists/scoreboards
                 .build();
     }
 }
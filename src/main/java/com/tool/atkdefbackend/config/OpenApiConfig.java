@@ -82,6 +82,9 @@ public class OpenApiConfig {
                         new Tag().name("Tick Proxy").description("⏱️ Tick Management (Proxy to Python)"),
                         new Tag().name("Vulnbox Proxy").description("📦 VulnBox Management (Proxy to Python)"),
                         new Tag().name("Checker Proxy").description("🔍 Checker Management (Proxy to Python)"),
+                        new Tag().name("Dashboard Proxy").description("📋 Aggregated Team Dashboard"),
+                        new Tag().name("Attack Info Proxy").description("🎯 Attack Targets per Tick"),
+                        new Tag().name("Gateway Admin").description("🛠️ Gateway Metrics & Controls"),
                         new Tag().name("Test").description("🧪 Test Endpoints")));
     }
 }
@@ -1,7 +1,10 @@
 package com.tool.atkdefbackend.config.security;
 
+import com.tool.atkdefbackend.config.AdmissionControlFilter;
 import com.tool.atkdefbackend.config.RateLimitingFilter;
 import com.tool.atkdefbackend.service.auth.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,6 +17,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.context.SecurityContextHolderFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -32,13 +36,25 @@ public class WebSecurityConfig {
     private final AuthEntryPointJwt unauthorizedHandler;
     private final JwtUtils jwtUtils;
     private final RateLimitingFilter rateLimitingFilter;
+    private final AdmissionControlFilter admissionControlFilter;
 
     public WebSecurityConfig(UserDetailsServiceImpl userDetailsService, AuthEntryPointJwt unauthorizedHandler,
-            JwtUtils jwtUtils, RateLimitingFilter rateLimitingFilter) {
+            JwtUtils jwtUtils, RateLimitingFilter rateLimitingFilter, AdmissionControlFilter admissionControlFilter) {
         this.userDetailsService = userDetailsService;
         this.unauthorizedHandler = unauthorizedHandler;
         this.jwtUtils = jwtUtils;
         this.rateLimitingFilter = rateLimitingFilter;
+        this.admissionControlFilter = admissionControlFilter;
+    }
+
+    /**
+     * Admission control runs inside the security chain only (it classifies on the principal)
+     */
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilterRegistration() {
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(admissionControlFilter);
+        registration.setEnabled(false);
+        return registration;
     }
 
     @Bean
@@ -100,6 +116,8 @@ public class WebSecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authz -> authz
+                        // Async dispatch of DeferredResult responses (authorized on the initial request)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Swagger/OpenAPI documentation
                         .requestMatchers("/swagger-ui.html").permitAll()
                         .requestMatchers("/swagger-ui/**").permitAll()
@@ -122,6 +140,7 @@ public class WebSecurityConfig {
                         // Public tick info (teams need to know current tick)
                         .requestMatchers("/api/proxy/ticks/current").permitAll()
                         .requestMatchers("/api/proxy/ticks/latest").permitAll()
+                        .requestMatchers("/api/proxy/ticks/next").permitAll()
                         .requestMatchers("/error").permitAll()
                         .anyRequest().authenticated());
 
@@ -134,6 +153,10 @@ public class WebSecurityConfig {
         // Add JWT Authentication Filter
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
 
+        // Admission control after authorization: classified on the authenticated principal,
+        // rejected requests never take a slot
+        http.addFilterAfter(admissionControlFilter, AuthorizationFilter.class);
+
         return http.build();
     }
 }
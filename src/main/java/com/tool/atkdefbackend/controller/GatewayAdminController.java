@@ -0,0 +1,328 @@
+package com.tool.atkdefbackend.controller;
+
+import com.tool.atkdefbackend.config.AdmissionControlFilter;
+import com.tool.atkdefbackend.enums.GameStatus;
+import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.changefeed.ChangeFeedListener;
+import com.tool.atkdefbackend.service.journal.SubmissionJournal;
+import com.tool.atkdefbackend.service.journal.SubmissionJournalReader;
+import com.tool.atkdefbackend.service.proxy.FieldProjection;
+import com.tool.atkdefbackend.service.proxy.HedgedRequestExecutor;
+import com.tool.atkdefbackend.service.proxy.IdempotencyStore;
+import com.tool.atkdefbackend.service.proxy.ResponseCache;
+import com.tool.atkdefbackend.service.proxy.UpstreamDeadlineExecutor;
+import com.tool.atkdefbackend.service.proxy.UpstreamRouter;
+import com.tool.atkdefbackend.service.stats.CaptureStatsService;
+import com.tool.atkdefbackend.service.status.ServiceStatusHistory;
+import com.tool.atkdefbackend.service.submission.SubmissionHistoryService;
+import com.tool.atkdefbackend.service.submission.SubmissionQueue;
+import com.tool.atkdefbackend.service.submission.TcpSubmissionServer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Gateway Admin Controller - Runtime metrics & controls of the Java gateway itself
+ *
+ * Nothing here is proxied to Python Core; it exposes what the gateway measures locally.
+ *
+ * Base URL: /api/admin/gateway
+ * Roles: ADMIN only
+ */
+@RestController
+@RequestMapping("/api/admin/gateway")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Gateway Admin", description = "🛠️ Gateway metrics & runtime controls")
+public class GatewayAdminController {
+
+    private final HedgedRequestExecutor hedgedRequestExecutor;
+    private final UpstreamRouter upstreamRouter;
+    private final ChangeFeedListener changeFeedListener;
+    private final AdmissionControlFilter admissionControlFilter;
+    private final UpstreamDeadlineExecutor upstreamDeadlineExecutor;
+    private final IdempotencyStore idempotencyStore;
+    private final SubmissionHistoryService submissionHistoryService;
+    private final CaptureStatsService captureStatsService;
+    private final ServiceStatusHistory serviceStatusHistory;
+    private final TcpSubmissionServer tcpSubmissionServer;
+    private final SubmissionQueue submissionQueue;
+    private final SubmissionJournal submissionJournal;
+    private final ResponseCache responseCache;
+    private final FieldProjection fieldProjection;
+    private final PythonProxyService pythonProxyService;
+
+    public GatewayAdminController(HedgedRequestExecutor hedgedRequestExecutor, UpstreamRouter upstreamRouter,
+                                  ChangeFeedListener changeFeedListener, AdmissionControlFilter admissionControlFilter,
+                                  UpstreamDeadlineExecutor upstreamDeadlineExecutor, IdempotencyStore idempotencyStore,
+                                  SubmissionHistoryService submissionHistoryService,
+                                  CaptureStatsService captureStatsService,
+                                  ServiceStatusHistory serviceStatusHistory,
+                                  TcpSubmissionServer tcpSubmissionServer, SubmissionQueue submissionQueue,
+                                  SubmissionJournal submissionJournal, ResponseCache responseCache,
+                                  FieldProjection fieldProjection, PythonProxyService pythonProxyService) {
+        this.hedgedRequestExecutor = hedgedRequestExecutor;
+        this.upstreamRouter = upstreamRouter;
+        this.changeFeedListener = changeFeedListener;
+        this.admissionControlFilter = admissionControlFilter;
+        this.upstreamDeadlineExecutor = upstreamDeadlineExecutor;
+        this.idempotencyStore = idempotencyStore;
+        this.submissionHistoryService = submissionHistoryService;
+        this.captureStatsService = captureStatsService;
+        this.serviceStatusHistory = serviceStatusHistory;
+        this.tcpSubmissionServer = tcpSubmissionServer;
+        this.submissionQueue = submissionQueue;
+        this.submissionJournal = submissionJournal;
+        this.responseCache = responseCache;
+        this.fieldProjection = fieldProjection;
+        this.pythonProxyService = pythonProxyService;
+    }
+
+    /**
+     * GET /api/admin/gateway/hedging - Hedge rate, win rate and delay per route
+     */
+    @Operation(summary = "Hedging metrics", description = "Hedged GET statistics and retry budget")
+    @GetMapping("/hedging")
+    public ResponseEntity<?> getHedgingStats() {
+        return ResponseEntity.ok(hedgedRequestExecutor.getStats());
+    }
+
+    /**
+     * GET /api/admin/gateway/response-cache - Cached GET responses, bytes and hit rate per route,
+     * plus cached ?fields= projections
+     */
+    @Operation(summary = "Response cache stats", description = "Size, evictions and per-route hit rates of the GET cache")
+    @GetMapping("/response-cache")
+    public ResponseEntity<?> getResponseCacheStats() {
+        Map<String, Object> stats = responseCache.getStats();
+        stats.put("projection", fieldProjection.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * DELETE /api/admin/gateway/response-cache - Drop every cached response
+     */
+    @DeleteMapping("/response-cache")
+    public ResponseEntity<?> clearResponseCache() {
+        responseCache.invalidateAll();
+        return ResponseEntity.ok(responseCache.getStats());
+    }
+
+    /**
+     * GET /api/admin/gateway/change-feed - LISTEN/NOTIFY connection state and counters
+     */
+    @Operation(summary = "Change feed status", description = "Database change notifications used for cache invalidation")
+    @GetMapping("/change-feed")
+    public ResponseEntity<?> getChangeFeedStats() {
+        return ResponseEntity.ok(changeFeedListener.getStats());
+    }
+
+    /**
+     * GET /api/admin/gateway/admission - Slots in use, queue depth, admitted/shed per request class
+     */
+    @Operation(summary = "Admission control stats", description = "Priority scheduling and load shedding counters")
+    @GetMapping("/admission")
+    public ResponseEntity<?> getAdmissionStats() {
+        return ResponseEntity.ok(admissionControlFilter.getStats());
+    }
+
+    /**
+     * GET /api/admin/gateway/deadlines - Upstream calls abandoned because the client budget ran out
+     */
+    @Operation(summary = "Deadline stats", description = "Deadline-bounded and cancelled upstream calls")
+    @GetMapping("/deadlines")
+    public ResponseEntity<?> getDeadlineStats() {
+        return ResponseEntity.ok(upstreamDeadlineExecutor.getStats());
+    }
+
+    /**
+     * GET /api/admin/gateway/idempotency - Stored Idempotency-Key responses and replay counters
+     */
+    @Operation(summary = "Idempotency stats", description = "Replayed and deduplicated submissions / game-control calls")
+    @GetMapping("/idempotency")
+    public ResponseEntity<?> getIdempotencyStats() {
+        return ResponseEntity.ok(idempotencyStore.getStats());
+    }
+
+    /**
+     * GET /api/admin/gateway/submission-history - Per-team submission rings and memory hit rate
+     */
+    @Operation(summary = "Submission history stats", description = "Team submission pages served from memory vs upstream")
+    @GetMapping("/submission-history")
+    public ResponseEntity<?> getSubmissionHistoryStats() {
+        return ResponseEntity.ok(submissionHistoryService.getStats());
+    }
+
+    /**
+     * GET /api/admin/gateway/submission-tcp - Line-based TCP submission listener (connections, auth failures)
+     */
+    @Operation(summary = "TCP submission stats", description = "Open connections and submissions of the TCP flag port")
+    @GetMapping("/submission-tcp")
+    public ResponseEntity<?> getTcpSubmissionStats() {
+        return ResponseEntity.ok(tcpSubmissionServer.getStats());
+    }
+
+    /**
+     * GET /api/admin/gateway/submission-queue - Async submission queue depth, throughput and shed flags
+     */
+    @Operation(summary = "Submission queue stats", description = "Queued, completed and shed async submissions")
+    @GetMapping("/submission-queue")
+    public ResponseEntity<?> getSubmissionQueueStats() {
+        return ResponseEntity.ok(submissionQueue.getStats());
+    }
+
+    /**
+     * GET /api/admin/gateway/journal - Journaled submissions (arrival + result), oldest first
+     * Query: teamId, since (ISO-8601), pending=true for unanswered / ERROR only
+     */
+    @Operation(summary = "Submission journal", description = "Durable record of every flag submission")
+    @GetMapping("/journal")
+    public ResponseEntity<?> getJournal(@RequestParam(required = false) String teamId,
+                                        @RequestParam(required = false) Instant since,
+                                        @RequestParam(defaultValue = "false") boolean pending,
+                                        @RequestParam(defaultValue = "1000") int limit) {
+        List<Map<String, Object>> entries = submissionJournal.query(teamId, since, pending, Math.max(1, limit))
+                .stream().map(SubmissionJournalReader.Entry::toMap).toList();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("count", entries.size());
+        response.put("entries", entries);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * GET /api/admin/gateway/journal/stats - Journal records, fsyncs and segment rotations
+     */
+    @GetMapping("/journal/stats")
+    public ResponseEntity<?> getJournalStats() {
+        return ResponseEntity.ok(submissionJournal.getStats());
+    }
+
+    /**
+     * POST /api/admin/gateway/journal/replay - Re-queue submissions lost in a crash
+     * Query: since (ISO-8601, default 15 minutes ago). Goes through the async queue.
+     */
+    @Operation(summary = "Replay journal", description = "Re-submit journaled flags that never got an answer")
+    @PostMapping("/journal/replay")
+    public ResponseEntity<?> replayJournal(@RequestParam(required = false) Instant since,
+                                           @RequestParam(defaultValue = "10000") int limit) {
+        Instant from = since != null ? since : Instant.now().minus(Duration.ofMinutes(15));
+        return ResponseEntity.ok(submissionQueue.replay(from, Math.max(1, limit)));
+    }
+
+    /**
+     * POST /api/admin/gateway/captures/{gameId}/reconcile - Replay the core's accepted submissions into the capture matrix
+     * Only adds captures not counted yet; runs automatically on the first tick seen after a restart
+     */
+    @Operation(summary = "Reconcile capture stats", description = "Rebuild missing capture counters from Python Core")
+    @PostMapping("/captures/{gameId}/reconcile")
+    public DeferredResult<ResponseEntity<?>> reconcileCaptures(@PathVariable String gameId) {
+        return deferred(captureStatsService.reconcile(gameId)
+                .thenApply(added -> ResponseEntity.ok(Map.of("game_id", gameId, "captures_added", added))));
+    }
+
+    /**
+     * GET /api/admin/gateway/status-history - Run-length status spans kept per game
+     */
+    @Operation(summary = "Status history stats", description = "Cells, runs and approximate memory of SLA timelines")
+    @GetMapping("/status-history")
+    public ResponseEntity<?> getStatusHistoryStats() {
+        return ResponseEntity.ok(serviceStatusHistory.getStats());
+    }
+
+    /**
+     * POST /api/admin/gateway/status-history/{gameId}/backfill - Rebuild a game's SLA timeline from service_statuses
+     * Runs automatically on the first timeline / uptime query of a game
+     */
+    @Operation(summary = "Backfill status history", description = "Rebuild run-length status spans from the database")
+    @PostMapping("/status-history/{gameId}/backfill")
+    public DeferredResult<ResponseEntity<?>> backfillStatusHistory(@PathVariable String gameId) {
+        return deferred(serviceStatusHistory.backfill(gameId).thenApply(ResponseEntity::ok));
+    }
+
+    // ======================== GAME SHARDING ========================
+
+    /**
+     * GET /api/admin/gateway/shards - Configured Python Core instances and pinned games
+     */
+    @Operation(summary = "List shards", description = "Python Core instances and static game assignments")
+    @GetMapping("/shards")
+    public ResponseEntity<?> getShards() {
+        return ResponseEntity.ok(upstreamRouter.describe());
+    }
+
+    /**
+     * GET /api/admin/gateway/shards/games/{gameId} - Which instance serves a game
+     */
+    @GetMapping("/shards/games/{gameId}")
+    public ResponseEntity<?> getGameShard(@PathVariable String gameId) {
+        return ResponseEntity.ok(upstreamRouter.describe(gameId));
+    }
+
+    /**
+     * PUT /api/admin/gateway/shards/games/{gameId}?force=false - Move a game to another instance
+     * Request: { "upstream": "http://core-2:8000" }
+     * A RUNNING game is refused with 409 unless force=true (the tick worker lives on the old instance)
+     */
+    @Operation(summary = "Pin game to shard", description = "Statically assign a game to a Python Core instance")
+    @PutMapping("/shards/games/{gameId}")
+    public ResponseEntity<?> pinGame(@PathVariable String gameId, @RequestBody Map<String, String> request,
+                                     @RequestParam(defaultValue = "false") boolean force) {
+        String upstream = request.get("upstream");
+        if (upstream == null || upstream.isBlank()) {
+            throw new IllegalArgumentException("Field 'upstream' is required");
+        }
+        String previous = upstreamRouter.pin(gameId, upstream.trim(), !force && isRunning(gameId), force);
+        Map<String, Object> result = upstreamRouter.describe(gameId);
+        result.put("previous_upstream", previous);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * DELETE /api/admin/gateway/shards/games/{gameId}?force=false - Return a game to consistent hashing
+     * Same RUNNING rule as pinning when the game would change instance
+     */
+    @DeleteMapping("/shards/games/{gameId}")
+    public ResponseEntity<?> unpinGame(@PathVariable String gameId,
+                                       @RequestParam(defaultValue = "false") boolean force) {
+        boolean removed = upstreamRouter.unpin(gameId, !force && isRunning(gameId), force);
+        Map<String, Object> result = upstreamRouter.describe(gameId);
+        result.put("unpinned", removed);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Status as reported by the core instance currently owning the game
+     */
+    @SuppressWarnings("unchecked")
+    private boolean isRunning(String gameId) {
+        Map<String, Object> game = pythonProxyService.proxyGetUncached("/games/" + gameId, Map.class);
+        return GameStatus.RUNNING.name().equalsIgnoreCase(String.valueOf(game.get("status")));
+    }
+
+    /**
+     * Long-running maintenance jobs answer through servlet async (no request thread held);
+     * they are not cancelled when the client goes away
+     */
+    private static DeferredResult<ResponseEntity<?>> deferred(CompletableFuture<? extends ResponseEntity<?>> job) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        job.whenComplete((response, error) -> {
+            if (error != null) {
+                result.setErrorResult(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                result.setResult(response);
+            }
+        });
+        return result;
+    }
+}
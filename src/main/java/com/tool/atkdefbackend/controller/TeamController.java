@@ -1,14 +1,20 @@
 package com.tool.atkdefbackend.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tool.atkdefbackend.entity.TeamEntity;
 import com.tool.atkdefbackend.model.request.CreateTeamRequest;
 import com.tool.atkdefbackend.model.request.UpdateTeamRequest;
 import com.tool.atkdefbackend.model.response.TeamResponse;
 import com.tool.atkdefbackend.service.TeamService;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -19,9 +25,11 @@ import java.util.Map;
 public class TeamController {
 
     private final TeamService teamService;
+    private final ObjectMapper objectMapper;
 
-    public TeamController(TeamService teamService) {
+    public TeamController(TeamService teamService, ObjectMapper objectMapper) {
         this.teamService = teamService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -52,11 +60,21 @@ public class TeamController {
     /**
      * GET /api/teams - List all teams (Public for Dropdown/List)
      * Response: [{ "id": 10, "name": "Team1" }]
+     * Gửi If-None-Match để nhận 304 khi danh sách chưa đổi
      */
     @GetMapping
-    public ResponseEntity<?> getAllTeams() {
+    public ResponseEntity<?> getAllTeams(WebRequest webRequest) throws JsonProcessingException {
         List<TeamResponse> teams = teamService.getAllTeams();
-        return ResponseEntity.ok(teams);
+        byte[] body = objectMapper.writeValueAsBytes(teams);
+        String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304 already written
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     /**
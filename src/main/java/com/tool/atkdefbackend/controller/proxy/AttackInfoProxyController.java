@@ -0,0 +1,62 @@
+package com.tool.atkdefbackend.controller.proxy;
+
+import com.tool.atkdefbackend.service.AttackInfoService;
+import com.tool.atkdefbackend.service.auth.UserDetailsImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Attack Info Proxy Controller - Target list cho exploit bots
+ *
+ * Opponent vulnbox IPs + flag ids của tick hiện tại trong MỘT document
+ * Document được build 1 lần / tick / game và serve từ memory (ETag + 304)
+ *
+ * Base URL: /api/proxy/attack-info
+ * Target: Python Server /games/{id}/teams, /flags/tick/{tickId} (once per tick)
+ */
+@RestController
+@RequestMapping("/api/proxy/attack-info")
+@Tag(name = "Attack Info Proxy", description = "🎯 Attack Targets - Opponent IPs and flag ids per tick")
+public class AttackInfoProxyController {
+
+    private final AttackInfoService attackInfoService;
+
+    public AttackInfoProxyController(AttackInfoService attackInfoService) {
+        this.attackInfoService = attackInfoService;
+    }
+
+    /**
+     * GET /api/proxy/attack-info/{gameId} - Attack targets của tick hiện tại
+     * Gửi If-None-Match để nhận 304 khi tick chưa đổi
+     * TEAM/STUDENT: document không chứa team của chính mình
+     * 404 nếu game không RUNNING
+     *
+     * Roles: ADMIN, TEACHER, TEAM, STUDENT
+     */
+    @Operation(summary = "Attack info", description = "Opponent vulnbox IPs and current tick flag ids (never flag values)")
+    @GetMapping("/{gameId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM', 'STUDENT')")
+    public ResponseEntity<byte[]> getAttackInfo(@PathVariable String gameId, WebRequest webRequest,
+                                                @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        boolean isTeamUser = userDetails.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_TEAM") ||
+                              a.getAuthority().equals("ROLE_STUDENT"));
+
+        AttackInfoService.View document = attackInfoService.getView(gameId, isTeamUser ? userDetails.getTeamId() : null);
+        if (webRequest.checkNotModified(document.etag())) {
+            return null; // 304 already written
+        }
+        return ResponseEntity.ok()
+                .eTag(document.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(document.body());
+    }
+}
@@ -1,12 +1,16 @@
 package com.tool.atkdefbackend.controller.proxy;
 
 import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.proxy.ResponseCache;
+import com.tool.atkdefbackend.service.status.ServiceStatusGrid;
+import com.tool.atkdefbackend.service.status.ServiceStatusHistory;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Map;
@@ -26,9 +30,14 @@ import java.util.Map;
 public class CheckerProxyController {
 
     private final PythonProxyService pythonProxyService;
+    private final ServiceStatusGrid serviceStatusGrid;
+    private final ServiceStatusHistory serviceStatusHistory;
 
-    public CheckerProxyController(PythonProxyService pythonProxyService) {
+    public CheckerProxyController(PythonProxyService pythonProxyService, ServiceStatusGrid serviceStatusGrid,
+                                  ServiceStatusHistory serviceStatusHistory) {
         this.pythonProxyService = pythonProxyService;
+        this.serviceStatusGrid = serviceStatusGrid;
+        this.serviceStatusHistory = serviceStatusHistory;
     }
 
     // ======================== CHECKER CRUD (/checkers) ========================
@@ -59,12 +68,11 @@ public class CheckerProxyController {
      */
     @GetMapping("/checkers")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> listCheckers(
+    public DeferredResult<ResponseEntity<?>> listCheckers(
             @RequestParam(defaultValue = "0") int skip,
             @RequestParam(defaultValue = "50") int limit) {
         String endpoint = String.format("/checkers?skip=%d&limit=%d", skip, limit);
-        Object result = pythonProxyService.proxyGet(endpoint, Object.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint));
     }
 
     /**
@@ -74,9 +82,8 @@ public class CheckerProxyController {
     @GetMapping("/checkers/{checkerId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
     @SuppressWarnings("unchecked")
-    public ResponseEntity<?> getChecker(@PathVariable String checkerId) {
-        Object result = pythonProxyService.proxyGet("/checkers/" + checkerId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> getChecker(@PathVariable String checkerId) {
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/checkers/" + checkerId));
     }
 
     /**
@@ -86,11 +93,10 @@ public class CheckerProxyController {
     @PatchMapping("/checkers/{checkerId}")
     @PreAuthorize("hasRole('ADMIN')")
     @SuppressWarnings("unchecked")
-    public ResponseEntity<?> updateChecker(
+    public DeferredResult<ResponseEntity<?>> updateChecker(
             @PathVariable String checkerId,
             @RequestBody Map<String, Object> request) {
-        Map<String, Object> result = pythonProxyService.proxyPatch("/checkers/" + checkerId, request, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.ok(pythonProxyService.proxyPatchAsync("/checkers/" + checkerId, request, Map.class));
     }
 
     /**
@@ -100,9 +106,8 @@ public class CheckerProxyController {
     @DeleteMapping("/checkers/{checkerId}")
     @PreAuthorize("hasRole('ADMIN')")
     @SuppressWarnings("unchecked")
-    public ResponseEntity<?> deleteChecker(@PathVariable String checkerId) {
-        Object result = pythonProxyService.proxyDelete("/checkers/" + checkerId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> deleteChecker(@PathVariable String checkerId) {
+        return ProxyResults.ok(pythonProxyService.proxyDeleteAsync("/checkers/" + checkerId, Map.class));
     }
 
     /**
@@ -112,10 +117,9 @@ public class CheckerProxyController {
     @PostMapping("/checkers/{checkerId}/validate")
     @PreAuthorize("hasRole('ADMIN')")
     @SuppressWarnings("unchecked")
-    public ResponseEntity<?> validateChecker(@PathVariable String checkerId) {
-        Map<String, Object> result = pythonProxyService.proxyPost(
-                "/checkers/" + checkerId + "/validate", null, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> validateChecker(@PathVariable String checkerId) {
+        return ProxyResults.ok(pythonProxyService.proxyPostAsync(
+                "/checkers/" + checkerId + "/validate", null, Map.class));
     }
 
     // ======================== SERVICE STATUS (/checker) ========================
@@ -126,7 +130,7 @@ public class CheckerProxyController {
      */
     @GetMapping("/checker/statuses")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> listCheckerStatuses(
+    public DeferredResult<ResponseEntity<?>> listCheckerStatuses(
             @RequestParam(required = false) String gameId,
             @RequestParam(required = false) String teamId,
             @RequestParam(required = false) String tickId,
@@ -146,8 +150,55 @@ public class CheckerProxyController {
             endpoint.append("&tick_id=").append(tickId);
         }
 
-        Object result = pythonProxyService.proxyGet(endpoint.toString(), Object.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint.toString()));
+    }
+
+    /**
+     * GET /api/proxy/checker/grid?gameId= - Team x service status grid của tick hiện tại
+     * Mỗi ô 1 ký tự (O/D/M/C/E, '.' chưa check, chữ thường = kết quả tick trước)
+     * Gửi If-None-Match để nhận 304 khi grid chưa đổi
+     *
+     * Roles: ADMIN, TEACHER
+     */
+    @Operation(summary = "Service status grid", description = "Compact team x service status grid of the current tick")
+    @GetMapping("/checker/grid")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public DeferredResult<ResponseEntity<?>> getStatusGrid(@RequestParam String gameId) {
+        return ProxyResults.json(serviceStatusGrid.getDocument(gameId)
+                .thenApply(document -> new ResponseCache.Body(document.body(), document.etag(), false)));
+    }
+
+    /**
+     * GET /api/proxy/checker/history/{gameId}/timeline - SLA timeline (các span status liên tiếp)
+     * Lọc theo teamId / service, khoảng tick [from, to]
+     *
+     * Roles: ADMIN, TEACHER
+     */
+    @Operation(summary = "Service status timeline", description = "Run-length spans of check statuses per team and service")
+    @GetMapping("/checker/history/{gameId}/timeline")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public DeferredResult<ResponseEntity<?>> getStatusTimeline(
+            @PathVariable String gameId,
+            @RequestParam(required = false) String teamId,
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) Integer from,
+            @RequestParam(required = false) Integer to) {
+        return ProxyResults.ok(serviceStatusHistory.timeline(gameId, teamId, service, from, to));
+    }
+
+    /**
+     * GET /api/proxy/checker/history/{gameId}/uptime - Uptime % theo team x service, team, service
+     *
+     * Roles: ADMIN, TEACHER
+     */
+    @Operation(summary = "Service uptime", description = "OK ticks / observed ticks per team, service and both")
+    @GetMapping("/checker/history/{gameId}/uptime")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public DeferredResult<ResponseEntity<?>> getServiceUptime(
+            @PathVariable String gameId,
+            @RequestParam(required = false) Integer from,
+            @RequestParam(required = false) Integer to) {
+        return ProxyResults.ok(serviceStatusHistory.uptime(gameId, from, to));
     }
 
     /**
@@ -157,9 +208,8 @@ public class CheckerProxyController {
     @GetMapping("/checker/statuses/{statusId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
     @SuppressWarnings("unchecked")
-    public ResponseEntity<?> getCheckerStatus(@PathVariable String statusId) {
-        Object result = pythonProxyService.proxyGet("/checker/statuses/" + statusId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> getCheckerStatus(@PathVariable String statusId) {
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/checker/statuses/" + statusId));
     }
 
     /**
@@ -169,8 +219,7 @@ public class CheckerProxyController {
     @DeleteMapping("/checker/statuses/{statusId}")
     @PreAuthorize("hasRole('ADMIN')")
     @SuppressWarnings("unchecked")
-    public ResponseEntity<?> deleteCheckerStatus(@PathVariable String statusId) {
-        Object result = pythonProxyService.proxyDelete("/checker/statuses/" + statusId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> deleteCheckerStatus(@PathVariable String statusId) {
+        return ProxyResults.ok(pythonProxyService.proxyDeleteAsync("/checker/statuses/" + statusId, Map.class));
     }
 }
@@ -0,0 +1,66 @@
+package com.tool.atkdefbackend.controller.proxy;
+
+import com.tool.atkdefbackend.exception.ForbiddenException;
+import com.tool.atkdefbackend.service.TeamDashboardService;
+import com.tool.atkdefbackend.service.auth.UserDetailsImpl;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Dashboard Proxy Controller - Aggregated team dashboard
+ *
+ * Một request thay cho: current tick + scoreboard + submissions + game team + flag stats
+ * Upstream calls chạy song song, branch chậm/lỗi trả về partial result
+ *
+ * Base URL: /api/proxy/dashboard
+ * Target: Python Server /ticks, /scoreboard, /submissions, /games, /flags/stats
+ */
+@RestController
+@RequestMapping("/api/proxy/dashboard")
+@Tag(name = "Dashboard Proxy", description = "📋 Team Dashboard - Aggregated team view in one call")
+public class DashboardProxyController {
+
+    private final TeamDashboardService teamDashboardService;
+
+    public DashboardProxyController(TeamDashboardService teamDashboardService) {
+        this.teamDashboardService = teamDashboardService;
+    }
+
+    /**
+     * GET /api/proxy/dashboard/{gameId} - Dashboard của team
+     *
+     * SECURITY: TEAM/STUDENT always get their own team (teamId param ignored) and no flag stats
+     * (Teams KHÔNG được xem flags); ADMIN/TEACHER must pass teamId
+     *
+     * Roles: ADMIN, TEACHER, TEAM, STUDENT
+     */
+    @Operation(summary = "Team dashboard", description = "Tick, scoreboard, submissions, team info and flag stats in one call")
+    @GetMapping("/{gameId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM', 'STUDENT')")
+    public DeferredResult<ResponseEntity<?>> getDashboard(
+            @PathVariable String gameId,
+            @RequestParam(required = false) String teamId,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        boolean isTeamUser = userDetails.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_TEAM") ||
+                              a.getAuthority().equals("ROLE_STUDENT"));
+
+        String effectiveTeamId = teamId;
+        if (isTeamUser) {
+            effectiveTeamId = userDetails.getTeamId();
+            if (effectiveTeamId == null || effectiveTeamId.equals("0")) {
+                throw new ForbiddenException("You are not assigned to any team");
+            }
+        } else if (effectiveTeamId == null) {
+            throw new IllegalArgumentException("teamId is required for ADMIN/TEACHER");
+        }
+
+        return ProxyResults.ok(teamDashboardService.buildDashboardAsync(gameId, effectiveTeamId, !isTeamUser));
+    }
+}
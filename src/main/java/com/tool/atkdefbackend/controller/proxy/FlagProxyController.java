@@ -1,12 +1,16 @@
 package com.tool.atkdefbackend.controller.proxy;
 
 import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.flag.FlagValueIndex;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Flag Proxy Controller - Quản lý Flags (Admin/Debug purpose)
@@ -23,9 +27,11 @@ import java.util.Map;
 public class FlagProxyController {
 
     private final PythonProxyService pythonProxyService;
+    private final FlagValueIndex flagValueIndex;
 
-    public FlagProxyController(PythonProxyService pythonProxyService) {
+    public FlagProxyController(PythonProxyService pythonProxyService, FlagValueIndex flagValueIndex) {
         this.pythonProxyService = pythonProxyService;
+        this.flagValueIndex = flagValueIndex;
     }
 
     /**
@@ -35,7 +41,7 @@ public class FlagProxyController {
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> listFlags(
+    public DeferredResult<ResponseEntity<?>> listFlags(
             @RequestParam String gameId,
             @RequestParam(required = false) String teamId,
             @RequestParam(required = false) String tickId,
@@ -56,8 +62,7 @@ public class FlagProxyController {
             endpoint.append("&is_stolen=").append(isStolen);
         }
 
-        Object result = pythonProxyService.proxyGet(endpoint.toString(), Object.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint.toString()));
     }
 
     /**
@@ -66,7 +71,7 @@ public class FlagProxyController {
      */
     @GetMapping("/stats")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> getFlagStats(
+    public DeferredResult<ResponseEntity<?>> getFlagStats(
             @RequestParam String gameId,
             @RequestParam(required = false) String teamId) {
 
@@ -75,8 +80,7 @@ public class FlagProxyController {
             endpoint.append("&team_id=").append(teamId);
         }
 
-        Object result = pythonProxyService.proxyGet(endpoint.toString(), Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint.toString()));
     }
 
     /**
@@ -85,22 +89,43 @@ public class FlagProxyController {
      */
     @GetMapping("/{flagId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> getFlag(@PathVariable String flagId) {
-        Object result = pythonProxyService.proxyGet("/flags/" + flagId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> getFlag(@PathVariable String flagId) {
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/flags/" + flagId));
     }
 
     /**
      * GET /api/proxy/flags/by-value/{flagValue} - Tìm flag theo giá trị
+     * Query params: upstream (default false) - luôn hỏi core, bỏ qua index
      * Roles: ADMIN, TEACHER only
      * 
      * Dùng để debug khi team báo cáo flag không valid
+     * - Giá trị sai format flag -> 404 trả từ bộ nhớ, không gọi core
+     * - Đúng format nhưng không có trong index các tick gần đây (index đầy đủ)
+     *   -> { "found": false, "reason": "NOT_AMONG_RECENT_TICKS", "recent_ticks": N }, không gọi core
+     *   (flag cũ hơn / game khác vẫn có thể tồn tại: dùng upstream=true)
      */
     @GetMapping("/by-value/{flagValue}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> getFlagByValue(@PathVariable String flagValue) {
-        Object result = pythonProxyService.proxyGet("/flags/by-value/" + flagValue, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> getFlagByValue(
+            @PathVariable String flagValue,
+            @RequestParam(defaultValue = "false") boolean upstream) {
+        if (!flagValueIndex.isWellFormed(flagValue)) {
+            Map<String, Object> missing = new LinkedHashMap<>(); // same shape as a core 404
+            missing.put("detail", "Not a flag value (wrong format)");
+            missing.put("status", 404);
+            missing.put("success", false);
+            return ProxyResults.ok(CompletableFuture.completedFuture(missing));
+        }
+        if (!upstream && flagValueIndex.findAny(flagValue).isEmpty() && flagValueIndex.isAuthoritative()) {
+            Map<String, Object> notRecent = new LinkedHashMap<>();
+            notRecent.put("found", false);
+            notRecent.put("reason", "NOT_AMONG_RECENT_TICKS");
+            notRecent.put("recent_ticks", flagValueIndex.getTicksKept());
+            notRecent.put("detail", "Not a flag of the last " + flagValueIndex.getTicksKept()
+                    + " ticks of any running game; use upstream=true to search older ticks");
+            return ProxyResults.ok(CompletableFuture.completedFuture(notRecent));
+        }
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/flags/by-value/" + flagValue));
     }
 
     /**
@@ -109,13 +134,12 @@ public class FlagProxyController {
      */
     @GetMapping("/tick/{tickId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> getTickFlags(
+    public DeferredResult<ResponseEntity<?>> getTickFlags(
             @PathVariable String tickId,
             @RequestParam(defaultValue = "0") int skip,
             @RequestParam(defaultValue = "50") int limit) {
         String endpoint = String.format("/flags/tick/%s?skip=%d&limit=%d", tickId, skip, limit);
-        Object result = pythonProxyService.proxyGet(endpoint, Object.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint));
     }
 
     /**
@@ -124,12 +148,11 @@ public class FlagProxyController {
      */
     @GetMapping("/team/{teamId}/tick/{tickId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> getTeamTickFlags(
+    public DeferredResult<ResponseEntity<?>> getTeamTickFlags(
             @PathVariable String teamId,
             @PathVariable String tickId,
             @RequestParam String gameId) {
         String endpoint = String.format("/flags/team/%s/tick/%s?game_id=%s", teamId, tickId, gameId);
-        Object result = pythonProxyService.proxyGet(endpoint, Object.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint));
     }
 }
@@ -1,10 +1,15 @@
 package com.tool.atkdefbackend.controller.proxy;
 
 import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.auth.UserDetailsImpl;
+import com.tool.atkdefbackend.service.proxy.IdempotencyStore;
+import com.tool.atkdefbackend.service.submission.SubmissionHistoryService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.Map;
 
@@ -21,9 +26,14 @@ import java.util.Map;
 public class GameProxyController {
 
     private final PythonProxyService pythonProxyService;
+    private final IdempotencyStore idempotencyStore;
+    private final SubmissionHistoryService submissionHistory;
 
-    public GameProxyController(PythonProxyService pythonProxyService) {
+    public GameProxyController(PythonProxyService pythonProxyService, IdempotencyStore idempotencyStore,
+                               SubmissionHistoryService submissionHistory) {
         this.pythonProxyService = pythonProxyService;
+        this.idempotencyStore = idempotencyStore;
+        this.submissionHistory = submissionHistory;
     }
 
     // ======================== GAME CRUD ========================
@@ -34,9 +44,8 @@ public class GameProxyController {
      */
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> createGame(@RequestBody Map<String, Object> request) {
-        Map<String, Object> result = pythonProxyService.proxyPost("/games", request, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> createGame(@RequestBody Map<String, Object> request) {
+        return ProxyResults.ok(pythonProxyService.proxyPostAsync("/games", request, Map.class));
     }
 
     /**
@@ -45,12 +54,11 @@ public class GameProxyController {
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> listGames(
+    public DeferredResult<ResponseEntity<?>> listGames(
             @RequestParam(defaultValue = "0") int skip,
             @RequestParam(defaultValue = "100") int limit) {
         String endpoint = String.format("/games?skip=%d&limit=%d", skip, limit);
-        Object result = pythonProxyService.proxyGet(endpoint, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint));
     }
 
     /**
@@ -59,9 +67,8 @@ public class GameProxyController {
      */
     @GetMapping("/{gameId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> getGame(@PathVariable String gameId) {
-        Object result = pythonProxyService.proxyGet("/games/" + gameId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> getGame(@PathVariable String gameId) {
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/games/" + gameId));
     }
 
     /**
@@ -70,11 +77,10 @@ public class GameProxyController {
      */
     @PatchMapping("/{gameId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> updateGame(
+    public DeferredResult<ResponseEntity<?>> updateGame(
             @PathVariable String gameId,
             @RequestBody Map<String, Object> request) {
-        Map<String, Object> result = pythonProxyService.proxyPatch("/games/" + gameId, request, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.ok(pythonProxyService.proxyPatchAsync("/games/" + gameId, request, Map.class));
     }
 
     /**
@@ -83,12 +89,18 @@ public class GameProxyController {
      */
     @DeleteMapping("/{gameId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> deleteGame(@PathVariable String gameId) {
-        Object result = pythonProxyService.proxyDelete("/games/" + gameId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> deleteGame(@PathVariable String gameId) {
+        return ProxyResults.ok(pythonProxyService.proxyDeleteAsync("/games/" + gameId, Map.class)
+                .thenApply(result -> {
+                    if (result == null || !Boolean.FALSE.equals(result.get("success"))) {
+                        submissionHistory.forgetGame(gameId);
+                    }
+                    return result;
+                }));
     }
 
     // ======================== GAME CONTROL ========================
+    // Optional Idempotency-Key header: a double-click or retry replays the first result
 
     /**
      * POST /api/proxy/games/{gameId}/start - Bắt đầu game
@@ -96,9 +108,11 @@ public class GameProxyController {
      */
     @PostMapping("/{gameId}/start")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> startGame(@PathVariable String gameId) {
-        Map<String, Object> result = pythonProxyService.proxyPost("/games/" + gameId + "/start", null, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> startGame(
+            @PathVariable String gameId,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return controlGame(gameId, "start", idempotencyKey, userDetails);
     }
 
     /**
@@ -107,9 +121,11 @@ public class GameProxyController {
      */
     @PostMapping("/{gameId}/pause")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> pauseGame(@PathVariable String gameId) {
-        Map<String, Object> result = pythonProxyService.proxyPost("/games/" + gameId + "/pause", null, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> pauseGame(
+            @PathVariable String gameId,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return controlGame(gameId, "pause", idempotencyKey, userDetails);
     }
 
     /**
@@ -118,9 +134,18 @@ public class GameProxyController {
      */
     @PostMapping("/{gameId}/stop")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> stopGame(@PathVariable String gameId) {
-        Map<String, Object> result = pythonProxyService.proxyPost("/games/" + gameId + "/stop", null, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> stopGame(
+            @PathVariable String gameId,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return controlGame(gameId, "stop", idempotencyKey, userDetails);
+    }
+
+    private DeferredResult<ResponseEntity<?>> controlGame(String gameId, String action, String idempotencyKey,
+                                                         UserDetailsImpl userDetails) {
+        String endpoint = "/games/" + gameId + "/" + action;
+        return ProxyResults.idempotent(idempotencyStore.execute(IdempotencyStore.scopeOf(userDetails), idempotencyKey,
+                "POST", endpoint, null, () -> pythonProxyService.proxyPostAsync(endpoint, null, Map.class)));
     }
 
     // ======================== GAME TEAMS ========================
@@ -131,11 +156,10 @@ public class GameProxyController {
      */
     @PostMapping("/{gameId}/teams")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> addTeamToGame(
+    public DeferredResult<ResponseEntity<?>> addTeamToGame(
             @PathVariable String gameId,
             @RequestBody Map<String, Object> request) {
-        Map<String, Object> result = pythonProxyService.proxyPost("/games/" + gameId + "/teams", request, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.ok(pythonProxyService.proxyPostAsync("/games/" + gameId + "/teams", request, Map.class));
     }
 
     /**
@@ -144,9 +168,8 @@ public class GameProxyController {
      */
     @GetMapping("/{gameId}/teams")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> getGameTeams(@PathVariable String gameId) {
-        Object result = pythonProxyService.proxyGet("/games/" + gameId + "/teams", Object.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> getGameTeams(@PathVariable String gameId) {
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/games/" + gameId + "/teams"));
     }
 
     /**
@@ -155,11 +178,10 @@ public class GameProxyController {
      */
     @GetMapping("/{gameId}/teams/{teamId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM')")
-    public ResponseEntity<?> getGameTeam(
+    public DeferredResult<ResponseEntity<?>> getGameTeam(
             @PathVariable String gameId,
             @PathVariable String teamId) {
-        Object result = pythonProxyService.proxyGet("/games/" + gameId + "/teams/" + teamId, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/games/" + gameId + "/teams/" + teamId));
     }
 
     /**
@@ -168,11 +190,10 @@ public class GameProxyController {
      */
     @DeleteMapping("/{gameId}/teams/{teamId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> removeTeamFromGame(
+    public DeferredResult<ResponseEntity<?>> removeTeamFromGame(
             @PathVariable String gameId,
             @PathVariable String teamId) {
-        Object result = pythonProxyService.proxyDelete("/games/" + gameId + "/teams/" + teamId, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.ok(pythonProxyService.proxyDeleteAsync("/games/" + gameId + "/teams/" + teamId, Map.class));
     }
 
     // ======================== ASSIGN VULNBOX & CHECKER ========================
@@ -183,12 +204,11 @@ public class GameProxyController {
      */
     @PostMapping("/{gameId}/assign-vulnbox")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> assignVulnbox(
+    public DeferredResult<ResponseEntity<?>> assignVulnbox(
             @PathVariable String gameId,
             @RequestParam String vulnboxId) {
         String endpoint = String.format("/games/%s/assign-vulnbox?vulnbox_id=%s", gameId, vulnboxId);
-        Map<String, Object> result = pythonProxyService.proxyPost(endpoint, null, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.ok(pythonProxyService.proxyPostAsync(endpoint, null, Map.class));
     }
 
     /**
@@ -197,11 +217,10 @@ public class GameProxyController {
      */
     @PostMapping("/{gameId}/assign-checker")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> assignChecker(
+    public DeferredResult<ResponseEntity<?>> assignChecker(
             @PathVariable String gameId,
             @RequestParam String checkerId) {
         String endpoint = String.format("/games/%s/assign-checker?checker_id=%s", gameId, checkerId);
-        Map<String, Object> result = pythonProxyService.proxyPost(endpoint, null, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.ok(pythonProxyService.proxyPostAsync(endpoint, null, Map.class));
     }
 }
@@ -0,0 +1,82 @@
+package com.tool.atkdefbackend.controller.proxy;
+
+import com.tool.atkdefbackend.service.proxy.IdempotencyStore;
+import com.tool.atkdefbackend.service.proxy.RequestDeadline;
+import com.tool.atkdefbackend.service.proxy.ResponseCache;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Async controller results for proxied calls
+ *
+ * The request thread returns as soon as the upstream call is started; the response
+ * is written when the future completes. If the client disconnects or the MVC async
+ * timeout fires first, the upstream future is cancelled so the core stops working
+ * for nobody. Errors go through GlobalExceptionHandler as usual.
+ */
+final class ProxyResults {
+
+    private static final long TIMEOUT_SLACK_MS = 1000;
+
+    private ProxyResults() {
+    }
+
+    /**
+     * 200 OK with the upstream body (error maps from the core included, like the blocking path)
+     */
+    static DeferredResult<ResponseEntity<?>> ok(CompletableFuture<?> upstream) {
+        return of(upstream, ResponseEntity::ok);
+    }
+
+    /**
+     * 200 OK with the core's JSON bytes as is, strong ETag and Cache-Control: no-cache, private.
+     * A GET whose If-None-Match matches gets 304 without a body (Spring MVC compares the ETag).
+     */
+    static DeferredResult<ResponseEntity<?>> json(CompletableFuture<ResponseCache.Body> upstream) {
+        return of(upstream, body -> ResponseEntity.ok()
+                .eTag(body.etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body.json()));
+    }
+
+    /**
+     * Like {@link #ok}, marking responses replayed from an earlier request with the same Idempotency-Key
+     */
+    static DeferredResult<ResponseEntity<?>> idempotent(IdempotencyStore.Outcome outcome) {
+        if (!outcome.replayed()) {
+            return ok(outcome.response());
+        }
+        return of(outcome.response(), body -> ResponseEntity.ok()
+                .header(IdempotencyStore.REPLAYED_HEADER, "true")
+                .body(body));
+    }
+
+    private static <T> DeferredResult<ResponseEntity<?>> of(CompletableFuture<T> upstream,
+                                                            Function<T, ResponseEntity<?>> toResponse) {
+        // Outlive the request deadline slightly so the deadline's 504 wins over the MVC timeout
+        OptionalLong remaining = RequestDeadline.remainingMillis();
+        DeferredResult<ResponseEntity<?>> result = remaining.isPresent()
+                ? new DeferredResult<>(Math.max(1, remaining.getAsLong()) + TIMEOUT_SLACK_MS)
+                : new DeferredResult<>();
+
+        upstream.whenComplete((body, error) -> {
+            if (error != null) {
+                result.setErrorResult(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                result.setResult(toResponse.apply(body));
+            }
+        });
+        result.onTimeout(() -> upstream.cancel(true));
+        result.onError(error -> upstream.cancel(true));
+        return result;
+    }
+}
@@ -1,11 +1,15 @@
 package com.tool.atkdefbackend.controller.proxy;
 
 import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.scoreboard.LeaderboardService;
+import com.tool.atkdefbackend.service.scoreboard.ScoreHistoryService;
+import com.tool.atkdefbackend.service.stats.CaptureStatsService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.util.Map;
 
 /**
  * Scoreboard Proxy Controller - Public APIs cho bảng xếp hạng
@@ -22,9 +26,16 @@ import java.util.Map;
 public class ScoreboardProxyController {
 
     private final PythonProxyService pythonProxyService;
+    private final CaptureStatsService captureStatsService;
+    private final LeaderboardService leaderboardService;
+    private final ScoreHistoryService scoreHistoryService;
 
-    public ScoreboardProxyController(PythonProxyService pythonProxyService) {
+    public ScoreboardProxyController(PythonProxyService pythonProxyService, CaptureStatsService captureStatsService,
+                                     LeaderboardService leaderboardService, ScoreHistoryService scoreHistoryService) {
         this.pythonProxyService = pythonProxyService;
+        this.captureStatsService = captureStatsService;
+        this.leaderboardService = leaderboardService;
+        this.scoreHistoryService = scoreHistoryService;
     }
 
     /**
@@ -32,12 +43,11 @@ public class ScoreboardProxyController {
      * PUBLIC - Không cần auth
      */
     @GetMapping
-    public ResponseEntity<?> listScoreboards(
+    public DeferredResult<ResponseEntity<?>> listScoreboards(
             @RequestParam(defaultValue = "0") int skip,
             @RequestParam(defaultValue = "50") int limit) {
         String endpoint = String.format("/scoreboard?skip=%d&limit=%d", skip, limit);
-        Object result = pythonProxyService.proxyGet(endpoint, Object.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint));
     }
 
     /**
@@ -65,9 +75,8 @@ public class ScoreboardProxyController {
      * }
      */
     @GetMapping("/{gameId}")
-    public ResponseEntity<?> getGameScoreboard(@PathVariable String gameId) {
-        Object result = pythonProxyService.proxyGet("/scoreboard/" + gameId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> getGameScoreboard(@PathVariable String gameId) {
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/scoreboard/" + gameId));
     }
 
     /**
@@ -75,10 +84,125 @@ public class ScoreboardProxyController {
      * PUBLIC - Không cần auth
      */
     @GetMapping("/{gameId}/team/{teamId}")
-    public ResponseEntity<?> getTeamScore(
+    public DeferredResult<ResponseEntity<?>> getTeamScore(
             @PathVariable String gameId,
             @PathVariable String teamId) {
-        Object result = pythonProxyService.proxyGet("/scoreboard/" + gameId + "/team/" + teamId, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/scoreboard/" + gameId + "/team/" + teamId));
+    }
+
+    // ======================== LEADERBOARD (gateway-side) ========================
+
+    /**
+     * GET /api/proxy/scoreboard/{gameId}/leaderboard/top?k=10 - Top K teams with change since last tick
+     * PUBLIC - Served from the gateway leaderboard (refreshed once per tick)
+     */
+    @GetMapping("/{gameId}/leaderboard/top")
+    public DeferredResult<ResponseEntity<?>> getTopTeams(
+            @PathVariable String gameId,
+            @RequestParam(defaultValue = "10") int k) {
+        return ProxyResults.ok(leaderboardService.top(gameId, Math.min(k, 1000)));
+    }
+
+    /**
+     * GET /api/proxy/scoreboard/{gameId}/leaderboard/team/{teamId} - Rank, points and change since last tick
+     * PUBLIC
+     */
+    @GetMapping("/{gameId}/leaderboard/team/{teamId}")
+    public DeferredResult<ResponseEntity<?>> getTeamRank(
+            @PathVariable String gameId,
+            @PathVariable String teamId) {
+        return ProxyResults.ok(leaderboardService.team(gameId, teamId));
+    }
+
+    /**
+     * GET /api/proxy/scoreboard/{gameId}/leaderboard/team/{teamId}/around?window=2 - Teams just above and below
+     * PUBLIC
+     */
+    @GetMapping("/{gameId}/leaderboard/team/{teamId}/around")
+    public DeferredResult<ResponseEntity<?>> getTeamNeighborhood(
+            @PathVariable String gameId,
+            @PathVariable String teamId,
+            @RequestParam(defaultValue = "2") int window) {
+        return ProxyResults.ok(leaderboardService.around(gameId, teamId, Math.min(window, 50)));
+    }
+
+    // ======================== SCORE HISTORY (gateway-side) ========================
+
+    /**
+     * GET /api/proxy/scoreboard/{gameId}/history - Tick range and teams kept in memory
+     * PUBLIC
+     */
+    @GetMapping("/{gameId}/history")
+    public ResponseEntity<?> getHistoryRange(@PathVariable String gameId) {
+        return ResponseEntity.ok(scoreHistoryService.describe(gameId));
+    }
+
+    /**
+     * GET /api/proxy/scoreboard/{gameId}/history/tick/{tickNumber} - Scoreboard as it was at tick N
+     * PUBLIC
+     */
+    @GetMapping("/{gameId}/history/tick/{tickNumber}")
+    public ResponseEntity<?> getScoreboardAtTick(
+            @PathVariable String gameId,
+            @PathVariable int tickNumber) {
+        return ResponseEntity.ok(scoreHistoryService.atTick(gameId, tickNumber));
+    }
+
+    /**
+     * GET /api/proxy/scoreboard/{gameId}/history/team/{teamId}?from=A&to=B - Points of a team per tick (charts)
+     * PUBLIC
+     */
+    @GetMapping("/{gameId}/history/team/{teamId}")
+    public ResponseEntity<?> getTeamSeries(
+            @PathVariable String gameId,
+            @PathVariable String teamId,
+            @RequestParam(required = false) Integer from,
+            @RequestParam(required = false) Integer to) {
+        return ResponseEntity.ok(scoreHistoryService.teamSeries(gameId, teamId, from, to));
+    }
+
+    // ======================== CAPTURE STATS (gateway-side) ========================
+
+    /**
+     * GET /api/proxy/scoreboard/{gameId}/captures - Attacker x victim matrix, totals, first bloods
+     * Served from gateway counters, no call to Python Core
+     * Roles: ADMIN, TEACHER (the live matrix shows who attacks whom)
+     */
+    @GetMapping("/{gameId}/captures")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public ResponseEntity<?> getCaptureMatrix(@PathVariable String gameId) {
+        return ResponseEntity.ok(captureStatsService.getMatrix(gameId));
+    }
+
+    /**
+     * GET /api/proxy/scoreboard/{gameId}/captures/first-blood - First capture per service
+     * PUBLIC
+     */
+    @GetMapping("/{gameId}/captures/first-blood")
+    public ResponseEntity<?> getFirstBlood(@PathVariable String gameId) {
+        return ResponseEntity.ok(captureStatsService.getFirstBlood(gameId));
+    }
+
+    /**
+     * GET /api/proxy/scoreboard/{gameId}/captures/team/{teamId} - Flags captured / lost by a team
+     * PUBLIC
+     */
+    @GetMapping("/{gameId}/captures/team/{teamId}")
+    public ResponseEntity<?> getTeamCaptures(
+            @PathVariable String gameId,
+            @PathVariable String teamId) {
+        return ResponseEntity.ok(captureStatsService.getTeamTotals(gameId, teamId));
+    }
+
+    /**
+     * GET /api/proxy/scoreboard/{gameId}/captures/tick/{tickNumber} - Captures of one tick by attacker, victim, service
+     * Roles: ADMIN, TEACHER
+     */
+    @GetMapping("/{gameId}/captures/tick/{tickNumber}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
+    public ResponseEntity<?> getTickCaptures(
+            @PathVariable String gameId,
+            @PathVariable int tickNumber) {
+        return ResponseEntity.ok(captureStatsService.getTickCells(gameId, tickNumber));
     }
 }
@@ -1,16 +1,36 @@
 package com.tool.atkdefbackend.controller.proxy;
 
+import com.tool.atkdefbackend.exception.ForbiddenException;
+import com.tool.atkdefbackend.exception.ResourceNotFoundException;
 import com.tool.atkdefbackend.service.PythonProxyService;
 import com.tool.atkdefbackend.service.auth.UserDetailsImpl;
+import com.tool.atkdefbackend.service.proxy.IdempotencyStore;
+import com.tool.atkdefbackend.service.submission.FlagExtractionService;
+import com.tool.atkdefbackend.service.submission.FlagSubmissionService;
+import com.tool.atkdefbackend.service.submission.SubmissionHistoryService;
+import com.tool.atkdefbackend.service.submission.SubmissionQueue;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Submission Proxy Controller - Proxy Flag Submission APIs
@@ -31,9 +51,23 @@ public class SubmissionProxyController {
 
     private static final Logger log = LoggerFactory.getLogger(SubmissionProxyController.class);
     private final PythonProxyService pythonProxyService;
+    private final IdempotencyStore idempotencyStore;
+    private final SubmissionHistoryService submissionHistory;
+    private final FlagSubmissionService flagSubmissionService;
+    private final FlagExtractionService flagExtractionService;
+    private final SubmissionQueue submissionQueue;
 
-    public SubmissionProxyController(PythonProxyService pythonProxyService) {
+    public SubmissionProxyController(PythonProxyService pythonProxyService, IdempotencyStore idempotencyStore,
+                                     SubmissionHistoryService submissionHistory,
+                                     FlagSubmissionService flagSubmissionService,
+                                     FlagExtractionService flagExtractionService,
+                                     SubmissionQueue submissionQueue) {
         this.pythonProxyService = pythonProxyService;
+        this.idempotencyStore = idempotencyStore;
+        this.submissionHistory = submissionHistory;
+        this.flagSubmissionService = flagSubmissionService;
+        this.flagExtractionService = flagExtractionService;
+        this.submissionQueue = submissionQueue;
     }
 
     /**
@@ -57,50 +91,170 @@ public class SubmissionProxyController {
      *   "message": "Flag accepted!"
      * }
      *
+     * Optional header Idempotency-Key: bots retrying after a timeout send the same key and
+     * get the original result back (Idempotent-Replayed: true) instead of a second submission.
+     * Chỉ trừ vào rate limit của team khi bật submission-rate.http-enabled (429).
+     *
      * Roles: ADMIN, TEACHER, TEAM, STUDENT
      */
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM', 'STUDENT')")
-    public ResponseEntity<?> submitFlag(
+    public DeferredResult<ResponseEntity<?>> submitFlag(
             @RequestBody Map<String, Object> request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
             @AuthenticationPrincipal UserDetailsImpl userDetails) {
 
         // SECURITY: Force team_id from authentication for TEAM/STUDENT users
-        boolean isTeamUser = userDetails.getAuthorities().stream()
-                .anyMatch(a -> a.getAuthority().equals("ROLE_TEAM") ||
-                              a.getAuthority().equals("ROLE_STUDENT"));
+        if (FlagSubmissionService.isTeamUser(userDetails)) {
+            String authenticatedTeamId = flagSubmissionService.enforceTeam(userDetails, request);
+            log.info("Flag submission from team {} (user: {})", authenticatedTeamId, userDetails.getUsername());
+        }
 
-        if (isTeamUser) {
-            String authenticatedTeamId = userDetails.getTeamId();
+        return ProxyResults.idempotent(idempotencyStore.execute(IdempotencyStore.scopeOf(userDetails), idempotencyKey,
+                "POST", "/submissions", request,
+                () -> flagSubmissionService.submit(userDetails.getUsername(), "HTTP", request))); // replays don't reach the core
+    }
 
-            if (authenticatedTeamId == null || authenticatedTeamId.equals("0")) {
-                log.warn("SECURITY: User {} is not assigned to any team", userDetails.getUsername());
-                return ResponseEntity.status(403).body(Map.of(
-                    "success", false,
-                    "error", "You are not assigned to any team",
-                    "status", 403
-                ));
-            }
+    /**
+     * POST /api/proxy/submissions/extract?gameId= - Submit mọi flag trong raw exploit output
+     *
+     * Body: text/plain (hoặc application/octet-stream), có thể vài MB - được scan dạng stream,
+     * không buffer toàn bộ. Flag trùng chỉ submit 1 lần, qua cùng path với POST /submissions.
+     * Mỗi flag trừ vào rate limit của team như TCP submission (vượt quá: status RATE_LIMITED).
+     * teamId chỉ dùng cho ADMIN/TEACHER; TEAM/STUDENT luôn submit cho team của mình.
+     *
+     * Response: { "flags_found", "duplicates", "rate_limited", "by_status": {...}, "results": [{ "flag", "status", ... }] }
+     *
+     * Roles: ADMIN, TEACHER, TEAM, STUDENT
+     */
+    @PostMapping(value = "/extract", consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM', 'STUDENT')")
+    public DeferredResult<ResponseEntity<?>> extractFlags(
+            @RequestParam String gameId,
+            @RequestParam(required = false) String teamId,
+            HttpServletRequest httpRequest,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) throws IOException {
 
-            // Check if user is trying to submit with different team_id
-            if (request.containsKey("team_id") &&
-                !authenticatedTeamId.equals(request.get("team_id").toString())) {
-                log.warn("SECURITY: User {} attempted to submit flag as different team (auth: {}, request: {})",
-                         userDetails.getUsername(), authenticatedTeamId, request.get("team_id"));
-                return ResponseEntity.status(403).body(Map.of(
-                    "success", false,
-                    "error", "Cannot submit flags for other teams",
-                    "status", 403
-                ));
-            }
+        Map<String, Object> base = new LinkedHashMap<>();
+        base.put("game_id", gameId);
+        if (teamId != null) {
+            base.put("team_id", teamId);
+        }
+        String team = flagSubmissionService.enforceTeam(userDetails, base);
+        if (team == null) {
+            throw new IllegalArgumentException("teamId is required");
+        }
+        log.info("Flag extraction for team {} (user: {})", team, userDetails.getUsername());
 
-            // Always use authenticated team ID for security
-            request.put("team_id", authenticatedTeamId);
-            log.info("Flag submission from team {} (user: {})", authenticatedTeamId, userDetails.getUsername());
+        Charset charset = httpRequest.getCharacterEncoding() != null
+                ? Charset.forName(httpRequest.getCharacterEncoding()) : StandardCharsets.UTF_8;
+        return ProxyResults.ok(flagExtractionService.extractAndSubmit(userDetails.getUsername(),
+                new InputStreamReader(httpRequest.getInputStream(), charset), base));
+    }
+
+    // ======================== ASYNC SUBMISSION (/async) ========================
+
+    /**
+     * POST /api/proxy/submissions/async - Queue flag(s), trả về 202 + ticket ngay
+     *
+     * Request Body: { "game_id": "uuid", "team_id": "...", "flag": "FLAG{...}" } hoặc "flags": [...]
+     * Kết quả: GET /async/results?after= (poll) hoặc GET /async/stream (SSE)
+     * Tối đa submission-queue.max-flags-per-request flag / request (400), trừ vào rate limit của team (429)
+     * Queue đầy hoặc team đã có quá nhiều flag đang chờ: 503 + Retry-After
+     *
+     * Roles: ADMIN, TEACHER, TEAM, STUDENT
+     */
+    @PostMapping("/async")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM', 'STUDENT')")
+    public ResponseEntity<?> submitFlagsAsync(
+            @RequestBody Map<String, Object> request,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        String team = flagSubmissionService.enforceTeam(userDetails, request);
+        if (team == null) {
+            throw new IllegalArgumentException("team_id is required");
+        }
+        Object gameId = request.get("game_id");
+        if (gameId == null) {
+            throw new IllegalArgumentException("game_id is required");
+        }
+        List<String> flags = new ArrayList<>();
+        if (request.get("flag") != null) {
+            flags.add(request.get("flag").toString());
+        }
+        if (request.get("flags") instanceof List<?> list) {
+            list.stream().filter(java.util.Objects::nonNull).map(Object::toString).forEach(flags::add);
+        }
+        if (flags.isEmpty()) {
+            throw new IllegalArgumentException("flag or flags is required");
+        }
+
+        List<Map<String, Object>> tickets = submissionQueue.enqueue(userDetails.getUsername(), "ASYNC", team, gameId.toString(), flags).stream()
+                .map(SubmissionQueue.Ticket::toMap)
+                .toList();
+        return ResponseEntity.accepted().body(Map.of("team_id", team, "tickets", tickets));
+    }
+
+    /**
+     * GET /api/proxy/submissions/async/results?after=0 - Kết quả theo thứ tự, sequence > after
+     * Dùng "next" trong response làm after cho lần poll sau
+     *
+     * Roles: ADMIN, TEACHER (cần teamId), TEAM, STUDENT
+     */
+    @GetMapping("/async/results")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM', 'STUDENT')")
+    public ResponseEntity<?> pollAsyncResults(
+            @RequestParam(required = false) String teamId,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "500") int limit,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return ResponseEntity.ok(submissionQueue.results(resultTeam(userDetails, teamId), after,
+                Math.max(1, Math.min(limit, 5000))));
+    }
+
+    /**
+     * GET /api/proxy/submissions/async/stream - SSE "result" events của team (id = sequence)
+     * Reconnect với Last-Event-ID để nhận tiếp các kết quả bị lỡ
+     *
+     * Roles: ADMIN, TEACHER (cần teamId), TEAM, STUDENT
+     */
+    @GetMapping(value = "/async/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM', 'STUDENT')")
+    public SseEmitter streamAsyncResults(
+            @RequestParam(required = false) String teamId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return submissionQueue.stream(resultTeam(userDetails, teamId), lastEventId);
+    }
+
+    /**
+     * GET /api/proxy/submissions/async/{ticketId} - Trạng thái 1 ticket (QUEUED hoặc kết quả)
+     *
+     * Roles: ADMIN, TEACHER, TEAM, STUDENT (chỉ ticket của team mình)
+     */
+    @GetMapping("/async/{ticketId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM', 'STUDENT')")
+    public ResponseEntity<?> getAsyncTicket(
+            @PathVariable String ticketId,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        SubmissionQueue.Ticket ticket = submissionQueue.getTicket(ticketId)
+                .orElseThrow(() -> new ResourceNotFoundException("Submission ticket", "id", ticketId));
+        if (FlagSubmissionService.isTeamUser(userDetails) && !ticket.getTeamId().equals(userDetails.getTeamId())) {
+            throw new ForbiddenException("Cannot view submissions of other teams");
         }
+        return ResponseEntity.ok(ticket.toMap());
+    }
 
-        Map<String, Object> result = pythonProxyService.proxyPost("/submissions", request, Map.class);
-        return ResponseEntity.ok(result);
+    private String resultTeam(UserDetailsImpl userDetails, String teamId) {
+        Map<String, Object> scope = new LinkedHashMap<>();
+        if (teamId != null) {
+            scope.put("team_id", teamId);
+        }
+        String team = flagSubmissionService.enforceTeam(userDetails, scope);
+        if (team == null) {
+            throw new IllegalArgumentException("teamId is required");
+        }
+        return team;
     }
 
     /**
@@ -113,7 +267,7 @@ public class SubmissionProxyController {
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM', 'STUDENT')")
-    public ResponseEntity<?> listSubmissions(
+    public DeferredResult<ResponseEntity<?>> listSubmissions(
             @RequestParam(required = false) String gameId,
             @RequestParam(required = false) String teamId,
             @RequestParam(required = false) String status,
@@ -133,12 +287,14 @@ public class SubmissionProxyController {
                 .anyMatch(a -> a.getAuthority().equals("ROLE_TEAM") ||
                               a.getAuthority().equals("ROLE_STUDENT"));
 
+        String historyTeamId = null;
         if (isTeamUser) {
             // Override teamId with authenticated team ID
             String authenticatedTeamId = userDetails.getTeamId();
             if (authenticatedTeamId != null && !authenticatedTeamId.equals("0")) {
                 endpoint.append("&team_id=").append(authenticatedTeamId);
                 log.debug("Filtered submissions for team: {}", authenticatedTeamId);
+                historyTeamId = authenticatedTeamId;
             }
         } else if (teamId != null) {
             // ADMIN/TEACHER can filter by any team
@@ -149,27 +305,74 @@ public class SubmissionProxyController {
             endpoint.append("&status=").append(status);
         }
 
-        Object result = pythonProxyService.proxyGet(endpoint.toString(), Object.class);
-        return ResponseEntity.ok(result);
+        if (historyTeamId == null) {
+            return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint.toString()));
+        }
+
+        // Team's own recent pages come from the in-memory history, older ones from the core
+        Optional<Object> recent = submissionHistory.page(historyTeamId, gameId, status, skip, limit);
+        if (recent.isPresent()) {
+            return ProxyResults.ok(CompletableFuture.completedFuture(recent.get()));
+        }
+        String team = historyTeamId;
+        long version = submissionHistory.version(team);
+        return ProxyResults.ok(pythonProxyService.proxyGetAsync(endpoint.toString(), Object.class)
+                .thenApply(result -> {
+                    submissionHistory.learn(team, gameId, status, skip, limit, result, version);
+                    return result;
+                }));
     }
 
     /**
      * GET /api/proxy/submissions/{submissionId} - Chi tiết submission
      *
      * SECURITY: TEAM/STUDENT can only view their own submissions
-     * (Note: This would require checking submission ownership at Python Core level)
+     * Ownership is answered from the submission history when it knows the id,
+     * otherwise from the team_id of the core's answer (denied when it has none).
      *
      * Roles: ADMIN, TEACHER, TEAM, STUDENT
      */
     @GetMapping("/{submissionId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER', 'TEAM', 'STUDENT')")
-    public ResponseEntity<?> getSubmission(
+    public DeferredResult<ResponseEntity<?>> getSubmission(
             @PathVariable String submissionId,
             @AuthenticationPrincipal UserDetailsImpl userDetails) {
 
-        // TODO: Add ownership check at Python Core level
-        Object result = pythonProxyService.proxyGet("/submissions/" + submissionId, Map.class);
-        return ResponseEntity.ok(result);
+        boolean isTeamUser = userDetails.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_TEAM") ||
+                              a.getAuthority().equals("ROLE_STUDENT"));
+        if (!isTeamUser) {
+            return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/submissions/" + submissionId));
+        }
+
+        String authenticatedTeamId = userDetails.getTeamId();
+        if (authenticatedTeamId == null || authenticatedTeamId.equals("0")) {
+            throw new ForbiddenException("You are not assigned to any team");
+        }
+        Optional<Boolean> owned = submissionHistory.isOwnedBy(submissionId, authenticatedTeamId);
+        if (owned.isPresent() && !owned.get()) {
+            log.warn("SECURITY: User {} attempted to read submission {} of another team",
+                     userDetails.getUsername(), submissionId);
+            throw new ForbiddenException("Cannot view submissions of other teams");
+        }
+
+        CompletableFuture<Map> submission = pythonProxyService.proxyGetAsync("/submissions/" + submissionId, Map.class);
+        if (owned.isPresent()) {
+            return ProxyResults.ok(submission);
+        }
+        return ProxyResults.ok(submission.thenApply(result -> {
+            if (result != null && Boolean.FALSE.equals(result.get("success"))) {
+                return result; // core error (e.g. 404), carries no submission data
+            }
+            // Deny unless the core's answer proves the submission belongs to the caller's team
+            Object owner = result != null ? result.get("team_id") : null;
+            if (owner == null || !authenticatedTeamId.equals(owner.toString())) {
+                log.warn("SECURITY: User {} attempted to read submission {} of team {}",
+                         userDetails.getUsername(), submissionId, owner);
+                throw new ForbiddenException("Cannot view submissions of other teams");
+            }
+            return result;
+        }));
     }
 
     /**
@@ -178,8 +381,13 @@ public class SubmissionProxyController {
      */
     @DeleteMapping("/{submissionId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> deleteSubmission(@PathVariable String submissionId) {
-        Object result = pythonProxyService.proxyDelete("/submissions/" + submissionId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> deleteSubmission(@PathVariable String submissionId) {
+        return ProxyResults.ok(pythonProxyService.proxyDeleteAsync("/submissions/" + submissionId, Map.class)
+                .thenApply(result -> {
+                    if (result == null || !Boolean.FALSE.equals(result.get("success"))) {
+                        submissionHistory.forget(submissionId);
+                    }
+                    return result;
+                }));
     }
 }
@@ -1,12 +1,17 @@
 package com.tool.atkdefbackend.controller.proxy;
 
 import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.tick.TickClock;
+import com.tool.atkdefbackend.service.tick.TickLongPollService;
+import com.tool.atkdefbackend.service.tick.TickSnapshot;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Tick Proxy Controller - Quản lý Ticks (Game Turns)
@@ -26,9 +31,14 @@ import java.util.Map;
 public class TickProxyController {
 
     private final PythonProxyService pythonProxyService;
+    private final TickLongPollService tickLongPollService;
+    private final TickClock tickClock;
 
-    public TickProxyController(PythonProxyService pythonProxyService) {
+    public TickProxyController(PythonProxyService pythonProxyService, TickLongPollService tickLongPollService,
+                               TickClock tickClock) {
         this.pythonProxyService = pythonProxyService;
+        this.tickLongPollService = tickLongPollService;
+        this.tickClock = tickClock;
     }
 
     /**
@@ -37,7 +47,7 @@ public class TickProxyController {
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> listTicks(
+    public DeferredResult<ResponseEntity<?>> listTicks(
             @RequestParam String gameId,
             @RequestParam(required = false) String status,
             @RequestParam(defaultValue = "0") int skip,
@@ -50,19 +60,22 @@ public class TickProxyController {
             endpoint.append("&status=").append(status);
         }
 
-        Object result = pythonProxyService.proxyGet(endpoint.toString(), Object.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint.toString()));
     }
 
     /**
      * GET /api/proxy/ticks/current - Tick hiện tại
      * PUBLIC - Teams cần biết tick hiện tại để biết khi nào flag expire
+     * Served from the gateway tick clock when the game is tracked (same tick number everywhere)
      */
     @GetMapping("/current")
-    public ResponseEntity<?> getCurrentTick(@RequestParam String gameId) {
+    public DeferredResult<ResponseEntity<?>> getCurrentTick(@RequestParam String gameId) {
+        Optional<TickSnapshot> snapshot = tickClock.current(gameId);
+        if (snapshot.isPresent()) {
+            return ProxyResults.json(CompletableFuture.completedFuture(pythonProxyService.jsonBody(snapshot.get().raw())));
+        }
         String endpoint = "/ticks/current?game_id=" + gameId;
-        Object result = pythonProxyService.proxyGet(endpoint, Object.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint));
     }
 
     /**
@@ -70,10 +83,26 @@ public class TickProxyController {
      * PUBLIC - Hữu ích để frontend hiển thị
      */
     @GetMapping("/latest")
-    public ResponseEntity<?> getLatestTick(@RequestParam String gameId) {
+    public DeferredResult<ResponseEntity<?>> getLatestTick(@RequestParam String gameId) {
         String endpoint = "/ticks/latest?game_id=" + gameId;
-        Object result = pythonProxyService.proxyGet(endpoint, Object.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint));
+    }
+
+    /**
+     * GET /api/proxy/ticks/next - Long-poll chờ tick mới
+     * PUBLIC - Bots gọi 1 request/tick thay vì busy-poll /ticks/current
+     *
+     * after: tick number đã biết (trả về ngay nếu tick hiện tại > after)
+     * Response: { "game_id", "tick_number", "remaining_seconds", "observed_at", "tick": {...} }
+     * 204 No Content nếu hết timeoutSeconds mà chưa có tick mới
+     * 404 nếu gameId không phải game đang RUNNING
+     */
+    @GetMapping("/next")
+    public DeferredResult<ResponseEntity<?>> waitForNextTick(
+            @RequestParam String gameId,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(defaultValue = "60") long timeoutSeconds) {
+        return tickLongPollService.awaitNextTick(gameId, after, timeoutSeconds);
     }
 
     /**
@@ -82,9 +111,8 @@ public class TickProxyController {
      */
     @GetMapping("/{tickId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> getTick(@PathVariable String tickId) {
-        Object result = pythonProxyService.proxyGet("/ticks/" + tickId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> getTick(@PathVariable String tickId) {
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/ticks/" + tickId));
     }
 
     /**
@@ -93,11 +121,10 @@ public class TickProxyController {
      */
     @GetMapping("/number/{tickNumber}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> getTickByNumber(
+    public DeferredResult<ResponseEntity<?>> getTickByNumber(
             @PathVariable int tickNumber,
             @RequestParam String gameId) {
         String endpoint = String.format("/ticks/number/%d?game_id=%s", tickNumber, gameId);
-        Object result = pythonProxyService.proxyGet(endpoint, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint));
     }
 }
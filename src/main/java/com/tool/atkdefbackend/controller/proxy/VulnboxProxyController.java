@@ -7,6 +7,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Map;
@@ -57,12 +58,11 @@ public class VulnboxProxyController {
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> listVulnboxes(
+    public DeferredResult<ResponseEntity<?>> listVulnboxes(
             @RequestParam(defaultValue = "0") int skip,
             @RequestParam(defaultValue = "50") int limit) {
         String endpoint = String.format("/vulnboxes?skip=%d&limit=%d", skip, limit);
-        Object result = pythonProxyService.proxyGet(endpoint, Object.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync(endpoint));
     }
 
     /**
@@ -71,9 +71,8 @@ public class VulnboxProxyController {
      */
     @GetMapping("/{vulnboxId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'TEACHER')")
-    public ResponseEntity<?> getVulnbox(@PathVariable String vulnboxId) {
-        Object result = pythonProxyService.proxyGet("/vulnboxes/" + vulnboxId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> getVulnbox(@PathVariable String vulnboxId) {
+        return ProxyResults.json(pythonProxyService.proxyGetJsonAsync("/vulnboxes/" + vulnboxId));
     }
 
     /**
@@ -82,11 +81,10 @@ public class VulnboxProxyController {
      */
     @PatchMapping("/{vulnboxId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> updateVulnbox(
+    public DeferredResult<ResponseEntity<?>> updateVulnbox(
             @PathVariable String vulnboxId,
             @RequestBody Map<String, Object> request) {
-        Map<String, Object> result = pythonProxyService.proxyPatch("/vulnboxes/" + vulnboxId, request, Map.class);
-        return ResponseEntity.ok(result);
+        return ProxyResults.ok(pythonProxyService.proxyPatchAsync("/vulnboxes/" + vulnboxId, request, Map.class));
     }
 
     /**
@@ -95,8 +93,7 @@ public class VulnboxProxyController {
      */
     @DeleteMapping("/{vulnboxId}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> deleteVulnbox(@PathVariable String vulnboxId) {
-        Object result = pythonProxyService.proxyDelete("/vulnboxes/" + vulnboxId, Map.class);
-        return ResponseEntity.ok(result);
+    public DeferredResult<ResponseEntity<?>> deleteVulnbox(@PathVariable String vulnboxId) {
+        return ProxyResults.ok(pythonProxyService.proxyDeleteAsync("/vulnboxes/" + vulnboxId, Map.class));
     }
 }
@@ -0,0 +1,32 @@
+package com.tool.atkdefbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Game pin entity - static game -> Python Core instance assignment of the gateway
+ *
+ * Written by the gateway only (admin shard pins), so routing survives a restart and
+ * keeps agreeing with the instance that runs the game's tick worker.
+ */
+@Entity
+@Table(name = "gateway_game_pins")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GamePinEntity {
+
+    @Id
+    @Column(name = "game_id", length = 64)
+    private String gameId;
+
+    @Column(name = "upstream", nullable = false, length = 255)
+    private String upstream;
+
+    @Column(name = "pinned_at", nullable = false)
+    private LocalDateTime pinnedAt;
+}
@@ -0,0 +1,100 @@
+package com.tool.atkdefbackend.entity;
+
+import com.tool.atkdefbackend.enums.CheckStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Subselect;
+import org.hibernate.annotations.Synchronize;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Service status entity - one checker result (team x service x tick)
+ *
+ * The service_statuses table is created and written by GameCoreServer; the gateway
+ * only reads it. Mapped through a subselect so ddl-auto=update never alters the
+ * core's table. Columns the gateway filters or sorts on (id, game_id, tick_id,
+ * checked_at) keep their native uuid / timestamp types so predicates reach the core's
+ * indexes; they are exposed as strings through {@link CoreUuidConverter}. Only
+ * team_id and the enum status are cast to text.
+ */
+@Entity
+@Immutable
+@Subselect("SELECT id, game_id, CAST(team_id AS varchar) AS team_id, tick_id,"
+        + " service_name, CAST(status AS varchar) AS status, message, checked_at FROM service_statuses")
+@Synchronize("service_statuses")
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ServiceStatusEntity {
+
+    @Id
+    @Column(name = "id")
+    @Convert(converter = CoreUuidConverter.class)
+    private String id;
+
+    @Column(name = "game_id")
+    @Convert(converter = CoreUuidConverter.class)
+    private String gameId;
+
+    @Column(name = "team_id")
+    private String teamId;
+
+    @Column(name = "tick_id")
+    @Convert(converter = CoreUuidConverter.class)
+    private String tickId;
+
+    @Column(name = "service_name")
+    private String serviceName;
+
+    @Column(name = "status")
+    private String status; // CheckStatus name as written by the core
+
+    @Column(name = "message")
+    private String message;
+
+    @Column(name = "checked_at")
+    private LocalDateTime checkedAt;
+
+    /**
+     * Status as enum, null if the core wrote something unknown
+     */
+    public CheckStatus getCheckStatus() {
+        if (status == null) {
+            return null;
+        }
+        try {
+            return CheckStatus.valueOf(status.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * uuid column <-> string id; a string that is not a uuid binds as null and matches no row
+     */
+    @Converter
+    public static class CoreUuidConverter implements AttributeConverter<String, UUID> {
+
+        @Override
+        public UUID convertToDatabaseColumn(String attribute) {
+            if (attribute == null) {
+                return null;
+            }
+            try {
+                return UUID.fromString(attribute);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String convertToEntityAttribute(UUID column) {
+            return column != null ? column.toString() : null;
+        }
+    }
+}
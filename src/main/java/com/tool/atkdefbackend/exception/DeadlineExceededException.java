@@ -0,0 +1,31 @@
+package com.tool.atkdefbackend.exception;
+
+/**
+ * Custom exception for an exhausted request deadline
+ * Thrown when the client's time budget ran out before the game server answered
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    /**
+     * False when the budget was gone before anything was sent to the game server
+     */
+    private final boolean requestSent;
+
+    public DeadlineExceededException(String message) {
+        this(message, true);
+    }
+
+    public DeadlineExceededException(String message, boolean requestSent) {
+        super(message);
+        this.requestSent = requestSent;
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+        this.requestSent = true;
+    }
+
+    public boolean isRequestSent() {
+        return requestSent;
+    }
+}
@@ -0,0 +1,19 @@
+package com.tool.atkdefbackend.exception;
+
+/**
+ * Custom exception for a caller over its rate limit
+ * Clients should retry after the given number of seconds
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,19 @@
+package com.tool.atkdefbackend.exception;
+
+/**
+ * Custom exception for work the gateway cannot take right now (bounded queue full)
+ * Clients should retry after the given number of seconds
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
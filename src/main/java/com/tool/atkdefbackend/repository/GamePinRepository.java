@@ -0,0 +1,9 @@
+package com.tool.atkdefbackend.repository;
+
+import com.tool.atkdefbackend.entity.GamePinEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GamePinRepository extends JpaRepository<GamePinEntity, String> {
+}
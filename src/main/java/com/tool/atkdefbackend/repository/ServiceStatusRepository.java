@@ -0,0 +1,31 @@
+package com.tool.atkdefbackend.repository;
+
+import com.tool.atkdefbackend.entity.ServiceStatusEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ServiceStatusRepository extends JpaRepository<ServiceStatusEntity, String> {
+
+    List<ServiceStatusEntity> findByGameIdAndTickIdOrderByCheckedAtAscIdAsc(String gameId, String tickId);
+
+    /**
+     * Incremental read: results after the (checked_at, id) of the last row read, in that order
+     */
+    @Query("SELECT s FROM ServiceStatusEntity s WHERE s.gameId = :gameId"
+            + " AND (s.checkedAt > :checkedAt OR (s.checkedAt = :checkedAt AND s.id > :id))"
+            + " ORDER BY s.checkedAt ASC, s.id ASC")
+    List<ServiceStatusEntity> findPageAfter(@Param("gameId") String gameId, @Param("checkedAt") LocalDateTime checkedAt,
+                                            @Param("id") String id, Pageable pageable);
+
+    /**
+     * First page of a game in check order (status history backfill, continued with {@link #findPageAfter})
+     */
+    List<ServiceStatusEntity> findByGameIdAndCheckedAtNotNullOrderByCheckedAtAscIdAsc(String gameId, Pageable pageable);
+}
@@ -0,0 +1,269 @@
+package com.tool.atkdefbackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tool.atkdefbackend.entity.TeamEntity;
+import com.tool.atkdefbackend.exception.ResourceNotFoundException;
+import com.tool.atkdefbackend.repository.TeamRepository;
+import com.tool.atkdefbackend.service.changefeed.ChangeFeedResyncEvent;
+import com.tool.atkdefbackend.service.changefeed.GatewayChangeEvent;
+import com.tool.atkdefbackend.service.proxy.CorePayloads;
+import com.tool.atkdefbackend.service.tick.TickClock;
+import com.tool.atkdefbackend.service.tick.TickSnapshot;
+import com.tool.atkdefbackend.service.tick.TickStartedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Attack info - the per-tick target document for exploit bots
+ *
+ * Opponent vulnbox IPs + the current tick's public flag ids, built ONCE per tick
+ * and per game (on {@link TickStartedEvent}) and kept as pre-serialized JSON bytes
+ * with a content ETag. Serving it is a map lookup; bots polling with If-None-Match
+ * get 304 until the content changes (a rebuild with identical content keeps the
+ * previous bytes, generated_at included).
+ *
+ * A team sees the document without its own entry (teams and flag ids); that view is
+ * serialized once per team and tick. Only RUNNING games have a document, so the
+ * map is bounded by the running games.
+ *
+ * SECURITY: flag objects are reduced to attack-info.flag-fields - flag values are
+ * never part of the document.
+ */
+@Slf4j
+@Service
+public class AttackInfoService {
+
+    private final PythonProxyService pythonProxyService;
+    private final TeamRepository teamRepository;
+    private final TickClock tickClock;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService upstreamExecutor;
+
+    @Value("${attack-info.flag-fields:id,team_id,service_id,service_name,flag_type,flag_id}")
+    private List<String> flagFields;
+
+    @Value("${attack-info.flags-limit:1000}")
+    private int flagsLimit;
+
+    private final ConcurrentHashMap<String, Document> documents = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Document>> building = new ConcurrentHashMap<>();
+
+    public AttackInfoService(PythonProxyService pythonProxyService, TeamRepository teamRepository,
+            TickClock tickClock, ObjectMapper objectMapper,
+            @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor) {
+        this.pythonProxyService = pythonProxyService;
+        this.teamRepository = teamRepository;
+        this.tickClock = tickClock;
+        this.objectMapper = objectMapper;
+        this.upstreamExecutor = upstreamExecutor;
+    }
+
+    /**
+     * Pre-serialized attack info of one game at one tick
+     *
+     * @param content     document without generated_at (compared across rebuilds)
+     * @param contentHash md5 of the serialized content
+     * @param teamViews   team id -> the document without that team, built on first request
+     */
+    public record Document(String gameId, Integer tickNumber, byte[] body, String etag, Instant generatedAt,
+                           Map<String, Object> content, String contentHash, Map<String, View> teamViews) {
+    }
+
+    /**
+     * Serialized body and its strong ETag
+     */
+    public record View(byte[] body, String etag) {
+    }
+
+    /**
+     * Current document of a game as seen by a team (null = staff, full document)
+     */
+    public View getView(String gameId, String teamId) {
+        Document document = getDocument(gameId);
+        if (teamId == null) {
+            return new View(document.body(), document.etag());
+        }
+        return document.teamViews().computeIfAbsent(teamId, id -> withoutTeam(document, id));
+    }
+
+    /**
+     * Current document of a game; built on first request if no tick event produced one yet
+     */
+    public Document getDocument(String gameId) {
+        if (!tickClock.isRunning(gameId)) {
+            throw new ResourceNotFoundException("Running game", "game_id", gameId);
+        }
+        Document document = documents.get(gameId);
+        Integer currentTick = tickClock.currentTickNumber(gameId);
+        if (document != null && (currentTick == null || currentTick.equals(document.tickNumber()))) {
+            return document;
+        }
+        try {
+            return rebuild(gameId).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building attack info");
+        } catch (ExecutionException e) {
+            if (document != null) {
+                log.warn("Attack info rebuild failed for game {}, serving tick {}: {}",
+                        gameId, document.tickNumber(), e.getCause().getMessage());
+                return document;
+            }
+            throw new IllegalStateException("Could not build attack info: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // === Invalidation ===
+
+    @EventListener
+    public void onTickStarted(TickStartedEvent event) {
+        documents.keySet().removeIf(gameId -> !tickClock.isRunning(gameId)); // finished / paused games
+        rebuild(event.gameId());
+    }
+
+    @EventListener
+    public void onChange(GatewayChangeEvent event) {
+        if (event.isTable("teams")) {
+            documents.keySet().forEach(this::rebuild); // IP/name change affects every game
+        } else if ((event.isTable("game_teams") || event.isTable("vulnboxes")) && event.gameId() != null
+                && documents.containsKey(event.gameId())) {
+            rebuild(event.gameId());
+        }
+    }
+
+    @EventListener
+    public void onResync(ChangeFeedResyncEvent event) {
+        documents.keySet().forEach(this::rebuild);
+    }
+
+    /**
+     * Build asynchronously; concurrent triggers for one game share the same build
+     */
+    private CompletableFuture<Document> rebuild(String gameId) {
+        CompletableFuture<Document> future = new CompletableFuture<>();
+        CompletableFuture<Document> inFlight = building.putIfAbsent(gameId, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        upstreamExecutor.execute(() -> {
+            try {
+                Document built = build(gameId);
+                Document document = documents.compute(gameId, (id, previous) -> previous != null
+                        && previous.contentHash().equals(built.contentHash()) ? previous : built);
+                building.remove(gameId, future);
+                future.complete(document);
+            } catch (Exception e) {
+                log.warn("Attack info build failed for game {}: {}", gameId, e.getMessage());
+                building.remove(gameId, future);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    // === Document construction ===
+
+    @SuppressWarnings("unchecked")
+    private Document build(String gameId) {
+        TickSnapshot tick = tickClock.current(gameId).orElse(null);
+        if (tick == null) {
+            tickClock.track(gameId);
+            tick = TickSnapshot.from(gameId,
+                    pythonProxyService.proxyGetUncached("/ticks/current?game_id=" + gameId, Map.class), null);
+        }
+
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("game_id", gameId);
+        content.put("tick_number", tick != null ? tick.tickNumber() : null);
+        content.put("tick_id", tick != null ? tick.tickId() : null);
+        content.put("tick_ends_at", tick != null && tick.expectedEnd() != null ? tick.expectedEnd().toString() : null);
+        content.put("teams", buildTeams(gameId));
+        content.put("flag_ids", tick != null && tick.tickId() != null ? buildFlagIds(tick.tickId()) : Map.of());
+
+        Instant generatedAt = Instant.now();
+        View full = serialize(content, generatedAt);
+        log.debug("Attack info for game {} tick {} built ({} bytes)", gameId, content.get("tick_number"), full.body().length);
+        return new Document(gameId, tick != null ? tick.tickNumber() : null, full.body(), full.etag(), generatedAt,
+                content, DigestUtils.md5DigestAsHex(toJson(content)), new ConcurrentHashMap<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private View withoutTeam(Document document, String teamId) {
+        Map<String, Object> content = new LinkedHashMap<>(document.content());
+        content.put("teams", ((List<Map<String, Object>>) content.get("teams")).stream()
+                .filter(team -> !teamId.equals(team.get("team_id")))
+                .toList());
+        Map<String, Object> flagIds = new TreeMap<>((Map<String, Object>) content.get("flag_ids"));
+        flagIds.remove(teamId);
+        content.put("flag_ids", flagIds);
+        return serialize(content, document.generatedAt());
+    }
+
+    private View serialize(Map<String, Object> content, Instant generatedAt) {
+        Map<String, Object> document = new LinkedHashMap<>(content);
+        document.put("generated_at", generatedAt.toString());
+        byte[] body = toJson(document);
+        return new View(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+    }
+
+    private byte[] toJson(Map<String, Object> document) {
+        try {
+            return objectMapper.writeValueAsBytes(document);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize attack info", e);
+        }
+    }
+
+    /**
+     * Game participants joined with the wrapper's team table (name, vulnbox IP)
+     */
+    private List<Map<String, Object>> buildTeams(String gameId) {
+        Map<String, TeamEntity> accounts = teamRepository.findByRole("TEAM").stream()
+                .collect(Collectors.toMap(team -> String.valueOf(team.getId()), Function.identity()));
+
+        List<Map<String, Object>> teams = new ArrayList<>();
+        for (Map<String, Object> gameTeam : CorePayloads.asList(pythonProxyService.proxyGet("/games/" + gameId + "/teams", Object.class), "teams")) {
+            String teamId = String.valueOf(gameTeam.get("team_id"));
+            TeamEntity account = accounts.get(teamId);
+
+            Map<String, Object> team = new LinkedHashMap<>();
+            team.put("team_id", teamId);
+            team.put("name", account != null ? account.getName() : gameTeam.get("team_name"));
+            team.put("ip_address", CorePayloads.firstNonNull(gameTeam.get("vulnbox_ip"), gameTeam.get("ip_address"),
+                    account != null ? account.getIpAddress() : null));
+            teams.add(team);
+        }
+        return teams;
+    }
+
+    /**
+     * Public flag ids of the tick grouped by victim team (whitelisted fields only)
+     */
+    private Map<String, List<Map<String, Object>>> buildFlagIds(String tickId) {
+        Object flags = pythonProxyService.proxyGet(
+                String.format("/flags/tick/%s?skip=0&limit=%d", tickId, flagsLimit), Object.class);
+
+        Map<String, List<Map<String, Object>>> byTeam = new TreeMap<>();
+        for (Map<String, Object> flag : CorePayloads.asList(flags, "flags")) {
+            Map<String, Object> visible = new LinkedHashMap<>();
+            for (String field : flagFields) {
+                if (flag.containsKey(field)) {
+                    visible.put(field, flag.get(field));
+                }
+            }
+            byTeam.computeIfAbsent(String.valueOf(flag.get("team_id")), k -> new ArrayList<>()).add(visible);
+        }
+        return byTeam;
+    }
+}
@@ -1,10 +1,16 @@
 package com.tool.atkdefbackend.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tool.atkdefbackend.exception.DeadlineExceededException;
+import com.tool.atkdefbackend.service.proxy.FieldProjection;
+import com.tool.atkdefbackend.service.proxy.HedgedRequestExecutor;
+import com.tool.atkdefbackend.service.proxy.RequestDeadline;
+import com.tool.atkdefbackend.service.proxy.ResponseCache;
+import com.tool.atkdefbackend.service.proxy.UpstreamDeadlineExecutor;
+import com.tool.atkdefbackend.service.proxy.UpstreamRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -12,21 +18,39 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
-
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j // 1. Tự động sinh logger
 @Service
 @RequiredArgsConstructor // 2. Tự động sinh Constructor injection
 public class PythonProxyService {
 
+    /**
+     * Error map field, false when the call failed before the request reached the core
+     */
+    public static final String REQUEST_SENT = "request_sent";
+
     // Lỗi này xảy ra vì Spring Boot không tự động tạo Bean RestTemplate mặc định.
     // Bạn cần phải tự khai báo nó.
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper; // 3. Dùng chung ObjectMapper của Spring
-
-    @Value("${python.server-url:http://localhost:8000}")
-    private String pythonServerUrl;
+    private final HedgedRequestExecutor hedgedRequestExecutor;
+    private final UpstreamRouter upstreamRouter; // gameId -> Python Core instance
+    private final UpstreamDeadlineExecutor deadlineExecutor; // cancels calls past the client's deadline
+    private final WebClient webClient; // non-blocking client for the async variants
+    private final ResponseCache responseCache; // GETs of response-cache.routes, dropped on writes
+    private final FieldProjection fieldProjection; // ?fields= sparse fieldsets
 
     /**
      * Proxy POST request.
@@ -34,7 +58,7 @@ public class PythonProxyService {
      * nếu bạn muốn giữ logic "trả về Map lỗi khi backend fail".
      */
     public <T> T proxyPost(String endpoint, Object body, Class<T> responseType) {
-        String url = pythonServerUrl + endpoint;
+        String url = upstreamRouter.resolve(endpoint, body) + endpoint;
         log.info("Proxying POST request to: {}", url);
 
         try {
@@ -42,7 +66,7 @@ public class PythonProxyService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<Object> entity = new HttpEntity<>(body == null ? Collections.emptyMap() : body, headers);
 
-            return restTemplate.postForObject(url, entity, responseType);
+            return deadlineExecutor.execute(endpoint, () -> restTemplate.postForObject(url, entity, responseType));
 
         } catch (HttpClientErrorException | HttpServerErrorException e) {
             log.warn("Python backend returned {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
@@ -50,6 +74,8 @@ public class PythonProxyService {
         } catch (RestClientException e) {
             log.error("Failed to proxy POST to {}: {}", endpoint, e.getMessage());
             return createErrorResponse("Failed to connect to game server: " + e.getMessage(), 500, responseType);
+        } finally {
+            responseCache.invalidate(endpoint); // the write may have changed cached listings
         }
     }
 
@@ -58,7 +84,7 @@ public class PythonProxyService {
      */
     public <T> T proxyMultipartPost(String endpoint, org.springframework.util.MultiValueMap<String, Object> body,
             Class<T> responseType) {
-        String url = pythonServerUrl + endpoint;
+        String url = upstreamRouter.resolve(endpoint, null) + endpoint;
         log.info("Proxying Multipart POST request to: {}", url);
 
         try {
@@ -66,7 +92,7 @@ public class PythonProxyService {
             headers.setContentType(MediaType.MULTIPART_FORM_DATA);
             HttpEntity<Object> entity = new HttpEntity<>(body, headers);
 
-            return restTemplate.postForObject(url, entity, responseType);
+            return deadlineExecutor.execute(endpoint, () -> restTemplate.postForObject(url, entity, responseType));
 
         } catch (HttpClientErrorException | HttpServerErrorException e) {
             log.warn("Python backend returned {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
@@ -74,17 +100,33 @@ public class PythonProxyService {
         } catch (RestClientException e) {
             log.error("Failed to proxy Multipart POST to {}: {}", endpoint, e.getMessage());
             return createErrorResponse("Failed to connect to game server: " + e.getMessage(), 500, responseType);
+        } finally {
+            responseCache.invalidate(endpoint); // the write may have changed cached listings
         }
     }
 
     /**
      * Generic proxy GET request
+     * Hedged (opt-in) for the routes configured in proxy.hedging.routes,
+     * cached for the routes configured in response-cache.routes
      */
     public <T> T proxyGet(String endpoint, Class<T> responseType) {
-        String url = pythonServerUrl + endpoint;
+        return responseCache.get(endpoint, responseType, () -> fetchGet(endpoint, responseType));
+    }
+
+    /**
+     * Proxy GET that never reads the response cache (callers that must see the core's current state)
+     */
+    public <T> T proxyGetUncached(String endpoint, Class<T> responseType) {
+        return fetchGet(endpoint, responseType);
+    }
+
+    private <T> T fetchGet(String endpoint, Class<T> responseType) {
+        String url = upstreamRouter.resolve(endpoint, null) + endpoint;
         log.info("Proxying GET request to: {}", url);
         try {
-            T response = restTemplate.getForObject(url, responseType);
+            T response = deadlineExecutor.execute(endpoint, () -> hedgedRequestExecutor.execute(endpoint,
+                    RequestDeadline.wrap(() -> restTemplate.getForObject(url, responseType))));
             if (response == null) {
                 throw new RuntimeException("Received null response from Python backend");
             }
@@ -102,7 +144,7 @@ public class PythonProxyService {
      * Generic proxy PATCH request
      */
     public <T> T proxyPatch(String endpoint, Object body, Class<T> responseType) {
-        String url = pythonServerUrl + endpoint;
+        String url = upstreamRouter.resolve(endpoint, body) + endpoint;
         log.info("Proxying PATCH request to: {}", url);
 
         try {
@@ -110,7 +152,8 @@ public class PythonProxyService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             HttpEntity<Object> entity = new HttpEntity<>(body == null ? Collections.emptyMap() : body, headers);
 
-            ResponseEntity<T> response = restTemplate.exchange(url, HttpMethod.PATCH, entity, responseType);
+            ResponseEntity<T> response = deadlineExecutor.execute(endpoint,
+                    () -> restTemplate.exchange(url, HttpMethod.PATCH, entity, responseType));
             return response.getBody();
 
         } catch (HttpClientErrorException | HttpServerErrorException e) {
@@ -119,6 +162,8 @@ public class PythonProxyService {
         } catch (RestClientException e) {
             log.error("Failed to proxy PATCH to {}: {}", endpoint, e.getMessage());
             return createErrorResponse("Failed to connect to game server: " + e.getMessage(), 500, responseType);
+        } finally {
+            responseCache.invalidate(endpoint); // the write may have changed cached listings
         }
     }
 
@@ -126,11 +171,12 @@ public class PythonProxyService {
      * Generic proxy DELETE request
      */
     public <T> T proxyDelete(String endpoint, Class<T> responseType) {
-        String url = pythonServerUrl + endpoint;
+        String url = upstreamRouter.resolve(endpoint, null) + endpoint;
         log.info("Proxying DELETE request to: {}", url);
 
         try {
-            ResponseEntity<T> response = restTemplate.exchange(url, HttpMethod.DELETE, null, responseType);
+            ResponseEntity<T> response = deadlineExecutor.execute(endpoint,
+                    () -> restTemplate.exchange(url, HttpMethod.DELETE, null, responseType));
             return response.getBody();
 
         } catch (HttpClientErrorException | HttpServerErrorException e) {
@@ -139,16 +185,138 @@ public class PythonProxyService {
         } catch (RestClientException e) {
             log.error("Failed to proxy DELETE to {}: {}", endpoint, e.getMessage());
             return createErrorResponse("Failed to connect to game server: " + e.getMessage(), 500, responseType);
+        } finally {
+            responseCache.invalidate(endpoint); // the write may have changed cached listings
         }
     }
 
+    // === Async (non-blocking) variants ===
+    // Backed by the Reactor Netty WebClient: no thread waits while the core works.
+    // Same error contract as the blocking methods. The request deadline is captured on
+    // the calling thread, sent as X-Request-Timeout and applied as a reactive timeout;
+    // cancelling the returned future aborts the upstream exchange.
+
+    /**
+     * Async proxy GET - hedged and cached like proxyGet, connection errors complete the future exceptionally
+     */
+    public <T> CompletableFuture<T> proxyGetAsync(String endpoint, Class<T> responseType) {
+        return responseCache.getAsync(endpoint, responseType, () -> fetchGetAsync(endpoint, responseType));
+    }
+
+    /**
+     * Async proxy GET as JSON bytes + strong ETag, for controllers that pass the core's body through unchanged.
+     * Honors ?fields= of the current request (projection of the cached body, never sent upstream).
+     */
+    public CompletableFuture<ResponseCache.Body> proxyGetJsonAsync(String endpoint) {
+        String fields = fieldProjection.requestedFields();
+        CompletableFuture<ResponseCache.Body> body = responseCache.getBodyAsync(endpoint,
+                () -> fetchGetAsync(endpoint, Object.class));
+        return fields == null ? body : body.thenApply(full -> fieldProjection.apply(full, fields));
+    }
+
+    /**
+     * A document held by the gateway (tick snapshot, leaderboard, ...) as JSON bytes + strong ETag,
+     * with ?fields= of the current request applied like proxyGetJsonAsync
+     */
+    public ResponseCache.Body jsonBody(Object document) {
+        String fields = fieldProjection.requestedFields();
+        ResponseCache.Body body = responseCache.encode(document);
+        return fields == null ? body : fieldProjection.apply(body, fields);
+    }
+
+    private <T> CompletableFuture<T> fetchGetAsync(String endpoint, Class<T> responseType) {
+        String url = upstreamRouter.resolve(endpoint, null) + endpoint;
+        log.info("Proxying async GET request to: {}", url);
+        OptionalLong deadline = RequestDeadline.deadlineNanos();
+
+        return hedgedRequestExecutor.executeAsync(endpoint, () -> exchangeAsync(HttpMethod.GET, url, null, deadline, responseType)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Received null response from Python backend")))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    log.warn("Python backend returned {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
+                    return Mono.fromSupplier(() -> handleBackendError(e.getResponseBodyAsString(), e.getStatusCode().value(), responseType));
+                })
+                .doOnError(WebClientException.class, e -> log.error("Failed to proxy GET to {}: {}", endpoint, e.getMessage()))
+                .toFuture());
+    }
+
+    public <T> CompletableFuture<T> proxyPostAsync(String endpoint, Object body, Class<T> responseType) {
+        String url = upstreamRouter.resolve(endpoint, body) + endpoint;
+        log.info("Proxying async POST request to: {}", url);
+        return writeAsync(HttpMethod.POST, endpoint, url, body == null ? Collections.emptyMap() : body, responseType);
+    }
+
+    public <T> CompletableFuture<T> proxyPatchAsync(String endpoint, Object body, Class<T> responseType) {
+        String url = upstreamRouter.resolve(endpoint, body) + endpoint;
+        log.info("Proxying async PATCH request to: {}", url);
+        return writeAsync(HttpMethod.PATCH, endpoint, url, body == null ? Collections.emptyMap() : body, responseType);
+    }
+
+    public <T> CompletableFuture<T> proxyDeleteAsync(String endpoint, Class<T> responseType) {
+        String url = upstreamRouter.resolve(endpoint, null) + endpoint;
+        log.info("Proxying async DELETE request to: {}", url);
+        return writeAsync(HttpMethod.DELETE, endpoint, url, null, responseType);
+    }
+
+    /**
+     * Non-GET: backend errors and connection failures become error maps (like the blocking methods);
+     * a refused connection is tagged request_sent=false, since the core never saw the request
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> writeAsync(HttpMethod method, String endpoint, String url, Object body,
+            Class<T> responseType) {
+        return exchangeAsync(method, url, body, RequestDeadline.deadlineNanos(), responseType)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    log.warn("Python backend returned {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
+                    return Mono.fromSupplier(() -> handleBackendError(e.getResponseBodyAsString(), e.getStatusCode().value(), responseType));
+                })
+                .onErrorResume(WebClientException.class, e -> {
+                    log.error("Failed to proxy {} to {}: {}", method, endpoint, e.getMessage());
+                    return Mono.fromSupplier(() -> {
+                        T error = createErrorResponse("Failed to connect to game server: " + e.getMessage(), 500, responseType);
+                        if (isConnectionRefused(e)) {
+                            ((Map<String, Object>) error).put(REQUEST_SENT, false); // safe to retry
+                        }
+                        return error;
+                    });
+                })
+                .doFinally(signal -> responseCache.invalidate(endpoint))
+                .toFuture();
+    }
+
+    /**
+     * One upstream exchange bounded by the captured deadline (evaluated per subscription,
+     * so a hedge attempt only gets what is left)
+     */
+    private <T> Mono<T> exchangeAsync(HttpMethod method, String url, Object body, OptionalLong deadlineNanos,
+            Class<T> responseType) {
+        return Mono.defer(() -> {
+            WebClient.RequestBodySpec request = webClient.method(method).uri(url);
+            if (body != null) {
+                request.contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+            }
+            if (deadlineNanos.isEmpty()) {
+                return request.retrieve().bodyToMono(responseType);
+            }
+
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadlineNanos.getAsLong() - System.nanoTime());
+            if (remaining <= 0) {
+                return Mono.error(new DeadlineExceededException("Request deadline already exceeded before calling game server", false));
+            }
+            request.header(RequestDeadline.HEADER, String.valueOf(remaining));
+            return request.retrieve().bodyToMono(responseType)
+                    .timeout(Duration.ofMillis(remaining))
+                    .onErrorMap(TimeoutException.class,
+                            e -> new DeadlineExceededException("Game server did not answer within " + remaining + " ms"));
+        });
+    }
+
     /**
      * Find the latest game using Java Streams
      */
     public Map<String, Object> getLatestGame() {
         try {
             ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                    pythonServerUrl + "/games?limit=100",
+                    upstreamRouter.getDefaultUpstream() + "/games?limit=100",
                     HttpMethod.GET,
                     null,
                     new ParameterizedTypeReference<>() {
@@ -234,6 +402,10 @@ public class PythonProxyService {
         }
     }
 
+    private static boolean isConnectionRefused(WebClientException e) {
+        return e instanceof WebClientRequestException && e.getCause() instanceof ConnectException;
+    }
+
     @SuppressWarnings("unchecked")
     private <T> T createErrorResponse(String message, int status, Class<T> responseType) {
         if (!Map.class.isAssignableFrom(responseType) && !Object.class.equals(responseType)) {
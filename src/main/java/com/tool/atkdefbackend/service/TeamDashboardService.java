@@ -0,0 +1,127 @@
+package com.tool.atkdefbackend.service;
+
+import com.tool.atkdefbackend.service.proxy.RequestDeadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Team Dashboard - one document instead of 5+ sequential round trips
+ *
+ * Fans out the upstream reads a team UI needs on every refresh in parallel
+ * (one virtual thread per branch) under a shared deadline:
+ * latency = slowest branch, capped at dashboard.branch-timeout-ms.
+ * Branches that miss the deadline, fail or get an error reply from the core are
+ * reported in "errors" (and left null) and the document is marked "partial"
+ * instead of failing the whole request.
+ *
+ * Flag stats are staff-only (as on /api/proxy/flags/stats) and are left out of
+ * team dashboards. Branches run with the caller's SecurityContext, like the request
+ * thread they stand in for.
+ */
+@Slf4j
+@Service
+public class TeamDashboardService {
+
+    private final PythonProxyService pythonProxyService;
+    private final ExecutorService upstreamExecutor;
+
+    @Value("${dashboard.branch-timeout-ms:3000}")
+    private long branchTimeoutMs;
+
+    @Value("${dashboard.submissions-limit:20}")
+    private int submissionsLimit;
+
+    public TeamDashboardService(PythonProxyService pythonProxyService,
+            @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor) {
+        this.pythonProxyService = pythonProxyService;
+        this.upstreamExecutor = upstreamExecutor;
+    }
+
+    /**
+     * Same document without holding the request thread (fan-out waits on a virtual thread)
+     */
+    public CompletableFuture<Map<String, Object>> buildDashboardAsync(String gameId, String teamId, boolean includeFlagStats) {
+        Supplier<Map<String, Object>> build = RequestDeadline.wrap(() -> buildDashboard(gameId, teamId, includeFlagStats));
+        return CompletableFuture.supplyAsync(build, new DelegatingSecurityContextExecutor(upstreamExecutor));
+    }
+
+    public Map<String, Object> buildDashboard(String gameId, String teamId, boolean includeFlagStats) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(branchTimeoutMs);
+
+        Map<String, Future<Object>> branches = new LinkedHashMap<>();
+        branches.put("current_tick", fetch("/ticks/current?game_id=" + gameId, Object.class));
+        branches.put("scoreboard", fetch("/scoreboard/" + gameId, Map.class));
+        branches.put("submissions", fetch(String.format("/submissions?skip=0&limit=%d&game_id=%s&team_id=%s",
+                submissionsLimit, gameId, teamId), Object.class));
+        branches.put("game_team", fetch("/games/" + gameId + "/teams/" + teamId, Map.class));
+        if (includeFlagStats) {
+            branches.put("flag_stats", fetch("/flags/stats?game_id=" + gameId + "&team_id=" + teamId, Map.class));
+        }
+
+        Map<String, Object> dashboard = new LinkedHashMap<>();
+        dashboard.put("game_id", gameId);
+        dashboard.put("team_id", teamId);
+
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<Object>> branch : branches.entrySet()) {
+            Future<Object> future = branch.getValue();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                Object value = future.get(remaining, TimeUnit.NANOSECONDS);
+                if (value instanceof Map<?, ?> map && Boolean.FALSE.equals(map.get("success"))) {
+                    // Error map from the core (4xx/5xx): not data
+                    dashboard.put(branch.getKey(), null);
+                    errors.put(branch.getKey(), map.get("status") + ": " + errorMessage(map));
+                    continue;
+                }
+                dashboard.put(branch.getKey(), value);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                dashboard.put(branch.getKey(), null);
+                errors.put(branch.getKey(), "Timed out after " + branchTimeoutMs + " ms");
+            } catch (ExecutionException e) {
+                dashboard.put(branch.getKey(), null);
+                errors.put(branch.getKey(), String.valueOf(e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                branches.values().forEach(f -> f.cancel(true));
+                throw new IllegalStateException("Interrupted while building dashboard");
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            log.warn("Partial dashboard for team {} in game {}: {}", teamId, gameId, errors.keySet());
+        }
+        dashboard.put("partial", !errors.isEmpty());
+        dashboard.put("errors", errors);
+        dashboard.put("elapsed_ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return dashboard;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Future<Object> fetch(String endpoint, Class<?> responseType) {
+        // Branches inherit the request deadline (forwarded to the core, cancelled when spent)
+        // and the caller's SecurityContext
+        Supplier<Object> branch = RequestDeadline.wrap(() -> pythonProxyService.proxyGet(endpoint, (Class<Object>) responseType));
+        return upstreamExecutor.submit(new DelegatingSecurityContextCallable<>(branch::get));
+    }
+
+    private static String errorMessage(Map<?, ?> error) {
+        for (String key : new String[]{"detail", "error", "message"}) {
+            if (error.get(key) != null) {
+                return String.valueOf(error.get(key));
+            }
+        }
+        return "error from game server";
+    }
+}
@@ -0,0 +1,266 @@
+package com.tool.atkdefbackend.service.changefeed;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PostgreSQL LISTEN/NOTIFY change feed
+ *
+ * Holds one dedicated JDBC connection (outside the Hikari pool) listening on the
+ * "gateway_changes" channel fed by the triggers in db/change-feed.sql. Every
+ * notification becomes a {@link GatewayChangeEvent}; caches evict the affected
+ * entries with @EventListener.
+ *
+ * NOTIFY is not durable: whatever happens while the connection is down is lost,
+ * so every (re)connect publishes a {@link ChangeFeedResyncEvent} and caches drop
+ * their contents.
+ *
+ * Triggers are only created where missing (the core may create its tables after the
+ * gateway started); the check is repeated on every reconnect and every
+ * change-feed.trigger-check-ms while some watched table still lacks its trigger.
+ */
+@Slf4j
+@Service
+public class ChangeFeedListener {
+
+    static final String CHANNEL = "gateway_changes";
+    static final String TRIGGER = "gateway_change_feed";
+    static final List<String> WATCHED_TABLES = List.of("games", "game_teams", "teams", "checkers", "vulnboxes");
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    @Value("${change-feed.enabled:false}")
+    private boolean enabled;
+
+    @Value("${change-feed.install-triggers:true}")
+    private boolean installTriggers;
+
+    @Value("${change-feed.poll-timeout-ms:5000}")
+    private int pollTimeoutMs;
+
+    @Value("${change-feed.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    @Value("${change-feed.trigger-check-ms:60000}")
+    private long triggerCheckMs;
+
+    @Value("${spring.datasource.url}")
+    private String datasourceUrl;
+
+    @Value("${spring.datasource.username}")
+    private String datasourceUsername;
+
+    @Value("${spring.datasource.password}")
+    private String datasourcePassword;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Thread worker;
+    private volatile Instant lastNotificationAt;
+    private volatile String lastError;
+    private final AtomicLong notifications = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private volatile Set<String> missingTriggers = new TreeSet<>(WATCHED_TABLES);
+    private long lastTriggerCheck;
+
+    public ChangeFeedListener(ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper) {
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Change feed disabled, gateway caches rely on TTL only");
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "change-feed");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * True while notifications are being received (caches may use long TTLs)
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("connected", connected);
+        stats.put("channel", CHANNEL);
+        stats.put("notifications", notifications.get());
+        stats.put("reconnects", reconnects.get());
+        stats.put("last_notification_at", lastNotificationAt != null ? lastNotificationAt.toString() : null);
+        stats.put("last_error", lastError);
+        stats.put("missing_triggers", missingTriggers);
+        return stats;
+    }
+
+    // === Listener loop ===
+
+    private void run() {
+        long backoffMs = 500;
+        boolean firstConnect = true;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(datasourceUrl, datasourceUsername, datasourcePassword)) {
+                if (installTriggers) {
+                    installMissingTriggers(connection);
+                }
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                connected = true;
+                backoffMs = 500;
+                log.info("Change feed listening on channel {}", CHANNEL);
+                publish(new ChangeFeedResyncEvent(firstConnect ? "connected" : "reconnected"));
+                firstConnect = false;
+
+                listen(connection);
+            } catch (SQLException e) {
+                lastError = e.getMessage();
+                log.warn("Change feed connection lost: {}", e.getMessage());
+            } finally {
+                if (connected) {
+                    reconnects.incrementAndGet();
+                }
+                connected = false;
+            }
+
+            if (!running) {
+                break;
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+        }
+        log.info("Change feed stopped");
+    }
+
+    private void listen(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running && !Thread.currentThread().isInterrupted()) {
+            PGNotification[] received = pgConnection.getNotifications(pollTimeoutMs);
+            if (received == null || received.length == 0) {
+                // Idle: make sure the socket is still alive, getNotifications alone won't tell
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+                if (installTriggers && !missingTriggers.isEmpty()
+                        && System.currentTimeMillis() - lastTriggerCheck >= triggerCheckMs) {
+                    installMissingTriggers(connection);
+                }
+                continue;
+            }
+            for (PGNotification notification : received) {
+                handle(notification.getParameter());
+            }
+        }
+    }
+
+    /**
+     * Run db/change-feed.sql only if a watched table lacks its trigger, then record what is still missing
+     * (tables the core has not created yet)
+     */
+    private void installMissingTriggers(Connection connection) throws SQLException {
+        lastTriggerCheck = System.currentTimeMillis();
+        Set<String> missing = missingTriggers(connection);
+        if (!missing.isEmpty()) {
+            try {
+                // Whole file as one statement: the DO/function bodies contain ';'
+                ScriptUtils.executeSqlScript(connection, new EncodedResource(new ClassPathResource("db/change-feed.sql")),
+                        false, false, ScriptUtils.DEFAULT_COMMENT_PREFIX, ScriptUtils.EOF_STATEMENT_SEPARATOR,
+                        ScriptUtils.DEFAULT_BLOCK_COMMENT_START_DELIMITER, ScriptUtils.DEFAULT_BLOCK_COMMENT_END_DELIMITER);
+            } catch (Exception e) {
+                // Missing privileges: triggers have to be installed manually, listening still works
+                log.warn("Could not install change feed triggers: {}", e.getMessage());
+            }
+            Set<String> stillMissing = missingTriggers(connection);
+            if (stillMissing.size() < missing.size()) {
+                log.info("Change feed triggers installed on {}", missing.stream().filter(t -> !stillMissing.contains(t)).toList());
+            }
+            if (!stillMissing.isEmpty()) {
+                log.info("Change feed triggers still missing on {} (retried every {} ms)", stillMissing, triggerCheckMs);
+            }
+            missing = stillMissing;
+        }
+        missingTriggers = missing;
+    }
+
+    private Set<String> missingTriggers(Connection connection) throws SQLException {
+        Set<String> missing = new TreeSet<>(WATCHED_TABLES);
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT c.relname FROM pg_trigger t"
+                     + " JOIN pg_class c ON c.oid = t.tgrelid JOIN pg_namespace n ON n.oid = c.relnamespace"
+                     + " WHERE n.nspname = 'public' AND t.tgname = '" + TRIGGER + "'")) {
+            while (rows.next()) {
+                missing.remove(rows.getString(1));
+            }
+        }
+        return missing;
+    }
+
+    private void handle(String payload) {
+        notifications.incrementAndGet();
+        lastNotificationAt = Instant.now();
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            publish(new GatewayChangeEvent(
+                    node.path("table").asText(),
+                    node.path("op").asText(),
+                    node.hasNonNull("id") ? node.get("id").asText() : null,
+                    node.hasNonNull("game_id") ? node.get("game_id").asText() : null));
+        } catch (Exception e) {
+            log.warn("Ignoring malformed change notification {}: {}", payload, e.getMessage());
+        }
+    }
+
+    private void publish(Object event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (Exception e) {
+            log.error("Change feed listener failed for {}: {}", event, e.getMessage(), e);
+        }
+    }
+}
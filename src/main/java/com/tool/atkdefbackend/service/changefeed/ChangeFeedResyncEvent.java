@@ -0,0 +1,8 @@
+package com.tool.atkdefbackend.service.changefeed;
+
+/**
+ * Notifications may have been missed (listener (re)connected) - caches must drop everything
+ * they cannot revalidate on their own
+ */
+public record ChangeFeedResyncEvent(String reason) {
+}
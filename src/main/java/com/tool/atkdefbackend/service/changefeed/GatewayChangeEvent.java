@@ -0,0 +1,16 @@
+package com.tool.atkdefbackend.service.changefeed;
+
+/**
+ * One row change in the shared database, published by {@link ChangeFeedListener}
+ *
+ * @param table     table name, e.g. "games", "teams", "vulnboxes"
+ * @param operation INSERT, UPDATE or DELETE
+ * @param id        primary key of the changed row (as text)
+ * @param gameId    game_id column of the row, if the table has one
+ */
+public record GatewayChangeEvent(String table, String operation, String id, String gameId) {
+
+    public boolean isTable(String name) {
+        return name.equalsIgnoreCase(table);
+    }
+}
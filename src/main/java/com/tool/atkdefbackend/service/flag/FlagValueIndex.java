@@ -0,0 +1,244 @@
+package com.tool.atkdefbackend.service.flag;
+
+import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.proxy.CorePayloads;
+import com.tool.atkdefbackend.service.tick.TickClock;
+import com.tool.atkdefbackend.service.tick.TickSnapshot;
+import com.tool.atkdefbackend.service.tick.TickStartedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+
+/**
+ * Flag value -> flag metadata for the last few ticks of each running game
+ *
+ * Loaded once per tick (on {@link TickStartedEvent}) from the core's tick flag listing,
+ * paged through flag-index.page-size rows at a time, so gateway features that see a raw
+ * flag value (capture statistics, by-value lookups) can tell whose flag it is without a
+ * round trip per flag. Holds flag-index.ticks ticks per game - a flag older than that is
+ * not valid anymore. A tick counts as indexed only when its whole listing was read.
+ *
+ * Values that do not even have the flag format ({@link #isWellFormed}) are never flags;
+ * well-formed values missing while the current tick of every running game is indexed
+ * (flag-index.authoritative-misses) are at least not among the recent ticks.
+ */
+@Slf4j
+@Component
+public class FlagValueIndex {
+
+    public static final String DEFAULT_PATTERN = "FLAG\\{[A-Za-z0-9_\\-+/=]{1,100}\\}";
+
+    private static final List<String> VALUE_FIELDS = List.of("flag_value", "value", "flag");
+
+    private final PythonProxyService pythonProxyService;
+    private final ExecutorService upstreamExecutor;
+    private final TickClock tickClock;
+    private final Pattern flagPattern;
+
+    @Value("${flag-index.ticks:5}")
+    private int ticksKept;
+
+    @Value("${flag-index.authoritative-misses:true}")
+    private boolean authoritativeMisses;
+
+    @Value("${flag-index.page-size:1000}")
+    private int pageSize;
+
+    @Value("${flag-index.max-pages:50}")
+    private int maxPages;
+
+    /**
+     * gameId -> tick number -> flags of the tick
+     */
+    private final Map<String, NavigableMap<Integer, TickFlags>> games = new ConcurrentHashMap<>();
+
+    public FlagValueIndex(PythonProxyService pythonProxyService,
+                          @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor, TickClock tickClock,
+                          @Value("${flag-extract.pattern:}") String pattern) {
+        this.pythonProxyService = pythonProxyService;
+        this.upstreamExecutor = upstreamExecutor;
+        this.tickClock = tickClock;
+        this.flagPattern = Pattern.compile(pattern.isBlank() ? DEFAULT_PATTERN : pattern);
+    }
+
+    /**
+     * Whitelisted view of a flag (never carries the value itself)
+     */
+    public record FlagInfo(String flagId, String gameId, String teamId, String service, Integer tickNumber) {
+    }
+
+    /**
+     * Flag value -> flag of one tick; complete = the whole listing was read
+     */
+    private record TickFlags(Map<String, FlagInfo> flags, boolean complete) {
+    }
+
+    @EventListener
+    public void onTickStarted(TickStartedEvent event) {
+        TickSnapshot tick = event.tick();
+        if (tick.tickId() != null) {
+            upstreamExecutor.execute(() -> load(tick));
+        }
+    }
+
+    /**
+     * Flag with this value among the indexed ticks of the game
+     */
+    public Optional<FlagInfo> find(String gameId, String value) {
+        NavigableMap<Integer, TickFlags> ticks = games.get(gameId);
+        if (ticks == null || value == null) {
+            return Optional.empty();
+        }
+        synchronized (ticks) {
+            for (TickFlags tick : ticks.descendingMap().values()) {
+                FlagInfo flag = tick.flags().get(value);
+                if (flag != null) {
+                    return Optional.of(flag);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Flag with this value among the indexed ticks of any game
+     */
+    public Optional<FlagInfo> findAny(String value) {
+        for (String gameId : games.keySet()) {
+            Optional<FlagInfo> flag = find(gameId, value);
+            if (flag.isPresent()) {
+                return flag;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Whether the value has the flag format (flag-extract.pattern); anything else is no flag at all
+     */
+    public boolean isWellFormed(String value) {
+        return value != null && flagPattern.matcher(value).matches();
+    }
+
+    public int getTicksKept() {
+        return ticksKept;
+    }
+
+    /**
+     * Whether a miss of {@link #findAny} means "not a flag of the last flag-index.ticks ticks
+     * of any running game": every tracked game has its current tick fully loaded
+     */
+    public boolean isAuthoritative() {
+        Set<String> running = tickClock.trackedGames();
+        if (!authoritativeMisses || running.isEmpty()) {
+            return false;
+        }
+        for (String gameId : running) {
+            Integer current = tickClock.currentTickNumber(gameId);
+            if (current == null || !isIndexed(gameId, current)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the tick's flags are loaded (a miss on an indexed tick is a real miss)
+     */
+    public boolean isIndexed(String gameId, int tickNumber) {
+        NavigableMap<Integer, TickFlags> ticks = games.get(gameId);
+        if (ticks == null) {
+            return false;
+        }
+        synchronized (ticks) {
+            TickFlags tick = ticks.get(tickNumber);
+            return tick != null && tick.complete();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        games.forEach((gameId, ticks) -> {
+            synchronized (ticks) {
+                int flags = ticks.values().stream().mapToInt(tick -> tick.flags().size()).sum();
+                List<Integer> partial = ticks.entrySet().stream()
+                        .filter(tick -> !tick.getValue().complete())
+                        .map(Map.Entry::getKey)
+                        .toList();
+                stats.put(gameId, Map.of("ticks", new ArrayList<>(ticks.keySet()), "partial_ticks", partial,
+                        "flags", flags));
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * Load the flags of one tick, page by page up to flag-index.max-pages (blocking, call off
+     * the request thread)
+     */
+    public void load(TickSnapshot tick) {
+        try {
+            Map<String, FlagInfo> flags = new HashMap<>();
+            boolean complete = false;
+            for (int page = 0; page < maxPages && !complete; page++) {
+                Object response = pythonProxyService.proxyGet(String.format("/flags/tick/%s?skip=%d&limit=%d",
+                        tick.tickId(), page * pageSize, pageSize), Object.class);
+                List<Map<String, Object>> rows = CorePayloads.asList(response, "flags");
+                for (Map<String, Object> flag : rows) {
+                    String value = valueOf(flag);
+                    if (value != null) {
+                        flags.put(value, toInfo(tick.gameId(), flag, tick.tickNumber()));
+                    }
+                }
+                complete = rows.size() < pageSize; // a short page is the last one
+            }
+            if (!complete) {
+                log.warn("Flags of game {} tick {} exceed {} pages of {}, index is partial",
+                        tick.gameId(), tick.tickNumber(), maxPages, pageSize);
+            }
+
+            NavigableMap<Integer, TickFlags> ticks = games.computeIfAbsent(tick.gameId(), id -> new TreeMap<>());
+            synchronized (ticks) {
+                ticks.put(tick.tickNumber(), new TickFlags(flags, complete));
+                while (ticks.size() > ticksKept) {
+                    ticks.pollFirstEntry();
+                }
+            }
+            log.debug("Indexed {} flags of game {} tick {}", flags.size(), tick.gameId(), tick.tickNumber());
+        } catch (Exception e) {
+            log.warn("Could not index flags of game {} tick {}: {}", tick.gameId(), tick.tickNumber(), e.getMessage());
+        }
+    }
+
+    // === Core flag objects ===
+
+    /**
+     * Value of a core flag object (field name differs between core versions)
+     */
+    public static String valueOf(Map<String, Object> flag) {
+        for (String field : VALUE_FIELDS) {
+            if (flag.get(field) instanceof String value) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    public static FlagInfo toInfo(String gameId, Map<String, Object> flag, Integer tickNumber) {
+        Object service = flag.get("service_name") != null ? flag.get("service_name") : flag.get("service_id");
+        Integer tick = CorePayloads.asInteger(flag.get("tick_number"));
+        return new FlagInfo(
+                flag.get("id") != null ? flag.get("id").toString() : null,
+                gameId,
+                flag.get("team_id") != null ? flag.get("team_id").toString() : null,
+                service != null ? service.toString() : null,
+                tick != null ? tick : tickNumber);
+    }
+}
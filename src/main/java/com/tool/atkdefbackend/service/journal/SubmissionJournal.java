@@ -0,0 +1,336 @@
+package com.tool.atkdefbackend.service.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Submission journal - append-only record of every flag submission
+ *
+ * Each submission is journaled when it arrives (principal, team, game, flag, source)
+ * and again when the core answers (status). Records are copied into a memory-mapped
+ * segment under a short lock, so the submit path pays a memcpy, not a syscall; the
+ * bytes survive a gateway crash as soon as they are in the mapping. A flusher forces
+ * the written range to disk every submission-journal.fsync-interval-ms (group commit),
+ * bounding what a machine crash can lose. Segments rotate at segment-bytes and the
+ * oldest are deleted beyond max-segments; appends only wait for the new segment to be
+ * mapped, the flusher forces, closes and deletes the old ones. Format: {@link SubmissionJournalReader}.
+ */
+@Slf4j
+@Service
+public class SubmissionJournal {
+
+    @Value("${submission-journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${submission-journal.dir:data/submission-journal}")
+    private String dir;
+
+    @Value("${submission-journal.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${submission-journal.max-segments:64}")
+    private int maxSegments;
+
+    @Value("${submission-journal.fsync-interval-ms:10}")
+    private long fsyncIntervalMs;
+
+    private Path directory;
+    private volatile boolean open;
+
+    // Guarded by this
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    private int forcedPosition;
+    private long segmentBase;
+    private long nextSeq = 1;
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder forces = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "submission-journal-fsync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Submission journal disabled");
+            return;
+        }
+        try {
+            directory = Paths.get(dir).toAbsolutePath();
+            Files.createDirectories(directory);
+            recover();
+            open = true;
+            flusher.scheduleWithFixedDelay(this::flush, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+            log.info("Submission journal at {} (next seq {})", directory, nextSeq);
+        } catch (IOException e) {
+            log.warn("Submission journal disabled, cannot open {}: {}", dir, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flusher.shutdown(); // stops the periodic flush, lets queued segment retirements finish
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Submission journal: retiring old segments did not finish on shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (open) {
+                open = false;
+                segment.force();
+                closeChannel(channel);
+            }
+        }
+    }
+
+    /**
+     * Continue the newest segment after its last valid record (a torn tail is overwritten).
+     * A segment's base seq is never below a seq handed out before it was opened, so the
+     * newest segment alone gives the next seq.
+     */
+    private synchronized void recover() throws IOException {
+        List<Path> segments = SubmissionJournalReader.segments(directory);
+        if (segments.isEmpty()) {
+            openSegment(nextSeq);
+            return;
+        }
+        Path last = segments.get(segments.size() - 1);
+        channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentBytes));
+        SubmissionJournalReader.Tail tail = SubmissionJournalReader.read(segment, null);
+        if (tail.position() < 0) {
+            closeChannel(channel);
+            // unreadable header: start a fresh segment after it, past every seq still readable
+            nextSeq = Math.max(SubmissionJournalReader.baseOf(last) + 1, lastSeqBefore(segments) + 1);
+            openSegment(nextSeq);
+            return;
+        }
+        segmentBase = segment.getLong(4);
+        position = tail.position();
+        forcedPosition = position;
+        nextSeq = tail.lastSeq() + 1;
+        if (position + 4 <= segment.limit()) {
+            segment.putInt(position, 0); // cut a torn record
+        }
+    }
+
+    /**
+     * Highest seq in the readable segments before the newest one, 0 if none
+     */
+    private static long lastSeqBefore(List<Path> segments) throws IOException {
+        for (int i = segments.size() - 2; i >= 0; i--) {
+            try (FileChannel previous = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                SubmissionJournalReader.Tail tail = SubmissionJournalReader.read(
+                        previous.map(FileChannel.MapMode.READ_ONLY, 0, previous.size()), null);
+                if (tail.position() >= 0) {
+                    return tail.lastSeq();
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Journal an arriving submission
+     *
+     * @return its sequence number (pass to {@link #result}), 0 when the journal is off
+     */
+    public long arrived(String principal, String teamId, String gameId, String flag, String source) {
+        if (!open) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            long seq = nextSeq++;
+            append(SubmissionJournalReader.encode(SubmissionJournalReader.ARRIVED, seq, now,
+                    principal, teamId, gameId, flag, source));
+            return seq;
+        }
+    }
+
+    /**
+     * Journal the core's answer to submission seq
+     */
+    public void result(long seq, String status) {
+        if (!open || seq <= 0) {
+            return;
+        }
+        byte[] record = SubmissionJournalReader.encode(SubmissionJournalReader.RESULT, seq,
+                System.currentTimeMillis(), status);
+        synchronized (this) {
+            append(record);
+        }
+    }
+
+    private void append(byte[] record) {
+        try {
+            if (position + record.length + 4 > segment.limit()) {
+                rotate();
+            }
+            // Body first, length last: a reader never sees a length without its bytes
+            segment.put(position + 4, record, 4, record.length - 4);
+            if (position + record.length + 4 <= segment.limit()) {
+                segment.putInt(position + record.length, 0);
+            }
+            segment.putInt(position, record.length - 8);
+            position += record.length;
+            records.increment();
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            log.warn("Submission journal append failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Only the swap happens under the lock; forcing and closing the old segment and
+     * deleting the oldest ones is left to the flusher thread
+     */
+    private void rotate() throws IOException {
+        FileChannel retiredChannel = channel;
+        MappedByteBuffer retired = segment;
+        int from = forcedPosition;
+        int to = position;
+        // base = first seq not handed out yet, so recovering from this segment alone never
+        // reuses a seq; +1 keeps names unique when only results were written since the last rotation
+        openSegment(Math.max(nextSeq, segmentBase + 1));
+        rotations.increment();
+        Runnable retire = () -> retire(retiredChannel, retired, from, to);
+        try {
+            flusher.execute(retire);
+        } catch (RejectedExecutionException e) { // shutting down
+            retire.run();
+        }
+    }
+
+    /**
+     * Runs on the flusher after the lock is released: the flusher is single threaded, so
+     * a group commit still in progress on the old segment finishes before it is closed
+     */
+    private void retire(FileChannel retiredChannel, MappedByteBuffer retired, int from, int to) {
+        try {
+            if (to > from) {
+                retired.force(from, to - from);
+                forces.increment();
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Submission journal fsync failed: {}", e.getMessage());
+        }
+        closeChannel(retiredChannel);
+        try {
+            List<Path> segments = SubmissionJournalReader.segments(directory);
+            for (int i = 0; i < segments.size() - maxSegments; i++) {
+                Files.deleteIfExists(segments.get(i));
+                log.info("Submission journal segment {} deleted (max-segments {})", segments.get(i).getFileName(), maxSegments);
+            }
+        } catch (IOException e) {
+            failures.increment();
+            log.warn("Submission journal cleanup failed: {}", e.getMessage());
+        }
+    }
+
+    private void openSegment(long baseSeq) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s",
+                SubmissionJournalReader.SEGMENT_PREFIX, baseSeq, SubmissionJournalReader.SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segment.putInt(0, SubmissionJournalReader.MAGIC);
+        segment.putLong(4, baseSeq);
+        segment.putInt(SubmissionJournalReader.HEADER_BYTES, 0);
+        segmentBase = baseSeq;
+        position = SubmissionJournalReader.HEADER_BYTES;
+        forcedPosition = 0;
+    }
+
+    private void closeChannel(FileChannel channel) {
+        try {
+            channel.close(); // the mapping stays valid until garbage collected
+        } catch (IOException e) {
+            log.debug("Closing journal segment: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Group commit: one force for everything appended since the last one
+     */
+    private void flush() {
+        MappedByteBuffer target;
+        int from;
+        int to;
+        synchronized (this) {
+            if (!open || position == forcedPosition) {
+                return;
+            }
+            target = segment;
+            from = forcedPosition;
+            to = position;
+            forcedPosition = position;
+        }
+        try {
+            target.force(from, to - from);
+            forces.increment();
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Submission journal fsync failed: {}", e.getMessage());
+        }
+    }
+
+    // === Reads ===
+
+    public List<SubmissionJournalReader.Entry> query(String teamId, Instant since, boolean pendingOnly, int limit) {
+        if (directory == null) {
+            return List.of();
+        }
+        try {
+            return SubmissionJournalReader.query(directory, teamId, since, pendingOnly, limit);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read submission journal: " + e.getMessage(), e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", open);
+        stats.put("dir", directory != null ? directory.toString() : dir);
+        synchronized (this) {
+            stats.put("next_seq", nextSeq);
+            stats.put("segment_position", position);
+        }
+        stats.put("segment_bytes", segmentBytes);
+        stats.put("records", records.sum());
+        stats.put("fsyncs", forces.sum());
+        stats.put("rotations", rotations.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+}
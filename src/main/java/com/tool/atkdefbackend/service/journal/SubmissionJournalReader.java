@@ -0,0 +1,360 @@
+package com.tool.atkdefbackend.service.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Submission journal format + offline reader
+ *
+ * Segment file "journal-&lt;base seq, 20 digits&gt;.seg"; the base is the first seq not yet
+ * handed out when the segment was opened (records answering older arrivals may follow):
+ * <pre>
+ *   header  : magic int 'SUJ1' | base seq long
+ *   record  : length int (of body) | body | crc32 int (of body)      length 0 = end of data
+ *   body    : type byte | seq long | epoch millis long | fields
+ *   ARRIVED : principal str | team str | game str | flag str | source str
+ *   RESULT  : status str                                            (seq = the arrival it answers)
+ *   str     : unsigned short length | UTF-8 bytes
+ * </pre>
+ * A record with a bad length or CRC marks the end of a segment (torn tail after a crash).
+ *
+ * Command line (from the boot jar use PropertiesLauncher with -Dloader.main=this class):
+ * <pre>
+ *   SubmissionJournalReader &lt;dir&gt; [--team ID] [--since ISO-8601] [--pending]
+ * </pre>
+ * prints one JSON object per submission; --pending lists only submissions without a
+ * result or with an ERROR result (candidates for replay).
+ */
+public final class SubmissionJournalReader {
+
+    static final int MAGIC = 0x53554A31; // "SUJ1"
+    static final int HEADER_BYTES = 12;
+    static final byte ARRIVED = 1;
+    static final byte RESULT = 2;
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private SubmissionJournalReader() {
+    }
+
+    /**
+     * One submission: its arrival plus the result when one was journaled
+     */
+    public record Entry(long seq, Instant arrivedAt, String principal, String teamId, String gameId, String flag,
+                        String source, String status, Instant completedAt) {
+
+        public boolean isPending() {
+            return status == null || "ERROR".equals(status);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("seq", seq);
+            map.put("arrived_at", arrivedAt.toString());
+            map.put("principal", principal);
+            map.put("team_id", teamId);
+            map.put("game_id", gameId);
+            map.put("flag", flag);
+            map.put("source", source);
+            map.put("status", status);
+            map.put("completed_at", completedAt != null ? completedAt.toString() : null);
+            return map;
+        }
+    }
+
+    /**
+     * Raw record as stored
+     */
+    record Record(byte type, long seq, long epochMillis, String[] fields) {
+    }
+
+    /**
+     * Where a segment's data ends and the last sequence number in it
+     */
+    record Tail(int position, long lastSeq) {
+    }
+
+    // === Queries ===
+
+    /**
+     * Submissions (arrival joined with its result) matching the filter, in arrival order
+     *
+     * Keeps at most {@code limit} submissions in memory: once that many matching arrivals
+     * are collected no further ones are taken, and later segments are only read for results
+     * (which are always in the same or a later segment than their arrival). The scan ends
+     * as soon as every collected submission has a final result. With pendingOnly a
+     * submission answered later drops out; if arrivals were passed over meanwhile, another
+     * pass starts at the segment holding the first of them.
+     */
+    public static List<Entry> query(Path dir, String teamId, Instant since, boolean pendingOnly, int limit)
+            throws IOException {
+        List<Path> segments = segments(dir);
+        List<Entry> found = new ArrayList<>();
+        long after = Long.MIN_VALUE; // arrivals up to this seq are decided
+        while (found.size() < limit) {
+            Scan scan = new Scan(teamId, since, pendingOnly, limit - found.size(), after);
+            for (Path segment : segments.subList(firstSegment(segments, after), segments.size())) {
+                if (scan.isSettled()) {
+                    break;
+                }
+                readSegment(segment, scan);
+            }
+            found.addAll(scan.entries.values());
+            if (!scan.passedOver) {
+                break; // every matching arrival after the offset was considered
+            }
+            after = scan.lastTaken;
+        }
+        return found;
+    }
+
+    /**
+     * Index of the segment holding the first arrival after {@code after}: arrivals are
+     * appended in seq order, each segment starting at its base
+     */
+    private static int firstSegment(List<Path> segments, long after) {
+        int first = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (after != Long.MIN_VALUE && baseOf(segments.get(i)) <= after + 1) {
+                first = i;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * One bounded pass of {@link #query}
+     */
+    private static final class Scan implements Consumer<Record> {
+        private final String teamId;
+        private final long sinceMillis;
+        private final boolean pendingOnly;
+        private final int limit;
+        private final long after;
+        private final Map<Long, Entry> entries = new LinkedHashMap<>();
+        private int unsettled; // collected entries still without a final result
+        private long lastTaken;
+        private boolean passedOver; // a matching arrival was left out because entries was full
+
+        Scan(String teamId, Instant since, boolean pendingOnly, int limit, long after) {
+            this.teamId = teamId;
+            this.sinceMillis = since != null ? since.toEpochMilli() : Long.MIN_VALUE;
+            this.pendingOnly = pendingOnly;
+            this.limit = limit;
+            this.after = after;
+            this.lastTaken = after;
+        }
+
+        boolean isSettled() {
+            return (passedOver || entries.size() >= limit) && unsettled == 0;
+        }
+
+        @Override
+        public void accept(Record record) {
+            if (record.type() == ARRIVED) {
+                if (record.seq() <= after || record.epochMillis() < sinceMillis
+                        || (teamId != null && !teamId.equals(record.fields()[1]))) {
+                    return;
+                }
+                if (passedOver || entries.size() >= limit) {
+                    passedOver = true; // keep arrival order: take nothing more in this pass
+                    return;
+                }
+                String[] f = record.fields();
+                entries.put(record.seq(), new Entry(record.seq(), Instant.ofEpochMilli(record.epochMillis()),
+                        f[0], f[1], f[2], f[3], f[4], null, null));
+                unsettled++;
+                lastTaken = record.seq();
+            } else if (record.type() == RESULT) {
+                Entry entry = entries.get(record.seq());
+                if (entry == null) {
+                    return;
+                }
+                Entry answered = new Entry(entry.seq(), entry.arrivedAt(), entry.principal(), entry.teamId(),
+                        entry.gameId(), entry.flag(), entry.source(), record.fields()[0],
+                        Instant.ofEpochMilli(record.epochMillis()));
+                if (entry.isPending() && !answered.isPending()) {
+                    unsettled--;
+                }
+                if (pendingOnly && !answered.isPending()) {
+                    entries.remove(entry.seq());
+                } else {
+                    entries.put(entry.seq(), answered);
+                }
+            }
+        }
+    }
+
+    private static void readSegment(Path segment, Consumer<Record> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            read(buffer, consumer);
+        } catch (NoSuchFileException e) {
+            // deleted beyond max-segments since it was listed
+        }
+    }
+
+    /**
+     * Segment files in sequence order
+     */
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Base seq encoded in a segment file name
+     */
+    static long baseOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // === Decoding ===
+
+    /**
+     * Read records from a segment buffer until the end of valid data
+     */
+    static Tail read(ByteBuffer buffer, Consumer<Record> consumer) {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            return new Tail(-1, -1);
+        }
+        long lastSeq = buffer.getLong(4) - 1;
+        int position = HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        while (position + 4 <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + 4 + length + 4 > buffer.limit()) {
+                break;
+            }
+            ByteBuffer body = buffer.slice(position + 4, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + 4 + length)) {
+                break; // torn write
+            }
+            Record record = decode(body);
+            if (record == null) {
+                break;
+            }
+            if (consumer != null) {
+                consumer.accept(record);
+            }
+            lastSeq = Math.max(lastSeq, record.seq());
+            position += 4 + length + 4;
+        }
+        return new Tail(position, lastSeq);
+    }
+
+    private static Record decode(ByteBuffer body) {
+        try {
+            byte type = body.get();
+            long seq = body.getLong();
+            long millis = body.getLong();
+            int count = type == ARRIVED ? 5 : type == RESULT ? 1 : -1;
+            if (count < 0) {
+                return null;
+            }
+            String[] fields = new String[count];
+            for (int i = 0; i < count; i++) {
+                int length = Short.toUnsignedInt(body.getShort());
+                byte[] bytes = new byte[length];
+                body.get(bytes);
+                fields[i] = length == 0 ? null : new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new Record(type, seq, millis, fields);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // === Encoding (used by the writer) ===
+
+    /**
+     * Full record bytes: length | body | crc
+     */
+    static byte[] encode(byte type, long seq, long epochMillis, String... fields) {
+        byte[][] encoded = new byte[fields.length][];
+        int bodyLength = 1 + 8 + 8;
+        for (int i = 0; i < fields.length; i++) {
+            byte[] bytes = fields[i] != null ? fields[i].getBytes(StandardCharsets.UTF_8) : new byte[0];
+            encoded[i] = bytes.length > 0xFFFF ? Arrays.copyOf(bytes, 0xFFFF) : bytes;
+            bodyLength += 2 + encoded[i].length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(4 + bodyLength + 4);
+        record.putInt(bodyLength).put(type).putLong(seq).putLong(epochMillis);
+        for (byte[] bytes : encoded) {
+            record.putShort((short) bytes.length).put(bytes);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, bodyLength);
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    // === Command line ===
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: SubmissionJournalReader <dir> [--team ID] [--since ISO-8601] [--pending]");
+            System.exit(2);
+        }
+        String team = null;
+        Instant since = null;
+        boolean pending = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--team" -> team = args[++i];
+                case "--since" -> since = Instant.parse(args[++i]);
+                case "--pending" -> pending = true;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        for (Entry entry : query(Paths.get(args[0]), team, since, pending, Integer.MAX_VALUE)) {
+            System.out.println(toJson(entry.toMap()));
+        }
+    }
+
+    private static String toJson(Map<String, Object> map) {
+        StringJoiner json = new StringJoiner(",", "{", "}");
+        map.forEach((key, value) -> json.add("\"" + key + "\":" + (value == null ? "null"
+                : value instanceof Number ? value.toString() : "\"" + escape(value.toString()) + "\"")));
+        return json.toString();
+    }
+
+    private static String escape(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> out.append(c < 0x20 ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+            }
+        }
+        return out.toString();
+    }
+}
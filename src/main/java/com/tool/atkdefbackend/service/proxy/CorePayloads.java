@@ -0,0 +1,77 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsing helpers for loosely-typed Python Core payloads (decoded as Map / List / Object)
+ */
+public final class CorePayloads {
+
+    private CorePayloads() {
+    }
+
+    /**
+     * Core list endpoints return either a bare array or {"<key>": [...]}
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Map<String, Object>> asList(Object response, String key) {
+        Object items = response instanceof Map<?, ?> map ? map.get(key) : response;
+        if (!(items instanceof List<?> list)) {
+            return List.of();
+        }
+        return list.stream()
+                .filter(Map.class::isInstance)
+                .map(item -> (Map<String, Object>) item)
+                .toList();
+    }
+
+    /**
+     * Number or numeric string, null otherwise
+     */
+    public static Integer asInteger(Object value) {
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Integer.parseInt(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * ISO timestamp with or without offset (the core stores naive UTC), null if absent or unparsable
+     */
+    public static Instant asInstant(Object value) {
+        if (!(value instanceof String text)) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(text).toInstant();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC);
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    public static Object firstNonNull(Object... values) {
+        for (Object value : values) {
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,185 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sparse fieldsets - ?fields=a,b on proxied GETs
+ *
+ * Keeps only properties with one of the listed names (at any depth, whole value) plus
+ * the objects / arrays leading to them; everything else is dropped, e.g.
+ * /api/proxy/scoreboard/1?fields=team_name,total keeps {"entries":[{"team_name":..,"total":..}]}.
+ * The core's JSON bytes are streamed through a Jackson {@link FilteringParserDelegate},
+ * no tree is built. Projected bodies get their own strong ETag and are cached by
+ * (base ETag, fields), so a variant dies with the body it was cut from.
+ * Error replies are passed through untouched.
+ *
+ * Pass-through bodies are projected in PythonProxyService; every other JSON GET response
+ * (leaderboard, submission listings, dashboard, ...) by FieldProjectionAdvice.
+ */
+@Component
+public class FieldProjection {
+
+    public static final String PARAM = "fields";
+
+    private final JsonFactory jsonFactory;
+
+    @Value("${field-projection.max-fields:32}")
+    private int maxFields;
+
+    @Value("${field-projection.max-bytes:16777216}")
+    private long maxBytes;
+
+    private Cache<String, ResponseCache.Body> variants;
+
+    private final LongAdder projected = new LongAdder();
+    private final LongAdder variantHits = new LongAdder();
+
+    public FieldProjection(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    @PostConstruct
+    public void init() {
+        variants = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, ResponseCache.Body body) -> key.length() * 2 + body.json().length)
+                .build();
+    }
+
+    /**
+     * Normalized ?fields= of the current request (sorted, deduplicated), null if absent
+     */
+    public String requestedFields() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servlet)) {
+            return null;
+        }
+        return requestedFields(servlet.getRequest());
+    }
+
+    /**
+     * Normalized ?fields= of request (sorted, deduplicated), null if absent
+     */
+    public String requestedFields(HttpServletRequest request) {
+        String raw = request.getParameter(PARAM);
+        if (raw == null || raw.isBlank()) {
+            return null;
+        }
+        Set<String> fields = new TreeSet<>();
+        for (String field : raw.split(",")) {
+            if (!field.isBlank()) {
+                fields.add(field.trim());
+            }
+        }
+        if (fields.size() > maxFields) {
+            throw new IllegalArgumentException("At most " + maxFields + " fields can be requested");
+        }
+        return fields.isEmpty() ? null : String.join(",", fields);
+    }
+
+    /**
+     * The body cut down to the given fields (as returned by {@link #requestedFields})
+     */
+    public ResponseCache.Body apply(ResponseCache.Body body, String fields) {
+        if (fields == null || body.error()) {
+            return body;
+        }
+        String key = body.etag() + '|' + fields;
+        ResponseCache.Body cached = variants.getIfPresent(key);
+        if (cached != null) {
+            variantHits.increment();
+            return cached;
+        }
+        byte[] json = project(body.json(), Set.of(fields.split(",")));
+        ResponseCache.Body variant = new ResponseCache.Body(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"", false);
+        variants.put(key, variant);
+        projected.increment();
+        return variant;
+    }
+
+    byte[] project(byte[] json, Set<String> fields) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (JsonParser parser = new FilteringParserDelegate(jsonFactory.createParser(json), new FieldsFilter(fields),
+                TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true);
+             JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            if (parser.nextToken() == null) { // nothing matched: empty container of the same kind
+                if (isArray(json)) {
+                    generator.writeStartArray();
+                    generator.writeEndArray();
+                } else {
+                    generator.writeStartObject();
+                    generator.writeEndObject();
+                }
+            } else {
+                do {
+                    generator.copyCurrentEvent(parser);
+                } while (parser.nextToken() != null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot project response", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isArray(byte[] json) {
+        for (byte b : json) {
+            if (!Character.isWhitespace(b)) {
+                return b == '[';
+            }
+        }
+        return false;
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "variants", variants.estimatedSize(),
+                "projected", projected.sum(),
+                "variant_hits", variantHits.sum());
+    }
+
+    /**
+     * Listed names are included whole; other properties are descended into (kept only
+     * if something inside matches), scalars outside a match are dropped
+     */
+    private static final class FieldsFilter extends TokenFilter {
+
+        private final Set<String> fields;
+
+        private FieldsFilter(Set<String> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return fields.contains(name) ? TokenFilter.INCLUDE_ALL : this;
+        }
+
+        @Override
+        protected boolean _includeScalar() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Hedged execution for idempotent proxied GETs
+ *
+ * When a call to a hedgeable route has not answered after the route's p95 latency,
+ * a second identical attempt is sent and whichever answers first wins.
+ *
+ * Key Features:
+ * - Opt-in via proxy.hedging.enabled, only for routes listed in proxy.hedging.routes
+ * - Hedge delay = p95 of the last 256 primary-attempt latencies (initial-delay-ms until warmed up);
+ *   when the hedge wins, the primary is left to finish so its own latency is still recorded
+ * - Global retry budget: each request deposits budget-ratio tokens, each hedge costs one,
+ *   so extra upstream load stays below ~budget-ratio even when the core is slow everywhere
+ * - HTTP error responses (4xx/5xx) are real answers and are never hedged around
+ */
+@Slf4j
+@Component
+public class HedgedRequestExecutor {
+
+    private static final int LATENCY_WINDOW = 256;
+    private static final long TOKEN = 1000; // budget is kept in milli-tokens
+
+    private final ExecutorService upstreamExecutor;
+
+    @Value("${proxy.hedging.enabled:false}")
+    private boolean enabled;
+
+    @Value("${proxy.hedging.routes:/ticks/current,/ticks/latest,/scoreboard,/flags}")
+    private List<String> routes;
+
+    @Value("${proxy.hedging.percentile:0.95}")
+    private double percentile;
+
+    @Value("${proxy.hedging.initial-delay-ms:250}")
+    private long initialDelayMs;
+
+    @Value("${proxy.hedging.min-delay-ms:20}")
+    private long minDelayMs;
+
+    @Value("${proxy.hedging.budget-ratio:0.1}")
+    private double budgetRatio;
+
+    @Value("${proxy.hedging.budget-max-tokens:20}")
+    private int budgetMaxTokens;
+
+    private final ConcurrentHashMap<String, RouteStats> stats = new ConcurrentHashMap<>();
+    private final AtomicLong budget = new AtomicLong(0);
+
+    public HedgedRequestExecutor(@Qualifier("upstreamExecutor") ExecutorService upstreamExecutor) {
+        this.upstreamExecutor = upstreamExecutor;
+    }
+
+    /**
+     * Run an upstream GET, hedging it if the endpoint belongs to a hedgeable route.
+     * Exceptions thrown by the attempt are rethrown unchanged.
+     */
+    public <T> T execute(String endpoint, Supplier<T> attempt) {
+        String route = enabled ? matchRoute(endpoint) : null;
+        if (route == null) {
+            return attempt.get();
+        }
+
+        RouteStats routeStats = stats.computeIfAbsent(route, RouteStats::new);
+        routeStats.requests.increment();
+        deposit();
+
+        long start = System.nanoTime();
+        CompletionService<T> completion = new ExecutorCompletionService<>(upstreamExecutor);
+        Future<T> primary = completion.submit(() -> {
+            T value = attempt.get();
+            routeStats.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return value;
+        });
+        Future<T> hedge = null;
+        boolean hedgeWon = false;
+
+        try {
+            Future<T> completed = completion.poll(routeStats.hedgeDelayMs(), TimeUnit.MILLISECONDS);
+            if (completed == null) {
+                if (tryWithdraw()) {
+                    hedge = completion.submit(attempt::get);
+                    routeStats.hedged.increment();
+                    log.debug("Hedging GET {} after {} ms", endpoint, routeStats.hedgeDelayMs());
+                } else {
+                    routeStats.budgetDenied.increment();
+                }
+                completed = completion.take();
+            }
+
+            int outstanding = hedge != null ? 2 : 1;
+            RuntimeException firstFailure = null;
+            while (true) {
+                outstanding--;
+                try {
+                    T result = completed.get();
+                    if (completed == hedge) {
+                        routeStats.hedgeWins.increment();
+                        hedgeWon = true;
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    RuntimeException failure = unwrap(e);
+                    // An HTTP status is a real answer from the core - do not wait for the other attempt
+                    if (failure instanceof HttpStatusCodeException || outstanding == 0) {
+                        throw firstFailure != null ? firstFailure : failure;
+                    }
+                    firstFailure = failure;
+                    completed = completion.take();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for game server");
+        } finally {
+            // A primary beaten by the hedge still reports its latency, otherwise p95 drifts low
+            if (!hedgeWon) {
+                primary.cancel(true);
+            }
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Non-blocking variant: attempts are futures (e.g. WebClient Monos), the hedge is
+     * launched from a delayed task instead of a parked thread. Cancelling the returned
+     * future cancels every outstanding attempt.
+     */
+    public <T> CompletableFuture<T> executeAsync(String endpoint, Supplier<CompletableFuture<T>> attempt) {
+        String route = enabled ? matchRoute(endpoint) : null;
+        if (route == null) {
+            return attempt.get();
+        }
+
+        RouteStats routeStats = stats.computeIfAbsent(route, RouteStats::new);
+        routeStats.requests.increment();
+        deposit();
+
+        long start = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        List<CompletableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        BiConsumer<CompletableFuture<T>, Boolean> watch = (future, isHedge) -> future.whenComplete((value, error) -> {
+            if (error == null) {
+                if (!isHedge) {
+                    routeStats.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+                if (result.complete(value) && isHedge) {
+                    routeStats.hedgeWins.increment();
+                }
+                return;
+            }
+            Throwable failure = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            firstFailure.compareAndSet(null, failure);
+            // An HTTP status is a real answer from the core - do not wait for the other attempt
+            boolean httpAnswer = failure instanceof HttpStatusCodeException || failure instanceof WebClientResponseException;
+            if (outstanding.decrementAndGet() == 0 || httpAnswer) {
+                result.completeExceptionally(httpAnswer ? failure : firstFailure.get());
+            }
+        });
+
+        CompletableFuture<T> primary = attempt.get();
+        attempts.add(primary);
+        watch.accept(primary, false);
+
+        long delayMs = routeStats.hedgeDelayMs();
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, upstreamExecutor).execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (!tryWithdraw()) {
+                routeStats.budgetDenied.increment();
+                return;
+            }
+            outstanding.incrementAndGet();
+            routeStats.hedged.increment();
+            log.debug("Hedging async GET {} after {} ms", endpoint, delayMs);
+            CompletableFuture<T> hedge = attempt.get();
+            attempts.add(hedge);
+            watch.accept(hedge, true);
+            if (result.isDone()) {
+                hedge.cancel(true);
+            }
+        });
+
+        // Winner decided, caller gone or deadline hit: stop the losing/abandoned exchanges.
+        // A primary beaten by the hedge is left running so its latency still feeds the p95.
+        result.whenComplete((value, error) -> attempts.forEach(future -> {
+            if (future != primary || error != null) {
+                future.cancel(true);
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Snapshot of hedging metrics per route (hedge rate, win rate, current delay)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> routeStats = new TreeMap<>();
+        stats.forEach((route, s) -> routeStats.put(route, s.toMap()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("budget_tokens", budget.get() / (double) TOKEN);
+        result.put("budget_max_tokens", budgetMaxTokens);
+        result.put("budget_ratio", budgetRatio);
+        result.put("routes", routeStats);
+        return result;
+    }
+
+    // === Helper Methods ===
+
+    private String matchRoute(String endpoint) {
+        String path = endpoint;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        for (String route : routes) {
+            if (path.equals(route) || path.startsWith(route + "/")) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private void deposit() {
+        long max = budgetMaxTokens * TOKEN;
+        long increment = (long) (budgetRatio * TOKEN);
+        budget.accumulateAndGet(increment, (current, inc) -> Math.min(max, current + inc));
+    }
+
+    private boolean tryWithdraw() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return new ResourceAccessException("Upstream call failed: " + cause);
+    }
+
+    /**
+     * Per-route counters and a sliding latency window used to derive the hedge delay
+     */
+    private class RouteStats {
+        private final String route;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder hedged = new LongAdder();
+        private final LongAdder hedgeWins = new LongAdder();
+        private final LongAdder budgetDenied = new LongAdder();
+
+        private final long[] latencies = new long[LATENCY_WINDOW];
+        private int samples;
+        private volatile long cachedDelayMs = -1;
+
+        RouteStats(String route) {
+            this.route = route;
+        }
+
+        synchronized void record(long latencyMs) {
+            latencies[samples % LATENCY_WINDOW] = latencyMs;
+            samples++;
+            // Re-sort only every 16 samples; the percentile moves slowly
+            if (samples >= 16 && samples % 16 == 0) {
+                int size = Math.min(samples, LATENCY_WINDOW);
+                long[] sorted = Arrays.copyOf(latencies, size);
+                Arrays.sort(sorted);
+                int index = Math.min(size - 1, (int) Math.ceil(percentile * size) - 1);
+                cachedDelayMs = Math.max(minDelayMs, sorted[Math.max(0, index)]);
+            }
+        }
+
+        long hedgeDelayMs() {
+            long delay = cachedDelayMs;
+            return delay < 0 ? initialDelayMs : delay;
+        }
+
+        Map<String, Object> toMap() {
+            long total = requests.sum();
+            long hedges = hedged.sum();
+            long wins = hedgeWins.sum();
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("route", route);
+            map.put("requests", total);
+            map.put("hedged", hedges);
+            map.put("hedge_wins", wins);
+            map.put("budget_denied", budgetDenied.sum());
+            map.put("hedge_rate", total == 0 ? 0.0 : (double) hedges / total);
+            map.put("win_rate", hedges == 0 ? 0.0 : (double) wins / hedges);
+            map.put("hedge_delay_ms", hedgeDelayMs());
+            return map;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tool.atkdefbackend.exception.DeadlineExceededException;
+import com.tool.atkdefbackend.exception.RateLimitExceededException;
+import com.tool.atkdefbackend.exception.ServiceOverloadedException;
+import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.auth.UserDetailsImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key store for non-GET proxy calls
+ *
+ * Keeps the in-flight or completed response per (scope, key) for idempotency.ttl-seconds;
+ * the scope is the team for team users (every bot of a team shares its keys), the
+ * username otherwise. The first request runs the upstream call; a duplicate arriving
+ * while it is in flight waits on the same future, and one arriving later gets the stored
+ * response replayed without touching Python Core. Reusing a key for a different request
+ * (method, path, canonical JSON body) is rejected (400).
+ *
+ * A key is only released when the call provably never reached the core (gateway
+ * overloaded or rate limited, deadline gone before sending, or an error map tagged
+ * request_sent=false for a refused connection), so the retry goes upstream again. Timeouts and 5xx answers leave the outcome unknown: the key stays
+ * locked and a retry with it gets 409 instead of a possible second execution.
+ * Entries expire in insertion order, so one FIFO queue serves both TTL and size bound.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @Value("${idempotency.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${idempotency.max-entries:20000}")
+    private int maxEntries;
+
+    @Value("${idempotency.max-key-length:255}")
+    private int maxKeyLength;
+
+    private final ObjectMapper canonicalMapper;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger(); // ConcurrentLinkedQueue.size() is O(n)
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder joinedInFlight = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public IdempotencyStore(ObjectMapper objectMapper) {
+        this.canonicalMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    }
+
+    /**
+     * Response of an idempotent call; replayed = served from an earlier request with the same key
+     */
+    public record Outcome(CompletableFuture<Object> response, boolean replayed) {
+    }
+
+    /**
+     * Idempotency scope of a caller: team users share their team's keys
+     */
+    public static String scopeOf(UserDetailsImpl userDetails) {
+        boolean teamUser = userDetails.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_TEAM") || a.getAuthority().equals("ROLE_STUDENT"));
+        String teamId = userDetails.getTeamId();
+        if (teamUser && teamId != null && !teamId.equals("0")) {
+            return "team:" + teamId;
+        }
+        return "user:" + userDetails.getUsername();
+    }
+
+    /**
+     * @param scope  see {@link #scopeOf}
+     * @param key    Idempotency-Key header value, null/blank = no deduplication
+     * @param method HTTP method of the proxied call
+     * @param path   core path of the proxied call
+     * @param body   request body (null if none); compared in canonical form, map order does not matter
+     * @param call   starts the upstream call
+     */
+    public Outcome execute(String scope, String key, String method, String path, Object body,
+                           Supplier<? extends CompletableFuture<?>> call) {
+        if (key == null || key.isBlank()) {
+            return new Outcome(call.get().thenApply(result -> (Object) result), false);
+        }
+        if (key.length() > maxKeyLength) {
+            throw new IllegalArgumentException(HEADER + " must be at most " + maxKeyLength + " characters");
+        }
+
+        String id = scope + '\n' + key;
+        String signature = signature(method, path, body);
+        long now = System.nanoTime();
+        Entry fresh = new Entry(id, signature, now + TimeUnit.SECONDS.toNanos(ttlSeconds));
+
+        Entry existing = entries.putIfAbsent(id, fresh);
+        if (existing != null && existing.isExpired(now)) {
+            entries.remove(id, existing);
+            existing = entries.putIfAbsent(id, fresh);
+        }
+
+        if (existing != null) {
+            if (!Objects.equals(existing.signature, signature)) {
+                conflicts.increment();
+                throw new IllegalArgumentException(HEADER + " '" + key + "' was already used for a different request");
+            }
+            if (existing.state == State.UNKNOWN) {
+                throw new IllegalStateException("Outcome of the earlier request with " + HEADER + " '" + key
+                        + "' is unknown (the game server did not answer); check it before retrying with a new key");
+            }
+            if (existing.response.isDone()) {
+                replayed.increment();
+            } else {
+                joinedInFlight.increment();
+            }
+            log.debug("Idempotent replay for {} (key {})", scope, key);
+            // A copy, so cancelling this caller's result leaves the shared call running
+            return new Outcome(existing.response.copy(), true);
+        }
+
+        insertionOrder.add(fresh);
+        queued.incrementAndGet();
+        evictOverflow(now);
+        executed.increment();
+
+        CompletableFuture<?> upstream;
+        try {
+            upstream = call.get();
+        } catch (RuntimeException e) {
+            entries.remove(id, fresh);
+            fresh.response.completeExceptionally(e);
+            throw e;
+        }
+        upstream.whenComplete((result, error) -> {
+            // Settle the key before waking waiters so their retries see the final state
+            if (error != null ? !reachedCore(error) : isNotSent(result)) {
+                discarded.increment();
+                entries.remove(id, fresh);
+            } else if (error != null || isServerError(result)) {
+                unknown.increment();
+                fresh.state = State.UNKNOWN;
+            } else {
+                fresh.state = State.COMPLETED;
+            }
+            if (error != null) {
+                fresh.response.completeExceptionally(error);
+            } else {
+                fresh.response.complete(result);
+            }
+        });
+        // The upstream call belongs to the key now: a disconnecting client does not abort it
+        return new Outcome(fresh.response.copy(), false);
+    }
+
+    /**
+     * What the request does, independent of JSON key order
+     */
+    String signature(String method, String path, Object body) {
+        String canonicalBody;
+        try {
+            canonicalBody = canonicalMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Request body cannot be serialized", e);
+        }
+        return method + ' ' + path + ' '
+                + DigestUtils.md5DigestAsHex(canonicalBody.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * False only for failures that prove nothing was sent to the core
+     */
+    private static boolean reachedCore(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ServiceOverloadedException || cause instanceof RateLimitExceededException) {
+            return false;
+        }
+        if (cause instanceof DeadlineExceededException deadline) {
+            return deadline.isRequestSent();
+        }
+        return true;
+    }
+
+    private void evictOverflow(long now) {
+        Entry head;
+        while ((head = insertionOrder.peek()) != null
+                && (head.isExpired(now) || queued.get() > maxEntries)) {
+            Entry oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            queued.decrementAndGet();
+            if (entries.remove(oldest.id, oldest) && !oldest.isExpired(now)) {
+                evicted.increment();
+            }
+        }
+    }
+
+    /**
+     * Error map of a write whose connection was refused (PythonProxyService.writeAsync)
+     */
+    private static boolean isNotSent(Object body) {
+        return body instanceof Map<?, ?> map && Boolean.FALSE.equals(map.get(PythonProxyService.REQUEST_SENT));
+    }
+
+    /**
+     * Error maps built by PythonProxyService carry success=false and the HTTP status
+     */
+    private static boolean isServerError(Object body) {
+        return body instanceof Map<?, ?> map
+                && Boolean.FALSE.equals(map.get("success"))
+                && map.get("status") instanceof Number status
+                && status.intValue() >= 500;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("max_entries", maxEntries);
+        stats.put("ttl_seconds", ttlSeconds);
+        stats.put("executed", executed.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("joined_in_flight", joinedInFlight.sum());
+        stats.put("key_conflicts", conflicts.sum());
+        stats.put("released_not_sent", discarded.sum());
+        stats.put("outcome_unknown", unknown.sum());
+        stats.put("evicted_before_ttl", evicted.sum());
+        return stats;
+    }
+
+    private enum State {
+        IN_FLIGHT, COMPLETED, UNKNOWN
+    }
+
+    private static class Entry {
+        private final String id;
+        private final String signature;
+        private final long expiresAtNanos;
+        private volatile State state = State.IN_FLIGHT;
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+
+        Entry(String id, String signature, long expiresAtNanos) {
+            this.id = id;
+            this.signature = signature;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos > 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Deadline of the current request, bound to the thread by DeadlineFilter
+ *
+ * Same idea as RequestContextHolder: code deep in the proxy layer can ask how much
+ * of the client's budget is left. Work handed to other threads must be wrapped
+ * with {@link #wrap(Supplier)} to carry the deadline along.
+ * Threads without a deadline (schedulers, event listeners) are unbounded.
+ */
+public final class RequestDeadline {
+
+    /**
+     * Header carrying the remaining budget in milliseconds (client -> gateway -> core)
+     */
+    public static final String HEADER = "X-Request-Timeout";
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static void set(long timeoutMs) {
+        DEADLINE_NANOS.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    public static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    /**
+     * Remaining budget in ms (may be negative once expired), empty if unbounded
+     */
+    public static OptionalLong remainingMillis() {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    /**
+     * Absolute deadline on the System.nanoTime() scale, for code that outlives the calling thread
+     */
+    public static OptionalLong deadlineNanos() {
+        Long deadline = DEADLINE_NANOS.get();
+        return deadline != null ? OptionalLong.of(deadline) : OptionalLong.empty();
+    }
+
+    public static boolean isExpired() {
+        OptionalLong remaining = remainingMillis();
+        return remaining.isPresent() && remaining.getAsLong() <= 0;
+    }
+
+    /**
+     * Capture the caller's deadline and install it around the task on whichever thread runs it
+     */
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            Long previous = DEADLINE_NANOS.get();
+            DEADLINE_NANOS.set(deadline);
+            try {
+                return task.get();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(Long previous) {
+        if (previous == null) {
+            DEADLINE_NANOS.remove();
+        } else {
+            DEADLINE_NANOS.set(previous);
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.tool.atkdefbackend.service.changefeed.ChangeFeedResyncEvent;
+import com.tool.atkdefbackend.service.changefeed.GatewayChangeEvent;
+import com.tool.atkdefbackend.service.tick.TickStartedEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Response cache in front of PythonProxyService GETs
+ *
+ * Only routes listed in response-cache.routes (prefix=ttl-ms, longest prefix wins) are
+ * cached. Bodies are kept as JSON bytes in a Caffeine cache (W-TinyLFU admission,
+ * bounded by response-cache.max-bytes) and decoded per caller, so nobody shares a
+ * mutable Map. Keys are the endpoint alone: the core is called with the gateway's own
+ * identity, so a body never depends on who asked, and who may see it is decided by the
+ * controllers' role checks before the cache is consulted.
+ *
+ * - age &lt;= ttl: fresh hit
+ * - age &lt;= ttl + stale-while-revalidate-ms: served stale, one background refresh
+ * - core fails (exception / 5xx) and age &lt;= ttl + stale-if-error-ms: served stale
+ *
+ * Every body carries a strong ETag (quoted md5 of the bytes) so pass-through controllers
+ * can serve the bytes as is and answer If-None-Match with 304. Concurrent misses of one
+ * key share a single upstream call; error replies are never stored.
+ *
+ * Negative cache: a 404 from the core is remembered for response-cache.negative-ttl-ms
+ * on every GET (cached route or not, e.g. /flags/{id}), bounded to negative-max-entries
+ * keys, so repeated lookups of missing ids never reach the core.
+ *
+ * Proxied writes, change-feed events and tick transitions drop affected routes by bumping
+ * the route's write generation (O(1); entries of older generations stop matching and age
+ * out); a tick transition also clears the negative cache (new flags / ticks exist from then on).
+ */
+@Slf4j
+@Service
+public class ResponseCache {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final ObjectMapper objectMapper;
+    private final ExecutorService upstreamExecutor;
+
+    @Value("${response-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${response-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${response-cache.routes:/games=2000,/ticks=1000,/checkers=5000,/vulnboxes=10000,/scoreboard=1000}")
+    private List<String> routeTtls;
+
+    @Value("${response-cache.stale-while-revalidate-ms:2000}")
+    private long staleWhileRevalidateMs;
+
+    @Value("${response-cache.stale-if-error-ms:60000}")
+    private long staleIfErrorMs;
+
+    @Value("${response-cache.tick-routes:/ticks,/scoreboard}")
+    private List<String> tickRoutes;
+
+    @Value("${response-cache.negative-ttl-ms:10000}")
+    private long negativeTtlMs;
+
+    @Value("${response-cache.negative-max-entries:100000}")
+    private long negativeMaxEntries;
+
+    private final Map<String, Long> routes = new TreeMap<>(Comparator.comparing(String::length).reversed()
+            .thenComparing(Comparator.naturalOrder()));
+    private final Map<String, RouteStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Fetched>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder negativeStored = new LongAdder();
+
+    private Cache<String, Entry> cache;
+    private Cache<String, Missing> notFound; // endpoint -> the core's 404 body
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>(); // first path segment -> writes
+    private final Map<String, AtomicLong> routeGenerations = new ConcurrentHashMap<>(); // cached route -> invalidations
+
+    public ResponseCache(ObjectMapper objectMapper, @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor) {
+        this.objectMapper = objectMapper;
+        this.upstreamExecutor = upstreamExecutor;
+    }
+
+    /**
+     * JSON body of a core response and its strong ETag; error = an error map from the core
+     */
+    public record Body(byte[] json, String etag, boolean error) {
+    }
+
+    /**
+     * Stored body; storedAt / ttl in nanos (System.nanoTime), valid while its route's
+     * generation is unchanged
+     */
+    private record Entry(Body body, long storedAt, long ttlNanos, long generation) {
+    }
+
+    /**
+     * A 404 body, valid while its resource's write generation is unchanged
+     */
+    private record Missing(Body body, long generation) {
+    }
+
+    /**
+     * One upstream answer; failed = 5xx error map (eligible for stale-if-error, not stored)
+     */
+    private record Fetched(Body body, boolean failed) {
+    }
+
+    @PostConstruct
+    public void init() {
+        for (String entry : routeTtls) {
+            int separator = entry.lastIndexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                routes.put(entry.substring(0, separator).trim(), Long.parseLong(entry.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid response-cache route '{}'", entry);
+            }
+        }
+        long retainNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(staleWhileRevalidateMs, staleIfErrorMs));
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> key.length() * 2 + entry.body.json().length + ENTRY_OVERHEAD_BYTES)
+                .expireAfter(Expiry.writing((String key, Entry entry) -> Duration.ofNanos(entry.ttlNanos + retainNanos)))
+                .recordStats()
+                .build();
+        notFound = Caffeine.newBuilder()
+                .maximumSize(negativeMaxEntries)
+                .expireAfterWrite(Duration.ofMillis(negativeTtlMs))
+                .build();
+        log.info("Response cache {}: routes {}, max {} bytes", enabled ? "enabled" : "disabled", routes, maxBytes);
+    }
+
+    // === Lookup ===
+
+    /**
+     * Blocking variant: a miss runs the loader on the calling thread
+     */
+    public <T> T get(String endpoint, Class<T> responseType, Supplier<T> loader) {
+        try {
+            return getAsync(endpoint, responseType, () -> {
+                try {
+                    return CompletableFuture.completedFuture(loader.get());
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public <T> CompletableFuture<T> getAsync(String endpoint, Class<T> responseType,
+                                             Supplier<CompletableFuture<T>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key = endpoint;
+        AtomicLong generation = generation(endpoint);
+        Body missing = knownMissing(key, generation);
+        if (missing != null) {
+            return CompletableFuture.completedFuture(decode(missing.json(), responseType));
+        }
+        long observed = generation.get();
+        String route = routeOf(endpoint);
+        if (route == null) {
+            CompletableFuture<T> upstream = loader.get();
+            upstream.thenAccept(value -> rememberMissing(key, observed, value, null)); // caller keeps the cancellable future
+            return upstream;
+        }
+        return lookup(route, key, observed, loader).thenApply(body -> decode(body.json(), responseType));
+    }
+
+    /**
+     * The response as JSON bytes + ETag (uncached routes are encoded once, not stored)
+     */
+    public CompletableFuture<Body> getBodyAsync(String endpoint, Supplier<? extends CompletableFuture<?>> loader) {
+        if (!enabled) {
+            return loader.get().thenApply(this::encode);
+        }
+        String key = endpoint;
+        AtomicLong generation = generation(endpoint);
+        Body missing = knownMissing(key, generation);
+        if (missing != null) {
+            return CompletableFuture.completedFuture(missing);
+        }
+        long observed = generation.get();
+        String route = routeOf(endpoint);
+        if (route == null) {
+            return loader.get().thenApply(value -> {
+                Body body = encode(value);
+                rememberMissing(key, observed, value, body);
+                return body;
+            });
+        }
+        return lookup(route, key, observed, loader);
+    }
+
+    private CompletableFuture<Body> lookup(String route, String key, long generation,
+                                           Supplier<? extends CompletableFuture<?>> loader) {
+        RouteStats routeStats = stats.computeIfAbsent(route, r -> new RouteStats());
+        routeStats.requests.increment();
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(routes.get(route));
+        long routeGeneration = routeGeneration(route).get();
+
+        Entry stored = cache.getIfPresent(key);
+        Entry entry = stored != null && stored.generation == routeGeneration ? stored : null; // written since: gone
+        long age = entry != null ? System.nanoTime() - entry.storedAt : Long.MAX_VALUE;
+        if (age <= ttlNanos) {
+            routeStats.hits.increment();
+            return CompletableFuture.completedFuture(entry.body);
+        }
+        if (age <= ttlNanos + TimeUnit.MILLISECONDS.toNanos(staleWhileRevalidateMs)) {
+            routeStats.staleHits.increment();
+            if (!inFlight.containsKey(key + '#' + routeGeneration)) {
+                routeStats.revalidations.increment();
+                upstreamExecutor.execute(() -> fetch(key, ttlNanos, generation, routeGeneration, loader, routeStats));
+            }
+            return CompletableFuture.completedFuture(entry.body);
+        }
+
+        routeStats.misses.increment();
+        boolean staleUsable = age <= ttlNanos + TimeUnit.MILLISECONDS.toNanos(staleIfErrorMs);
+        return fetch(key, ttlNanos, generation, routeGeneration, loader, routeStats).handle((fetched, error) -> {
+            if ((error != null || fetched.failed) && staleUsable) {
+                routeStats.staleIfError.increment();
+                return entry.body;
+            }
+            if (error != null) {
+                throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+            }
+            return fetched.body;
+        });
+    }
+
+    /**
+     * One upstream call per key and route generation at a time; later callers join it.
+     * The body is stored under the route generation observed before the call, so a write
+     * racing it leaves an entry that no longer matches.
+     */
+    private CompletableFuture<Fetched> fetch(String key, long ttlNanos, long generation, long routeGeneration,
+                                             Supplier<? extends CompletableFuture<?>> loader, RouteStats routeStats) {
+        String flightKey = key + '#' + routeGeneration;
+        CompletableFuture<Fetched> created = new CompletableFuture<>();
+        CompletableFuture<Fetched> existing = inFlight.putIfAbsent(flightKey, created);
+        if (existing != null) {
+            routeStats.coalesced.increment();
+            return existing;
+        }
+        CompletableFuture<?> upstream;
+        try {
+            upstream = loader.get();
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((value, error) -> {
+            inFlight.remove(flightKey, created);
+            if (error != null) {
+                created.completeExceptionally(error);
+                return;
+            }
+            try {
+                boolean errorReply = isErrorReply(value);
+                Body body = encode(value);
+                if (!errorReply) {
+                    cache.put(key, new Entry(body, System.nanoTime(), ttlNanos, routeGeneration));
+                } else {
+                    rememberMissing(key, generation, value, body);
+                }
+                created.complete(new Fetched(body, errorReply && isServerError(value)));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * JSON bytes + strong ETag of a value (also used for documents the gateway holds itself)
+     */
+    public Body encode(Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            return new Body(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"", isErrorReply(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode response", e);
+        }
+    }
+
+    private <T> T decode(byte[] body, Class<T> responseType) {
+        try {
+            return objectMapper.readValue(body, responseType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode cached response", e);
+        }
+    }
+
+    /**
+     * PythonProxyService turns core errors into maps with success=false and a numeric status
+     */
+    private static boolean isErrorReply(Object value) {
+        return value instanceof Map<?, ?> map && Boolean.FALSE.equals(map.get("success"))
+                && map.get("status") instanceof Number;
+    }
+
+    private static boolean isServerError(Object value) {
+        return ((Number) ((Map<?, ?>) value).get("status")).intValue() >= 500;
+    }
+
+    /**
+     * @param generation write generation observed before the upstream call, so a write
+     *                   racing the lookup is not hidden behind an outdated 404
+     */
+    private void rememberMissing(String key, long generation, Object value, Body body) {
+        if (isErrorReply(value) && ((Number) ((Map<?, ?>) value).get("status")).intValue() == 404) {
+            notFound.put(key, new Missing(body != null ? body : encode(value), generation));
+            negativeStored.increment();
+        }
+    }
+
+    private Body knownMissing(String key, AtomicLong generation) {
+        Missing missing = notFound.getIfPresent(key);
+        if (missing == null || missing.generation != generation.get()) {
+            return null;
+        }
+        negativeHits.increment();
+        return missing.body;
+    }
+
+    private AtomicLong generation(String endpoint) {
+        return generations.computeIfAbsent(firstSegment(endpoint), segment -> new AtomicLong());
+    }
+
+    private AtomicLong routeGeneration(String route) {
+        return routeGenerations.computeIfAbsent(route, r -> new AtomicLong());
+    }
+
+    // === Invalidation ===
+
+    /**
+     * Drop every cached response of the route endpoint belongs to (all roles, all queries)
+     */
+    public void invalidate(String endpoint) {
+        if (!enabled) {
+            return;
+        }
+        String route = routeOf(endpoint);
+        if (route != null) {
+            invalidateRoute(route);
+        }
+        invalidateMissing(endpoint);
+    }
+
+    private void invalidateRoute(String route) {
+        routeGeneration(route).incrementAndGet();
+        stats.computeIfAbsent(route, r -> new RouteStats()).invalidations.increment();
+    }
+
+    /**
+     * Forget known-missing keys under the first path segment of a written endpoint
+     * (POST /games may create the /games/{id} that was missing); O(1), entries just stop matching
+     */
+    public void invalidateMissing(String endpoint) {
+        generation(endpoint).incrementAndGet();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        notFound.invalidateAll();
+    }
+
+    @EventListener
+    public void onTickStarted(TickStartedEvent event) {
+        if (enabled && event.isTransition()) {
+            tickRoutes.forEach(this::invalidate);
+            notFound.invalidateAll();
+        }
+    }
+
+    @EventListener
+    public void onChange(GatewayChangeEvent event) {
+        if (enabled && event.table() != null) {
+            invalidate("/" + event.table());
+            if (event.isTable("game_teams") || event.isTable("teams")) {
+                invalidate("/games");
+            }
+        }
+    }
+
+    @EventListener
+    public void onResync(ChangeFeedResyncEvent event) {
+        invalidateAll();
+    }
+
+    // === Helpers ===
+
+    private static String firstSegment(String endpoint) {
+        int end = 1;
+        while (end < endpoint.length() && "/?".indexOf(endpoint.charAt(end)) < 0) {
+            end++;
+        }
+        return endpoint.substring(0, end);
+    }
+
+    private String routeOf(String endpoint) {
+        int query = endpoint.indexOf('?');
+        String path = query >= 0 ? endpoint.substring(0, query) : endpoint;
+        for (String route : routes.keySet()) {
+            if (path.equals(route) || path.startsWith(route + "/")) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> routeStats = new TreeMap<>();
+        routes.forEach((route, ttl) -> {
+            Map<String, Object> view = stats.getOrDefault(route, new RouteStats()).toMap();
+            view.put("ttl_ms", ttl);
+            routeStats.put(route, view);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("entries", cache.estimatedSize());
+        result.put("bytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        result.put("max_bytes", maxBytes);
+        result.put("evictions", cache.stats().evictionCount());
+        result.put("stale_while_revalidate_ms", staleWhileRevalidateMs);
+        result.put("stale_if_error_ms", staleIfErrorMs);
+        result.put("negative", Map.of(
+                "entries", notFound.estimatedSize(),
+                "hits", negativeHits.sum(),
+                "stored", negativeStored.sum(),
+                "ttl_ms", negativeTtlMs));
+        result.put("routes", routeStats);
+        return result;
+    }
+
+    /**
+     * Per-route counters; hit rate counts fresh and stale-while-revalidate hits
+     */
+    private static class RouteStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder staleHits = new LongAdder();
+        private final LongAdder staleIfError = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder revalidations = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+
+        Map<String, Object> toMap() {
+            long total = requests.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", total);
+            map.put("hits", hits.sum());
+            map.put("stale_hits", staleHits.sum());
+            map.put("stale_if_error", staleIfError.sum());
+            map.put("misses", misses.sum());
+            map.put("coalesced", coalesced.sum());
+            map.put("revalidations", revalidations.sum());
+            map.put("invalidations", invalidations.sum());
+            map.put("hit_rate", total == 0 ? 0.0 : (double) (hits.sum() + staleHits.sum()) / total);
+            return map;
+        }
+    }
+}
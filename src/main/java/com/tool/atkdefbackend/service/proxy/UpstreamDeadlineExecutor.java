@@ -0,0 +1,82 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import com.tool.atkdefbackend.exception.DeadlineExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs upstream calls within the current request's {@link RequestDeadline}
+ *
+ * The call runs on the upstream executor while the request thread waits at most
+ * the remaining budget. When the budget is spent the call is cancelled
+ * (thread interrupt -> JDK HttpClient aborts the exchange) and a
+ * {@link DeadlineExceededException} (HTTP 504) is thrown, so the core stops
+ * doing work nobody will read. Calls without a deadline run inline, unchanged.
+ */
+@Slf4j
+@Component
+public class UpstreamDeadlineExecutor {
+
+    private final ExecutorService upstreamExecutor;
+
+    private final LongAdder bounded = new LongAdder();
+    private final LongAdder exceeded = new LongAdder();
+    private final LongAdder rejectedUpfront = new LongAdder();
+
+    public UpstreamDeadlineExecutor(@Qualifier("upstreamExecutor") ExecutorService upstreamExecutor) {
+        this.upstreamExecutor = upstreamExecutor;
+    }
+
+    /**
+     * Exceptions thrown by the call are rethrown unchanged
+     */
+    public <T> T execute(String endpoint, Supplier<T> call) {
+        OptionalLong remaining = RequestDeadline.remainingMillis();
+        if (remaining.isEmpty()) {
+            return call.get();
+        }
+        if (remaining.getAsLong() <= 0) {
+            rejectedUpfront.increment();
+            throw new DeadlineExceededException("Request deadline already exceeded before calling game server", false);
+        }
+
+        bounded.increment();
+        Supplier<T> bound = RequestDeadline.wrap(call);
+        Future<T> future = upstreamExecutor.submit(bound::get);
+        try {
+            return future.get(remaining.getAsLong(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            exceeded.increment();
+            log.warn("Deadline of {} ms exceeded for {}, cancelling upstream call", remaining.getAsLong(), endpoint);
+            throw new DeadlineExceededException("Game server did not answer within " + remaining.getAsLong() + " ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new ResourceAccessException("Upstream call failed: " + cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for game server");
+        } finally {
+            future.cancel(true); // no-op when already done
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bounded_calls", bounded.sum());
+        stats.put("deadline_exceeded", exceeded.sum());
+        stats.put("rejected_upfront", rejectedUpfront.sum());
+        return stats;
+    }
+}
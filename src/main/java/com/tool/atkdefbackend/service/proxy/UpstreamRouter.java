@@ -0,0 +1,205 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import com.tool.atkdefbackend.entity.GamePinEntity;
+import com.tool.atkdefbackend.repository.GamePinRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Upstream Router - Game-aware routing across Python Core instances
+ *
+ * Every game is owned by one core instance: the one that receives its /start call
+ * also runs its tick worker, so all traffic carrying that game id must go there.
+ *
+ * Routing rules:
+ * - Admin pin (static assignment) wins, otherwise consistent hashing of gameId
+ * - Pins are stored in gateway_game_pins and reloaded on startup
+ * - Game id is taken from /games/{id}, /scoreboard/{id}, ?game_id= or a "game_id" body field
+ * - Requests without a game id go to python.server-url (the core instances share one DB,
+ *   so lookups by entity id can be answered by any of them)
+ *
+ * With python.shard-urls empty the router degenerates to the single python.server-url.
+ */
+@Slf4j
+@Component
+public class UpstreamRouter {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final Pattern GAME_PATH = Pattern.compile("^/(?:games|scoreboard)/([^/?]+)");
+    private static final Pattern GAME_QUERY = Pattern.compile("[?&]game_id=([^&]+)");
+
+    @Value("${python.server-url:http://localhost:8000}")
+    private String defaultUpstream;
+
+    @Value("${python.shard-urls:}")
+    private List<String> shardUrls;
+
+    private List<String> upstreams;
+    private NavigableMap<Long, String> ring;
+    private final ConcurrentHashMap<String, String> pins = new ConcurrentHashMap<>();
+
+    private final GamePinRepository gamePinRepository;
+
+    public UpstreamRouter(GamePinRepository gamePinRepository) {
+        this.gamePinRepository = gamePinRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        List<String> configured = shardUrls.stream()
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        upstreams = configured.isEmpty() ? List.of(defaultUpstream) : configured;
+
+        TreeMap<Long, String> nodes = new TreeMap<>();
+        for (String upstream : upstreams) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                nodes.put(hash(upstream + "#" + i), upstream);
+            }
+        }
+        ring = nodes;
+
+        for (GamePinEntity pin : gamePinRepository.findAll()) {
+            if (upstreams.contains(pin.getUpstream())) {
+                pins.put(pin.getGameId(), pin.getUpstream());
+            } else {
+                log.warn("Ignoring pin of game {} to unconfigured upstream {}", pin.getGameId(), pin.getUpstream());
+            }
+        }
+        log.info("Upstream router initialized with {} Python Core instance(s): {}, {} pinned game(s)",
+                upstreams.size(), upstreams, pins.size());
+    }
+
+    /**
+     * Base URL for a proxied call: owner of the game found in endpoint/body, or the default
+     */
+    public String resolve(String endpoint, Object body) {
+        String gameId = extractGameId(endpoint, body);
+        return gameId != null ? baseUrlFor(gameId) : defaultUpstream;
+    }
+
+    /**
+     * Base URL of the core instance owning a game
+     */
+    public String baseUrlFor(String gameId) {
+        String pinned = pins.get(gameId);
+        if (pinned != null) {
+            return pinned;
+        }
+        return hashedUpstream(gameId);
+    }
+
+    private String hashedUpstream(String gameId) {
+        if (upstreams.size() == 1) {
+            return upstreams.get(0);
+        }
+        Map.Entry<Long, String> node = ring.ceilingEntry(hash(gameId));
+        return node != null ? node.getValue() : ring.firstEntry().getValue();
+    }
+
+    public String getDefaultUpstream() {
+        return defaultUpstream;
+    }
+
+    /**
+     * Statically assign a game to an upstream (overrides hashing) and persist the pin.
+     * A RUNNING game is refused unless forced: its tick worker stays on the old instance.
+     */
+    public String pin(String gameId, String upstream, boolean running, boolean force) {
+        if (!upstreams.contains(upstream)) {
+            throw new IllegalArgumentException("Unknown upstream: " + upstream + ". Configured: " + upstreams);
+        }
+        String previous = baseUrlFor(gameId);
+        if (running && !force && !previous.equals(upstream)) {
+            throw new IllegalStateException("Game " + gameId + " is RUNNING on " + previous
+                    + "; stop it first or pass force=true");
+        }
+        gamePinRepository.save(GamePinEntity.builder()
+                .gameId(gameId)
+                .upstream(upstream)
+                .pinnedAt(LocalDateTime.now())
+                .build());
+        pins.put(gameId, upstream);
+        log.info("Game {} pinned to {} (was {})", gameId, upstream, previous);
+        return previous;
+    }
+
+    /**
+     * Remove a static assignment; the game falls back to consistent hashing.
+     * Refused for a RUNNING game that would move as a result, unless forced.
+     */
+    public boolean unpin(String gameId, boolean running, boolean force) {
+        String pinned = pins.get(gameId);
+        if (pinned != null && running && !force && !pinned.equals(hashedUpstream(gameId))) {
+            throw new IllegalStateException("Game " + gameId + " is RUNNING on " + pinned
+                    + "; stop it first or pass force=true");
+        }
+        if (gamePinRepository.existsById(gameId)) {
+            gamePinRepository.deleteById(gameId);
+        }
+        boolean removed = pins.remove(gameId) != null;
+        if (removed) {
+            log.info("Game {} unpinned, now routed to {}", gameId, baseUrlFor(gameId));
+        }
+        return removed;
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("default_upstream", defaultUpstream);
+        result.put("upstreams", upstreams);
+        result.put("pins", new TreeMap<>(pins));
+        return result;
+    }
+
+    public Map<String, Object> describe(String gameId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("game_id", gameId);
+        result.put("upstream", baseUrlFor(gameId));
+        result.put("pinned", pins.containsKey(gameId));
+        return result;
+    }
+
+    /**
+     * Extract the game id a proxied call belongs to, or null if it carries none
+     */
+    public String extractGameId(String endpoint, Object body) {
+        Matcher path = GAME_PATH.matcher(endpoint);
+        if (path.find()) {
+            return path.group(1);
+        }
+        Matcher query = GAME_QUERY.matcher(endpoint);
+        if (query.find()) {
+            return query.group(1);
+        }
+        if (body instanceof Map<?, ?> map && map.get("game_id") != null) {
+            return map.get("game_id").toString();
+        }
+        return null;
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (digest[i] & 0xff);
+            }
+            return value;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.tool.atkdefbackend.service.scoreboard;
+
+import com.tool.atkdefbackend.exception.ResourceNotFoundException;
+import com.tool.atkdefbackend.service.tick.TickClock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Leaderboard - rank queries without serializing the whole scoreboard
+ *
+ * One {@link RankTree} per game, updated from {@link ScoreboardUpdatedEvent} by
+ * re-keying only the teams whose total changed. Rank of a team, top-K and the
+ * window around a team cost O(log n + k). Each standing carries the change since
+ * the previous tick (points and places), taken when the tick number advances.
+ * Games without a board are only fetched on demand while they are running; anything
+ * else is 404 without a call to the core.
+ */
+@Slf4j
+@Service
+public class LeaderboardService {
+
+    private final ScoreboardFeed scoreboardFeed;
+    private final TickClock tickClock;
+
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+
+    public LeaderboardService(ScoreboardFeed scoreboardFeed, TickClock tickClock) {
+        this.scoreboardFeed = scoreboardFeed;
+        this.tickClock = tickClock;
+    }
+
+    @EventListener
+    public void onScoreboardUpdated(ScoreboardUpdatedEvent event) {
+        boards.computeIfAbsent(event.gameId(), id -> new Board()).apply(event);
+    }
+
+    // === Queries ===
+
+    public CompletableFuture<Map<String, Object>> top(String gameId, int k) {
+        return board(gameId).thenApply(board -> board.read(() -> {
+            Map<String, Object> result = board.header(gameId);
+            result.put("standings", board.views(board.tree.range(0, Math.max(0, k))));
+            return result;
+        }));
+    }
+
+    public CompletableFuture<Map<String, Object>> team(String gameId, String teamId) {
+        return board(gameId).thenApply(board -> board.read(() -> {
+            Map<String, Object> result = board.header(gameId);
+            result.putAll(board.view(board.keyOf(gameId, teamId)));
+            return result;
+        }));
+    }
+
+    /**
+     * The team plus up to window teams above and below it
+     */
+    public CompletableFuture<Map<String, Object>> around(String gameId, String teamId, int window) {
+        return board(gameId).thenApply(board -> board.read(() -> {
+            int rank = board.tree.rank(board.keyOf(gameId, teamId));
+            int span = Math.max(0, window);
+            Map<String, Object> result = board.header(gameId);
+            result.put("team_id", teamId);
+            result.put("rank", rank + 1);
+            result.put("standings", board.views(board.tree.range(rank - span, rank + span + 1)));
+            return result;
+        }));
+    }
+
+    /**
+     * Board of a game; the first request for a running game not seen yet pulls its scoreboard once
+     */
+    private CompletableFuture<Board> board(String gameId) {
+        Board board = boards.get(gameId);
+        if (board != null) {
+            return CompletableFuture.completedFuture(board);
+        }
+        if (!tickClock.isRunning(gameId)) {
+            return CompletableFuture.failedFuture(new ResourceNotFoundException("Scoreboard", "game_id", gameId));
+        }
+        return scoreboardFeed.refresh(gameId).handle((event, error) -> {
+            Board loaded = boards.get(gameId);
+            if (loaded != null) {
+                return loaded;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause != null && !(cause instanceof IllegalStateException)) {
+                throw new CompletionException(cause); // core unreachable etc., not a missing scoreboard
+            }
+            throw new ResourceNotFoundException("Scoreboard", "game_id", gameId);
+        });
+    }
+
+    private record Standing(ScoreEntry entry, RankTree.Key key, Integer previousRank, Double previousTotal) {
+    }
+
+    /**
+     * Tree + per-team standings of one game
+     */
+    private static class Board {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final RankTree tree = new RankTree();
+        private final Map<String, Standing> standings = new HashMap<>();
+        private Integer tickNumber;
+
+        void apply(ScoreboardUpdatedEvent event) {
+            lock.writeLock().lock();
+            try {
+                // Baseline for deltas moves only when the tick advances (re-reads of a tick keep it)
+                boolean newTick = tickNumber == null || !tickNumber.equals(event.tickNumber());
+                Map<String, Integer> ranks = new HashMap<>();
+                if (newTick) {
+                    standings.forEach((teamId, standing) -> ranks.put(teamId, tree.rank(standing.key()) + 1));
+                }
+
+                Set<String> seen = new HashSet<>();
+                for (ScoreEntry entry : event.entries()) {
+                    seen.add(entry.teamId());
+                    RankTree.Key key = new RankTree.Key(entry.total(), entry.teamId());
+                    Standing old = standings.get(entry.teamId());
+                    if (old == null || !old.key().equals(key)) {
+                        if (old != null) {
+                            tree.delete(old.key());
+                        }
+                        tree.insert(key);
+                    }
+                    Integer previousRank = newTick ? ranks.get(entry.teamId()) : old != null ? old.previousRank() : null;
+                    Double previousTotal = newTick ? (old != null ? old.entry().total() : null)
+                            : old != null ? old.previousTotal() : null;
+                    standings.put(entry.teamId(), new Standing(entry, key, previousRank, previousTotal));
+                }
+
+                standings.entrySet().removeIf(standing -> {
+                    if (seen.contains(standing.getKey())) {
+                        return false;
+                    }
+                    tree.delete(standing.getValue().key());
+                    return true;
+                });
+                tickNumber = event.tickNumber();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        <T> T read(Supplier<T> reader) {
+            lock.readLock().lock();
+            try {
+                return reader.get();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        RankTree.Key keyOf(String gameId, String teamId) {
+            Standing standing = standings.get(teamId);
+            if (standing == null) {
+                throw new ResourceNotFoundException("Team " + teamId + " is not on the scoreboard of game " + gameId);
+            }
+            return standing.key();
+        }
+
+        Map<String, Object> header(String gameId) {
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("game_id", gameId);
+            header.put("tick_number", tickNumber);
+            header.put("teams", tree.size());
+            return header;
+        }
+
+        List<Map<String, Object>> views(List<RankTree.Key> keys) {
+            List<Map<String, Object>> views = new ArrayList<>(keys.size());
+            for (RankTree.Key key : keys) {
+                views.add(view(key));
+            }
+            return views;
+        }
+
+        Map<String, Object> view(RankTree.Key key) {
+            Standing standing = standings.get(key.teamId());
+            ScoreEntry entry = standing.entry();
+            int rank = tree.rank(key) + 1;
+
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("rank", rank);
+            view.put("team_id", entry.teamId());
+            view.put("team_name", entry.teamName());
+            view.put("total_points", entry.total());
+            view.put("attack_points", entry.attack());
+            view.put("defense_points", entry.defense());
+            view.put("sla_points", entry.sla());
+            view.put("delta_points", standing.previousTotal() != null ? entry.total() - standing.previousTotal() : null);
+            view.put("rank_change", standing.previousRank() != null ? standing.previousRank() - rank : null);
+            return view;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.tool.atkdefbackend.service.scoreboard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Order-statistic treap of teams ordered by (total desc, team id asc)
+ *
+ * Ties are broken by team id, numerically when both ids are numbers (team 9 before
+ * team 10), otherwise as strings; numeric ids sort before the others.
+ * Every node knows its subtree size, so rank-of-key, select-by-rank and range
+ * reads are O(log n) without materializing the whole board. Not thread-safe;
+ * {@link LeaderboardService} guards each tree with a read/write lock.
+ */
+final class RankTree {
+
+    record Key(double total, String teamId) {
+    }
+
+    static final Comparator<Key> ORDER = Comparator.<Key>comparingDouble(Key::total).reversed()
+            .thenComparing(Key::teamId, RankTree::compareTeamIds);
+
+    private static final class Node {
+        private final Key key;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        Node(Key key) {
+            this.key = key;
+        }
+    }
+
+    private Node root;
+
+    static int compareTeamIds(String a, String b) {
+        boolean numericA = isNumber(a);
+        boolean numericB = isNumber(b);
+        if (numericA && numericB) {
+            // Same digit count compares like the numbers; fewer digits = smaller (no overflow)
+            String strippedA = stripZeros(a);
+            String strippedB = stripZeros(b);
+            int byLength = Integer.compare(strippedA.length(), strippedB.length());
+            int byValue = byLength != 0 ? byLength : strippedA.compareTo(strippedB);
+            return byValue != 0 ? byValue : a.compareTo(b);
+        }
+        if (numericA != numericB) {
+            return numericA ? -1 : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    private static boolean isNumber(String id) {
+        if (id.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) < '0' || id.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String stripZeros(String digits) {
+        int start = 0;
+        while (start < digits.length() - 1 && digits.charAt(start) == '0') {
+            start++;
+        }
+        return digits.substring(start);
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    void insert(Key key) {
+        root = insert(root, new Node(key));
+    }
+
+    void delete(Key key) {
+        root = delete(root, key);
+    }
+
+    /**
+     * 0-based rank of a key present in the tree (number of keys ordered before it)
+     */
+    int rank(Key key) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = ORDER.compare(key, node.key);
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                rank += cmp == 0 ? size(node.left) : size(node.left) + 1;
+                if (cmp == 0) {
+                    return rank;
+                }
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Keys with 0-based rank in [from, to)
+     */
+    List<Key> range(int from, int to) {
+        List<Key> keys = new ArrayList<>(Math.max(0, to - from));
+        collect(root, 0, Math.max(0, from), Math.min(to, size()), keys);
+        return keys;
+    }
+
+    private static void collect(Node node, int offset, int from, int to, List<Key> out) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int nodeRank = offset + size(node.left);
+        if (from < nodeRank) {
+            collect(node.left, offset, from, to, out);
+        }
+        if (from <= nodeRank && nodeRank < to) {
+            out.add(node.key);
+        }
+        if (nodeRank + 1 < to) {
+            collect(node.right, nodeRank + 1, from, to, out);
+        }
+    }
+
+    // === Treap mechanics ===
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    private static Node insert(Node node, Node fresh) {
+        if (node == null) {
+            return fresh;
+        }
+        if (ORDER.compare(fresh.key, node.key) < 0) {
+            node.left = insert(node.left, fresh);
+            if (node.left.priority > node.priority) {
+                return rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, fresh);
+            if (node.right.priority > node.priority) {
+                return rotateLeft(node);
+            }
+        }
+        return update(node);
+    }
+
+    private static Node delete(Node node, Key key) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = ORDER.compare(key, node.key);
+        if (cmp < 0) {
+            node.left = delete(node.left, key);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, key);
+        } else {
+            return merge(node.left, node.right);
+        }
+        return update(node);
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = update(node);
+        return update(pivot);
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = update(node);
+        return update(pivot);
+    }
+}
@@ -0,0 +1,40 @@
+package com.tool.atkdefbackend.service.scoreboard;
+
+import java.util.Map;
+
+/**
+ * One team's row of a Python Core scoreboard
+ */
+public record ScoreEntry(String teamId, String teamName, double attack, double defense, double sla, double total) {
+
+    /**
+     * Row from /scoreboard/{gameId} "entries", or null if it has no team id
+     */
+    static ScoreEntry from(Map<String, Object> row) {
+        Object teamId = row.get("team_id");
+        if (teamId == null) {
+            return null;
+        }
+        Object name = row.get("team_name") != null ? row.get("team_name") : row.get("name");
+        double attack = number(row.get("attack_points"));
+        double defense = number(row.get("defense_points"));
+        double sla = number(row.get("sla_points"));
+        Object total = row.get("total_points");
+        return new ScoreEntry(teamId.toString(), name != null ? name.toString() : null, attack, defense, sla,
+                total != null ? number(total) : attack + defense + sla);
+    }
+
+    private static double number(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value != null) {
+            try {
+                return Double.parseDouble(value.toString());
+            } catch (NumberFormatException ignored) {
+                // not a number
+            }
+        }
+        return 0;
+    }
+}
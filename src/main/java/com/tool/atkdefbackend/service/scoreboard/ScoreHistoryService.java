@@ -0,0 +1,233 @@
+package com.tool.atkdefbackend.service.scoreboard;
+
+import com.tool.atkdefbackend.exception.ResourceNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Score history - per-tick scoreboards kept in memory for charts and time travel
+ *
+ * Columnar layout per game: for every team four int arrays (attack, defense, SLA,
+ * total) indexed by tick - firstTick. Readers work on an immutable, versioned
+ * {@link Snapshot}: the writer only fills cells past the published tick count and
+ * publishes a new snapshot afterwards, so readers never lock. Arrays are copied only
+ * when they grow, a team joins, or a tick is re-read.
+ *
+ * Memory: 100 ticks x 100 teams x 4 series x 4 bytes = 160 KB per game
+ * (+ ~16 B header per array, 400 arrays = 6.4 KB; up to 2x while arrays have spare
+ * capacity). score-history.max-ticks bounds a game; older ticks are dropped.
+ */
+@Slf4j
+@Service
+public class ScoreHistoryService {
+
+    /**
+     * Cell of a tick the gateway did not observe (or a team that was not on the board)
+     */
+    static final int MISSING = Integer.MIN_VALUE;
+
+    private static final int ATTACK = 0;
+    private static final int DEFENSE = 1;
+    private static final int SLA = 2;
+    private static final int TOTAL = 3;
+    private static final String[] SERIES = {"attack_points", "defense_points", "sla_points", "total_points"};
+
+    @Value("${score-history.max-ticks:2000}")
+    private int maxTicks;
+
+    private final Map<String, Snapshot> games = new ConcurrentHashMap<>();
+
+    /**
+     * @param columns  [team][series][tick - firstTick]; cells at index >= tickCount are not published
+     */
+    private record Snapshot(long version, int firstTick, int tickCount, List<String> teamIds,
+                            Map<String, Integer> teamIndex, int[][][] columns) {
+
+        int lastTick() {
+            return firstTick + tickCount - 1;
+        }
+
+        boolean hasTick(int tick) {
+            return tickCount > 0 && tick >= firstTick && tick <= lastTick();
+        }
+    }
+
+    @EventListener
+    public void onScoreboardUpdated(ScoreboardUpdatedEvent event) {
+        if (event.tickNumber() == null || event.entries().isEmpty()) {
+            return;
+        }
+        // One writer per game (feed events); compute keeps concurrent games independent
+        games.compute(event.gameId(), (gameId, current) -> append(current, event.tickNumber(), event.entries()));
+    }
+
+    private Snapshot append(Snapshot current, int tick, List<ScoreEntry> entries) {
+        if (current != null && tick < current.firstTick()) {
+            return current; // older than what we keep
+        }
+
+        List<String> teamIds = current != null ? current.teamIds() : List.of();
+        Map<String, Integer> teamIndex = current != null ? current.teamIndex() : Map.of();
+        int firstTick = current != null && current.tickCount() > 0 ? current.firstTick() : tick;
+        int tickCount = current != null ? current.tickCount() : 0;
+        int[][][] columns = current != null ? current.columns() : new int[0][][];
+
+        boolean copy = current == null || tick <= current.lastTick(); // re-read: never touch published cells
+
+        // New teams get a column filled with MISSING
+        Map<String, Integer> known = teamIndex;
+        List<String> newTeams = entries.stream().map(ScoreEntry::teamId).filter(id -> !known.containsKey(id)).distinct().toList();
+        if (!newTeams.isEmpty()) {
+            List<String> ids = new ArrayList<>(teamIds);
+            ids.addAll(newTeams);
+            Map<String, Integer> index = new HashMap<>(teamIndex);
+            for (int i = teamIds.size(); i < ids.size(); i++) {
+                index.put(ids.get(i), i);
+            }
+            teamIds = List.copyOf(ids);
+            teamIndex = Map.copyOf(index);
+            copy = true;
+        }
+
+        // Drop the oldest ticks beyond max-ticks
+        int dropped = Math.max(0, tick - firstTick + 1 - maxTicks);
+        int needed = tick - firstTick - dropped + 1;
+        int capacity = columns.length > 0 ? columns[0][0].length : 0;
+        if (dropped > 0 || needed > capacity) {
+            copy = true;
+        }
+
+        if (copy) {
+            int newCapacity = needed <= capacity ? capacity
+                    : Math.max(needed, Math.min(maxTicks, Math.max(16, capacity * 2)));
+            // Jumped past everything kept (e.g. the gateway missed more than max-ticks): start over
+            int keep = Math.max(0, Math.min(tickCount - dropped, newCapacity));
+            int[][][] grown = new int[teamIds.size()][4][newCapacity];
+            for (int team = 0; team < teamIds.size(); team++) {
+                for (int series = 0; series < 4; series++) {
+                    int[] target = grown[team][series];
+                    Arrays.fill(target, MISSING);
+                    if (team < columns.length && keep > 0) {
+                        System.arraycopy(columns[team][series], dropped, target, 0, keep);
+                    }
+                }
+            }
+            columns = grown;
+            firstTick += dropped;
+            tickCount = Math.max(0, tickCount - dropped);
+        }
+
+        int offset = tick - firstTick;
+        if (offset >= tickCount) {
+            // Ticks skipped while the gateway was not watching stay MISSING
+            for (int[][] team : columns) {
+                for (int[] series : team) {
+                    Arrays.fill(series, tickCount, offset + 1, MISSING);
+                }
+            }
+        }
+        for (ScoreEntry entry : entries) {
+            int[][] team = columns[teamIndex.get(entry.teamId())];
+            team[ATTACK][offset] = (int) Math.round(entry.attack());
+            team[DEFENSE][offset] = (int) Math.round(entry.defense());
+            team[SLA][offset] = (int) Math.round(entry.sla());
+            team[TOTAL][offset] = (int) Math.round(entry.total());
+        }
+
+        long version = current != null ? current.version() + 1 : 1;
+        return new Snapshot(version, firstTick, Math.max(tickCount, offset + 1), teamIds, teamIndex, columns);
+    }
+
+    // === Queries ===
+
+    public Map<String, Object> describe(String gameId) {
+        Snapshot snapshot = snapshot(gameId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("game_id", gameId);
+        result.put("version", snapshot.version());
+        result.put("first_tick", snapshot.firstTick());
+        result.put("last_tick", snapshot.lastTick());
+        result.put("teams", snapshot.teamIds());
+        return result;
+    }
+
+    /**
+     * Scoreboard as it was at a tick, ranked by total
+     */
+    public Map<String, Object> atTick(String gameId, int tick) {
+        Snapshot snapshot = snapshot(gameId);
+        if (!snapshot.hasTick(tick)) {
+            throw new ResourceNotFoundException("Tick " + tick + " is not in the score history of game " + gameId);
+        }
+        int offset = tick - snapshot.firstTick();
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (int team = 0; team < snapshot.teamIds().size(); team++) {
+            int[][] columns = snapshot.columns()[team];
+            if (columns[TOTAL][offset] == MISSING) {
+                continue;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("team_id", snapshot.teamIds().get(team));
+            for (int series = 0; series < SERIES.length; series++) {
+                entry.put(SERIES[series], columns[series][offset]);
+            }
+            entries.add(entry);
+        }
+        entries.sort(Comparator.comparing((Map<String, Object> entry) -> (Integer) entry.get("total_points")).reversed()
+                .thenComparing(entry -> (String) entry.get("team_id"), RankTree::compareTeamIds));
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).put("rank", i + 1);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("game_id", gameId);
+        result.put("tick_number", tick);
+        result.put("version", snapshot.version());
+        result.put("entries", entries);
+        return result;
+    }
+
+    /**
+     * Series of one team over ticks [from, to] (clamped to the kept range), null = not observed
+     */
+    public Map<String, Object> teamSeries(String gameId, String teamId, Integer from, Integer to) {
+        Snapshot snapshot = snapshot(gameId);
+        Integer team = snapshot.teamIndex().get(teamId);
+        if (team == null) {
+            throw new ResourceNotFoundException("Team " + teamId + " has no score history in game " + gameId);
+        }
+        int start = Math.max(from != null ? from : snapshot.firstTick(), snapshot.firstTick());
+        int end = Math.min(to != null ? to : snapshot.lastTick(), snapshot.lastTick());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("game_id", gameId);
+        result.put("team_id", teamId);
+        result.put("from_tick", start);
+        result.put("to_tick", end);
+        result.put("version", snapshot.version());
+        for (int series = 0; series < SERIES.length; series++) {
+            List<Integer> values = new ArrayList<>(Math.max(0, end - start + 1));
+            int[] column = snapshot.columns()[team][series];
+            for (int tick = start; tick <= end; tick++) {
+                int value = column[tick - snapshot.firstTick()];
+                values.add(value == MISSING ? null : value);
+            }
+            result.put(SERIES[series], values);
+        }
+        return result;
+    }
+
+    private Snapshot snapshot(String gameId) {
+        Snapshot snapshot = games.get(gameId);
+        if (snapshot == null || snapshot.tickCount() == 0) {
+            throw new ResourceNotFoundException("Score history", "game_id", gameId);
+        }
+        return snapshot;
+    }
+}
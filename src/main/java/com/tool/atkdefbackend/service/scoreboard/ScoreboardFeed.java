@@ -0,0 +1,109 @@
+package com.tool.atkdefbackend.service.scoreboard;
+
+import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.proxy.CorePayloads;
+import com.tool.atkdefbackend.service.tick.TickClock;
+import com.tool.atkdefbackend.service.tick.TickStartedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoreboard feed - fetches each game's scoreboard once per tick
+ *
+ * The core scores a tick when it ends, so shortly after {@link TickStartedEvent}
+ * (scoreboard-feed.delay-ms) the scoreboard is read once and published as a
+ * {@link ScoreboardUpdatedEvent}. Leaderboard and score history subscribe to the
+ * event instead of polling the core themselves.
+ */
+@Slf4j
+@Service
+public class ScoreboardFeed {
+
+    private final PythonProxyService pythonProxyService;
+    private final TickClock tickClock;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService upstreamExecutor;
+
+    @Value("${scoreboard-feed.delay-ms:1500}")
+    private long delayMs;
+
+    private final Map<String, CompletableFuture<ScoreboardUpdatedEvent>> fetching = new ConcurrentHashMap<>();
+
+    public ScoreboardFeed(PythonProxyService pythonProxyService, TickClock tickClock,
+                          ApplicationEventPublisher eventPublisher,
+                          @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor) {
+        this.pythonProxyService = pythonProxyService;
+        this.tickClock = tickClock;
+        this.eventPublisher = eventPublisher;
+        this.upstreamExecutor = upstreamExecutor;
+    }
+
+    @EventListener
+    public void onTickStarted(TickStartedEvent event) {
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, upstreamExecutor)
+                .execute(() -> refresh(event.gameId()));
+    }
+
+    /**
+     * Fetch and publish now; concurrent refreshes of one game share the same fetch
+     */
+    public CompletableFuture<ScoreboardUpdatedEvent> refresh(String gameId) {
+        CompletableFuture<ScoreboardUpdatedEvent> future = new CompletableFuture<>();
+        CompletableFuture<ScoreboardUpdatedEvent> inFlight = fetching.putIfAbsent(gameId, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        upstreamExecutor.execute(() -> {
+            try {
+                ScoreboardUpdatedEvent event = fetch(gameId);
+                eventPublisher.publishEvent(event);
+                future.complete(event);
+            } catch (Exception e) {
+                log.warn("Scoreboard feed failed for game {}: {}", gameId, e.getMessage());
+                future.completeExceptionally(e);
+            } finally {
+                fetching.remove(gameId, future);
+            }
+        });
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ScoreboardUpdatedEvent fetch(String gameId) {
+        Map<String, Object> scoreboard = pythonProxyService.proxyGetUncached("/scoreboard/" + gameId, Map.class);
+        if (scoreboard == null || Boolean.FALSE.equals(scoreboard.get("success"))) {
+            throw new IllegalStateException("No scoreboard for game " + gameId);
+        }
+
+        Object rows = scoreboard.get("entries") != null ? scoreboard.get("entries") : scoreboard.get("scoreboard");
+        List<ScoreEntry> entries = new ArrayList<>();
+        if (rows instanceof List<?> list) {
+            for (Object row : list) {
+                if (row instanceof Map<?, ?> map) {
+                    ScoreEntry entry = ScoreEntry.from((Map<String, Object>) map);
+                    if (entry != null) {
+                        entries.add(entry);
+                    }
+                }
+            }
+        }
+
+        Integer tick = CorePayloads.asInteger(scoreboard.get("current_tick"));
+        if (tick == null) {
+            tick = tickClock.currentTickNumber(gameId);
+        }
+        log.debug("Scoreboard of game {} at tick {}: {} teams", gameId, tick, entries.size());
+        return new ScoreboardUpdatedEvent(gameId, tick, List.copyOf(entries), Instant.now());
+    }
+}
@@ -0,0 +1,12 @@
+package com.tool.atkdefbackend.service.scoreboard;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Published by {@link ScoreboardFeed} after a game's scoreboard was fetched for a tick
+ *
+ * @param tickNumber tick the scores were read at (null if neither core nor tick clock knows)
+ */
+public record ScoreboardUpdatedEvent(String gameId, Integer tickNumber, List<ScoreEntry> entries, Instant fetchedAt) {
+}
@@ -0,0 +1,431 @@
+package com.tool.atkdefbackend.service.stats;
+
+import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.flag.FlagValueIndex;
+import com.tool.atkdefbackend.service.flag.FlagValueIndex.FlagInfo;
+import com.tool.atkdefbackend.service.proxy.CorePayloads;
+import com.tool.atkdefbackend.service.tick.TickClock;
+import com.tool.atkdefbackend.service.tick.TickStartedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Flag capture statistics - attacker x victim matrix maintained at the gateway
+ *
+ * Every ACCEPTED submission passing through SubmissionProxyController is counted in
+ * striped LongAdder cells per (attacker, victim, service, tick) plus the rollups the
+ * endpoints read (attacker x victim, per team captured/lost, per service), so serving
+ * stats never asks the core to aggregate. Victim and service come from the submission
+ * answer when the core includes them, else from {@link FlagValueIndex}.
+ *
+ * Each (attacker, flag) pair is counted once, and only once its victim is known: a
+ * capture whose victim cannot be resolved yet stays pending (reported as unresolved).
+ * A resubmission cannot resolve it (the core answers DUPLICATE), so pending captures are
+ * looked up in {@link FlagValueIndex} again at each of the next
+ * capture-stats.pending-retry-ticks ticks, once the index holds the flag's tick, and are
+ * counted in full with their original capture time when found. After that they stay
+ * unresolved for good (unresolved_given_up).
+ * The first observed tick of a game after a restart triggers one reconcile that replays
+ * the core's accepted submissions (bounded by capture-stats.reconcile-max-pages); the
+ * dedup set makes it safe to merge with what was counted live meanwhile.
+ */
+@Slf4j
+@Service
+public class CaptureStatsService {
+
+    private static final String UNKNOWN = "unknown";
+
+    private final PythonProxyService pythonProxyService;
+    private final FlagValueIndex flagValueIndex;
+    private final TickClock tickClock;
+    private final ExecutorService upstreamExecutor;
+
+    @Value("${capture-stats.reconcile-page-size:500}")
+    private int pageSize;
+
+    @Value("${capture-stats.reconcile-max-pages:40}")
+    private int maxPages;
+
+    @Value("${capture-stats.pending-retry-ticks:5}")
+    private int pendingRetryTicks;
+
+    private final Map<String, GameCaptures> games = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Integer>> reconciling = new ConcurrentHashMap<>();
+    private final Set<String> reconciled = ConcurrentHashMap.newKeySet();
+
+    public CaptureStatsService(PythonProxyService pythonProxyService, FlagValueIndex flagValueIndex,
+                               TickClock tickClock, @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor) {
+        this.pythonProxyService = pythonProxyService;
+        this.flagValueIndex = flagValueIndex;
+        this.tickClock = tickClock;
+        this.upstreamExecutor = upstreamExecutor;
+    }
+
+    public record FirstBlood(String service, String attackerTeamId, String victimTeamId, Integer tickNumber,
+                             Instant capturedAt) {
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("service", service);
+            map.put("attacker_team_id", attackerTeamId);
+            map.put("victim_team_id", victimTeamId);
+            map.put("tick_number", tickNumber);
+            map.put("captured_at", capturedAt.toString());
+            return map;
+        }
+    }
+
+    private record Cell(String attacker, String victim, String service, Integer tick) {
+    }
+
+    private record Pair(String attacker, String victim) {
+    }
+
+    /**
+     * Capture waiting for its victim; ticksLeft = lookups still to try
+     */
+    private record PendingCapture(String attacker, String flagValue, Object flagId, Instant at, int ticksLeft) {
+    }
+
+    // === Recording ===
+
+    /**
+     * Count a submission answered by the core; anything but ACCEPTED is ignored
+     */
+    public void recordSubmission(String attackerTeamId, Map<String, Object> request, Object response) {
+        if (attackerTeamId == null || !(response instanceof Map<?, ?> result)
+                || !"ACCEPTED".equalsIgnoreCase(String.valueOf(result.get("status")))) {
+            return;
+        }
+        Object gameId = request.get("game_id");
+        Object flag = request.get("flag");
+        if (gameId == null || flag == null) {
+            return;
+        }
+        String game = gameId.toString();
+        FlagInfo info = resolve(game, flag.toString(), result, null);
+        Object flagId = result.get("flag_id") != null ? result.get("flag_id") : info != null ? info.flagId() : null;
+        record(game, attackerTeamId, flag.toString(), flagId, info, Instant.now());
+    }
+
+    private void record(String gameId, String attacker, String flagValue, Object flagId, FlagInfo flag, Instant at) {
+        GameCaptures captures = games.computeIfAbsent(gameId, id -> new GameCaptures());
+        if (flag == null || flag.teamId() == null) {
+            captures.markPending(new PendingCapture(attacker, flagValue, flagId, at, pendingRetryTicks));
+            return;
+        }
+        if (!captures.markCounted(attacker, flagValue, flagId)) {
+            return; // already counted (reconcile overlap)
+        }
+        captures.total.increment();
+        captures.capturedBy.computeIfAbsent(attacker, k -> new LongAdder()).increment();
+
+        String service = flag.service() != null ? flag.service() : UNKNOWN;
+        Integer tick = flag.tickNumber() != null ? flag.tickNumber() : tickClock.currentTickNumber(gameId);
+
+        captures.cells.computeIfAbsent(new Cell(attacker, flag.teamId(), service, tick), k -> new LongAdder()).increment();
+        captures.pairs.computeIfAbsent(new Pair(attacker, flag.teamId()), k -> new LongAdder()).increment();
+        captures.lostBy.computeIfAbsent(flag.teamId(), k -> new LongAdder()).increment();
+        captures.byService.computeIfAbsent(service, k -> new LongAdder()).increment();
+
+        if (at != null) {
+            FirstBlood candidate = new FirstBlood(service, attacker, flag.teamId(), tick, at);
+            captures.firstBlood.merge(service, candidate, CaptureStatsService::earlier);
+        }
+    }
+
+    private static FirstBlood earlier(FirstBlood current, FirstBlood candidate) {
+        return candidate.capturedAt().isBefore(current.capturedAt()) ? candidate : current;
+    }
+
+    /**
+     * Victim/service from the core's answer if present, else from the flag value index
+     */
+    private FlagInfo resolve(String gameId, String flagValue, Map<?, ?> source, Map<String, FlagInfo> fallback) {
+        Object victim = CorePayloads.firstNonNull(source.get("victim_team_id"), source.get("flag_team_id"), source.get("target_team_id"));
+        if (victim != null) {
+            Object service = CorePayloads.firstNonNull(source.get("service_name"), source.get("service_id"));
+            Object tick = source.get("tick_number");
+            return new FlagInfo(null, gameId, victim.toString(), service != null ? service.toString() : null,
+                    CorePayloads.asInteger(tick));
+        }
+        if (fallback != null) {
+            Object flagId = source.get("flag_id");
+            FlagInfo byId = flagId != null ? fallback.get(flagId.toString()) : null;
+            if (byId != null) {
+                return byId;
+            }
+            if (flagValue != null && fallback.containsKey(flagValue)) {
+                return fallback.get(flagValue);
+            }
+        }
+        return flagValueIndex.find(gameId, flagValue).orElse(null);
+    }
+
+    // === Reads (all from the rollups) ===
+
+    /**
+     * attacker -> victim -> flags captured, plus per-team and per-service totals
+     */
+    public Map<String, Object> getMatrix(String gameId) {
+        GameCaptures captures = games.get(gameId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("game_id", gameId);
+        if (captures == null) {
+            result.put("total_captures", 0);
+            result.put("matrix", Map.of());
+            return result;
+        }
+
+        Map<String, Map<String, Long>> matrix = new TreeMap<>();
+        captures.pairs.forEach((pair, count) ->
+                matrix.computeIfAbsent(pair.attacker(), k -> new TreeMap<>()).put(pair.victim(), count.sum()));
+
+        result.put("total_captures", captures.total.sum());
+        result.put("unresolved_captures", captures.pending.size());
+        result.put("unresolved_given_up", captures.givenUp());
+        result.put("resolved_late", captures.resolvedLate.sum());
+        result.put("matrix", matrix);
+        result.put("captured_by_team", sums(captures.capturedBy));
+        result.put("lost_by_team", sums(captures.lostBy));
+        result.put("by_service", sums(captures.byService));
+        result.put("first_blood", getFirstBlood(gameId));
+        return result;
+    }
+
+    public Map<String, Object> getTeamTotals(String gameId, String teamId) {
+        GameCaptures captures = games.get(gameId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("game_id", gameId);
+        result.put("team_id", teamId);
+        result.put("flags_captured", captures != null ? sum(captures.capturedBy.get(teamId)) : 0L);
+        result.put("flags_lost", captures != null ? sum(captures.lostBy.get(teamId)) : 0L);
+        return result;
+    }
+
+    /**
+     * First capture per service
+     */
+    public List<Map<String, Object>> getFirstBlood(String gameId) {
+        GameCaptures captures = games.get(gameId);
+        if (captures == null) {
+            return List.of();
+        }
+        return new TreeMap<>(captures.firstBlood).values().stream().map(FirstBlood::toMap).toList();
+    }
+
+    /**
+     * Captures of one tick: attacker, victim, service, count
+     */
+    public List<Map<String, Object>> getTickCells(String gameId, int tickNumber) {
+        GameCaptures captures = games.get(gameId);
+        if (captures == null) {
+            return List.of();
+        }
+        List<Map<String, Object>> cells = new ArrayList<>();
+        captures.cells.forEach((cell, count) -> {
+            if (cell.tick() != null && cell.tick() == tickNumber) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("attacker_team_id", cell.attacker());
+                entry.put("victim_team_id", cell.victim());
+                entry.put("service", cell.service());
+                entry.put("captures", count.sum());
+                cells.add(entry);
+            }
+        });
+        return cells;
+    }
+
+    // === Reconcile ===
+
+    @EventListener
+    public void onTickStarted(TickStartedEvent event) {
+        // First time this gateway sees the game (e.g. after a restart); later re-observations
+        // (clock dropped and re-tracked the game) are already covered by live counting
+        if (!event.isTransition() && !reconciled.contains(event.gameId())) {
+            reconcile(event.gameId());
+        }
+        GameCaptures captures = games.get(event.gameId());
+        if (event.isTransition() && captures != null) {
+            retryPending(event.gameId(), captures);
+        }
+    }
+
+    /**
+     * Look up pending captures in the flag index again; the index loads the new tick in the
+     * background, so the lookups that can succeed now are for flags of earlier ticks
+     */
+    private void retryPending(String gameId, GameCaptures captures) {
+        for (PendingCapture capture : captures.takeRetries()) {
+            FlagInfo info = capture.flagValue() != null ? flagValueIndex.find(gameId, capture.flagValue()).orElse(null) : null;
+            if (info != null && info.teamId() != null) {
+                record(gameId, capture.attacker(), capture.flagValue(),
+                        capture.flagId() != null ? capture.flagId() : info.flagId(), info, capture.at());
+                captures.resolvedLate.increment();
+            }
+        }
+    }
+
+    /**
+     * Replay the core's accepted submissions of a game into the counters (asynchronous).
+     * The flag and submission tables belong to the core, so they are read through its API.
+     *
+     * @return number of captures added that were not counted yet
+     */
+    public CompletableFuture<Integer> reconcile(String gameId) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        CompletableFuture<Integer> inFlight = reconciling.putIfAbsent(gameId, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        upstreamExecutor.execute(() -> {
+            try {
+                int added = replay(gameId);
+                reconciled.add(gameId);
+                log.info("Capture stats of game {} reconciled, {} captures added", gameId, added);
+                future.complete(added);
+            } catch (Exception e) {
+                log.warn("Capture stats reconcile failed for game {}: {}", gameId, e.getMessage());
+                future.completeExceptionally(e);
+            } finally {
+                reconciling.remove(gameId, future);
+            }
+        });
+        return future;
+    }
+
+    private int replay(String gameId) {
+        // Stolen flags by id and by value, to resolve victims of old submissions
+        Map<String, FlagInfo> stolen = new HashMap<>();
+        forEachPage("/flags?game_id=" + gameId + "&is_stolen=true", "flags", flag -> {
+            FlagInfo info = FlagValueIndex.toInfo(gameId, flag, null);
+            if (info.flagId() != null) {
+                stolen.put(info.flagId(), info);
+            }
+            String value = FlagValueIndex.valueOf(flag);
+            if (value != null) {
+                stolen.put(value, info);
+            }
+        });
+
+        GameCaptures captures = games.computeIfAbsent(gameId, id -> new GameCaptures());
+        long before = captures.total.sum();
+        forEachPage("/submissions?game_id=" + gameId + "&status=ACCEPTED", "submissions", submission -> {
+            Object attacker = submission.get("team_id");
+            String flagValue = FlagValueIndex.valueOf(submission);
+            Object flagId = submission.get("flag_id");
+            if (attacker == null || (flagValue == null && flagId == null)) {
+                return;
+            }
+            FlagInfo info = resolve(gameId, flagValue, submission, stolen);
+            Instant at = CorePayloads.asInstant(CorePayloads.firstNonNull(submission.get("submitted_at"), submission.get("created_at")));
+            record(gameId, attacker.toString(), flagValue, flagId, info, at);
+        });
+        return (int) (captures.total.sum() - before);
+    }
+
+    private void forEachPage(String endpoint, String key, Consumer<Map<String, Object>> consumer) {
+        for (int page = 0; page < maxPages; page++) {
+            Object response = pythonProxyService.proxyGet(
+                    String.format("%s&skip=%d&limit=%d", endpoint, page * pageSize, pageSize), Object.class);
+            List<Map<String, Object>> items = CorePayloads.asList(response, key);
+            items.forEach(consumer);
+            if (items.size() < pageSize) {
+                return;
+            }
+        }
+        log.warn("Stopped reading {} after {} pages", endpoint, maxPages);
+    }
+
+    // === Helpers ===
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((key, count) -> result.put(key, count.sum()));
+        return result;
+    }
+
+    private static long sum(LongAdder counter) {
+        return counter != null ? counter.sum() : 0L;
+    }
+
+    /**
+     * Counters of one game; maps are only ever added to, so readers need no lock
+     */
+    private static class GameCaptures {
+        private final Map<Cell, LongAdder> cells = new ConcurrentHashMap<>();
+        private final Map<Pair, LongAdder> pairs = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> capturedBy = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> lostBy = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> byService = new ConcurrentHashMap<>();
+        private final Map<String, FirstBlood> firstBlood = new ConcurrentHashMap<>();
+        private final Set<String> counted = ConcurrentHashMap.newKeySet();
+        private final Map<String, PendingCapture> pending = new ConcurrentHashMap<>();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder resolvedLate = new LongAdder();
+
+        /**
+         * A capture is known by flag value and/or flag id depending on the source;
+         * mark both so live and reconciled views of the same capture match
+         */
+        synchronized boolean markCounted(String attacker, String flagValue, Object flagId) {
+            String byValue = flagValue != null ? attacker + "\nv:" + flagValue : null;
+            String byId = flagId != null ? attacker + "\ni:" + flagId : null;
+            if ((byValue != null && counted.contains(byValue)) || (byId != null && counted.contains(byId))) {
+                return false;
+            }
+            if (byValue != null) {
+                counted.add(byValue);
+                pending.remove(byValue);
+            }
+            if (byId != null) {
+                counted.add(byId);
+                pending.remove(byId);
+            }
+            return true;
+        }
+
+        /**
+         * Victim unknown so far; keyed like {@link #markCounted}, one key per capture
+         */
+        synchronized void markPending(PendingCapture capture) {
+            String byValue = capture.flagValue() != null ? capture.attacker() + "\nv:" + capture.flagValue() : null;
+            String byId = capture.flagId() != null ? capture.attacker() + "\ni:" + capture.flagId() : null;
+            String key = byValue != null ? byValue : byId;
+            if (key != null && !counted.contains(key) && (byId == null || !pending.containsKey(byId))) {
+                pending.putIfAbsent(key, capture);
+            }
+        }
+
+        /**
+         * Pending captures with lookups left, each charged one
+         */
+        synchronized List<PendingCapture> takeRetries() {
+            List<PendingCapture> due = new ArrayList<>();
+            pending.replaceAll((key, capture) -> {
+                if (capture.ticksLeft() <= 0) {
+                    return capture;
+                }
+                due.add(capture);
+                return new PendingCapture(capture.attacker(), capture.flagValue(), capture.flagId(), capture.at(),
+                        capture.ticksLeft() - 1);
+            });
+            return due;
+        }
+
+        long givenUp() {
+            return pending.values().stream().filter(capture -> capture.ticksLeft() <= 0).count();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.tool.atkdefbackend.service.status;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tool.atkdefbackend.entity.ServiceStatusEntity;
+import com.tool.atkdefbackend.enums.CheckStatus;
+import com.tool.atkdefbackend.exception.ResourceNotFoundException;
+import com.tool.atkdefbackend.repository.ServiceStatusRepository;
+import com.tool.atkdefbackend.service.tick.TickClock;
+import com.tool.atkdefbackend.service.tick.TickEndedEvent;
+import com.tool.atkdefbackend.service.tick.TickSnapshot;
+import com.tool.atkdefbackend.service.tick.TickStartedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Service status grid - live team x service health of the current tick
+ *
+ * One byte per cell: 0 = not checked yet, 1..5 = {@link CheckStatus} ordinal + 1,
+ * {@link #CARRIED} set while the value is still the previous tick's result.
+ * Updated incrementally from service_statuses ((checked_at, id) keyset, only new rows
+ * are read) by one refresher thread, and published as a small pre-serialized
+ * document with a content ETag, so dashboards poll one payload per refresh instead
+ * of paging row-per-check JSON. Every applied result also goes to
+ * {@link ServiceStatusHistory}.
+ */
+@Slf4j
+@Service
+public class ServiceStatusGrid {
+
+    static final byte CARRIED = 0x08;
+    private static final char[] CODES = {'.', 'O', 'D', 'M', 'C', 'E'};
+
+    private final ServiceStatusRepository serviceStatusRepository;
+    private final TickClock tickClock;
+    private final ServiceStatusHistory serviceStatusHistory;
+    private final ObjectMapper objectMapper;
+
+    @Value("${service-grid.enabled:true}")
+    private boolean enabled;
+
+    @Value("${service-grid.refresh-ms:2000}")
+    private long refreshMs;
+
+    @Value("${service-grid.batch-size:5000}")
+    private int batchSize;
+
+    private final Map<String, GameGrid> grids = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "service-grid");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ServiceStatusGrid(ServiceStatusRepository serviceStatusRepository, TickClock tickClock,
+                             ServiceStatusHistory serviceStatusHistory, ObjectMapper objectMapper) {
+        this.serviceStatusRepository = serviceStatusRepository;
+        this.tickClock = tickClock;
+        this.serviceStatusHistory = serviceStatusHistory;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Published grid of one game at one tick
+     */
+    public record Document(String gameId, int tickNumber, byte[] body, String etag) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Service status grid disabled");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::refreshAll, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Last read of the ended tick before the grid switches, so results written just before
+     * the boundary still reach the history (runs ahead of the matching TickStartedEvent)
+     */
+    @EventListener
+    public void onTickEnded(TickEndedEvent event) {
+        if (enabled) {
+            scheduler.execute(() -> {
+                GameGrid grid = grids.get(event.gameId());
+                if (grid != null && event.tick().tickId() != null && event.tick().tickId().equals(grid.tickId)) {
+                    refresh(event.gameId());
+                }
+            });
+        }
+    }
+
+    @EventListener
+    public void onTickStarted(TickStartedEvent event) {
+        if (enabled) {
+            scheduler.execute(() -> startTick(event.tick()));
+        }
+    }
+
+    /**
+     * Current grid; the first request for a running game loads it on the refresher thread
+     * (answered when that load is done or after refresh-ms, no request thread waits)
+     */
+    public CompletableFuture<Document> getDocument(String gameId) {
+        GameGrid grid = grids.get(gameId);
+        if (grid != null && grid.published != null) {
+            return CompletableFuture.completedFuture(grid.published);
+        }
+        if (!enabled || !tickClock.track(gameId)) {
+            return CompletableFuture.failedFuture(new ResourceNotFoundException("Service status grid", "game_id", gameId));
+        }
+        return CompletableFuture.runAsync(() -> refresh(gameId), scheduler)
+                .orTimeout(refreshMs, TimeUnit.MILLISECONDS)
+                .handle((ignored, error) -> {
+                    if (error != null) {
+                        log.debug("Status grid of game {} not ready: {}", gameId, error.getMessage());
+                    }
+                    GameGrid loaded = grids.get(gameId);
+                    if (loaded == null || loaded.published == null) {
+                        throw new ResourceNotFoundException("Service status grid", "game_id", gameId);
+                    }
+                    return loaded.published;
+                });
+    }
+
+    // === Refresher thread ===
+
+    private void refreshAll() {
+        for (String gameId : tickClock.trackedGames()) {
+            try {
+                refresh(gameId);
+            } catch (Exception e) {
+                log.warn("Status grid refresh failed for game {}: {}", gameId, e.getMessage());
+            }
+        }
+    }
+
+    private void refresh(String gameId) {
+        GameGrid grid = grids.get(gameId);
+        if (grid == null) {
+            tickClock.current(gameId).ifPresent(this::startTick);
+            return;
+        }
+        if (grid.watermark == null) {
+            // No result of this tick seen yet: keep reading by tick until the first one arrives
+            load(grid, serviceStatusRepository.findByGameIdAndTickIdOrderByCheckedAtAscIdAsc(gameId, grid.tickId));
+            return;
+        }
+        load(grid, serviceStatusRepository.findPageAfter(gameId, grid.watermark, grid.watermarkId,
+                PageRequest.of(0, batchSize)));
+    }
+
+    private void startTick(TickSnapshot tick) {
+        if (tick.tickId() == null) {
+            return;
+        }
+        GameGrid grid = grids.computeIfAbsent(tick.gameId(), GameGrid::new);
+        if (tick.tickId().equals(grid.tickId)) {
+            return;
+        }
+        for (int i = 0; i < grid.cells.length; i++) {
+            if (grid.cells[i] != 0) {
+                grid.cells[i] |= CARRIED;
+            }
+        }
+        grid.tickId = tick.tickId();
+        grid.tickNumber = tick.tickNumber();
+        grid.watermark = null;
+        grid.watermarkId = null;
+
+        load(grid, serviceStatusRepository.findByGameIdAndTickIdOrderByCheckedAtAscIdAsc(tick.gameId(), tick.tickId()));
+        publish(grid);
+    }
+
+    private void load(GameGrid grid, List<ServiceStatusEntity> rows) {
+        boolean changed = false;
+        for (ServiceStatusEntity row : rows) {
+            LocalDateTime checkedAt = row.getCheckedAt();
+            if (checkedAt != null && row.getId() != null) {
+                // Rows come in (checked_at, id) order: the last one is where the next read resumes
+                grid.watermark = checkedAt;
+                grid.watermarkId = row.getId();
+            }
+            if (grid.tickId.equals(row.getTickId()) && row.getTeamId() != null) {
+                CheckStatus status = row.getCheckStatus();
+                changed |= grid.set(row.getTeamId(), serviceOf(row), code(status));
+                serviceStatusHistory.record(grid.gameId, row.getTeamId(), serviceOf(row), grid.tickNumber, status);
+            }
+        }
+        if (changed) {
+            publish(grid);
+        }
+    }
+
+    static String serviceOf(ServiceStatusEntity row) {
+        return row.getServiceName() != null ? row.getServiceName() : "service";
+    }
+
+    private static byte code(CheckStatus status) {
+        return status == null ? 0 : (byte) (status.ordinal() + 1);
+    }
+
+    private void publish(GameGrid grid) {
+        List<String> rows = new ArrayList<>(grid.teams.size());
+        for (int team = 0; team < grid.teams.size(); team++) {
+            StringBuilder row = new StringBuilder(grid.services.size());
+            for (int service = 0; service < grid.services.size(); service++) {
+                byte cell = grid.cells[team * grid.services.size() + service];
+                char code = CODES[cell & 0x07];
+                row.append((cell & CARRIED) != 0 ? Character.toLowerCase(code) : code);
+            }
+            rows.add(row.toString());
+        }
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("game_id", grid.gameId);
+        document.put("tick_number", grid.tickNumber);
+        document.put("teams", grid.teams);
+        document.put("services", grid.services);
+        document.put("legend", Map.of("O", "OK", "D", "DOWN", "M", "MUMBLE", "C", "CORRUPT", "E", "ERROR",
+                ".", "NOT_CHECKED", "lowercase", "previous tick result"));
+        document.put("rows", rows);
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(document);
+            grid.published = new Document(grid.gameId, grid.tickNumber, body,
+                    "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize status grid", e);
+        }
+    }
+
+    /**
+     * Working state of one game, written by the refresher thread only
+     */
+    private static class GameGrid {
+        private final String gameId;
+        private final List<String> teams = new ArrayList<>();
+        private final Map<String, Integer> teamIndex = new HashMap<>();
+        private final List<String> services = new ArrayList<>();
+        private final Map<String, Integer> serviceIndex = new HashMap<>();
+        private byte[] cells = new byte[0];
+
+        private String tickId;
+        private int tickNumber;
+        private LocalDateTime watermark;
+        private String watermarkId;
+
+        private volatile Document published;
+
+        GameGrid(String gameId) {
+            this.gameId = gameId;
+        }
+
+        boolean set(String teamId, String service, byte code) {
+            Integer team = teamIndex.get(teamId);
+            Integer column = serviceIndex.get(service);
+            if (team == null || column == null) {
+                grow(teamId, service);
+                team = teamIndex.get(teamId);
+                column = serviceIndex.get(service);
+            }
+            int cell = team * services.size() + column;
+            if (cells[cell] == code) {
+                return false;
+            }
+            cells[cell] = code;
+            return true;
+        }
+
+        private void grow(String teamId, String service) {
+            int oldServices = services.size();
+            if (!teamIndex.containsKey(teamId)) {
+                teamIndex.put(teamId, teams.size());
+                teams.add(teamId);
+            }
+            if (!serviceIndex.containsKey(service)) {
+                serviceIndex.put(service, services.size());
+                services.add(service);
+            }
+            byte[] grown = new byte[teams.size() * services.size()];
+            for (int team = 0; team * oldServices < cells.length; team++) {
+                System.arraycopy(cells, team * oldServices, grown, team * services.size(), oldServices);
+            }
+            cells = grown;
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package com.tool.atkdefbackend.service.status;
+
+import com.tool.atkdefbackend.entity.ServiceStatusEntity;
+import com.tool.atkdefbackend.enums.CheckStatus;
+import com.tool.atkdefbackend.exception.ResourceNotFoundException;
+import com.tool.atkdefbackend.repository.ServiceStatusRepository;
+import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.proxy.CorePayloads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Service status history - SLA timelines as run-length-encoded spans
+ *
+ * For every (team, service) the statuses over ticks are kept as runs
+ * [fromTick, toTick] -> {@link CheckStatus} (9 bytes per run). A service that stays
+ * OK for a whole game is one run, so multi-day games cost a few KB per team.
+ * Uptime and range reads walk runs, never ticks: O(log runs + runs in range).
+ *
+ * Fed by {@link ServiceStatusGrid} as results arrive; a game the gateway did not
+ * watch from the start is rebuilt from service_statuses on first query (backfill).
+ */
+@Slf4j
+@Service
+public class ServiceStatusHistory {
+
+    private static final CheckStatus[] STATUSES = CheckStatus.values();
+
+    private final ServiceStatusRepository serviceStatusRepository;
+    private final PythonProxyService pythonProxyService;
+    private final ExecutorService upstreamExecutor;
+
+    @Value("${status-history.backfill-page-size:5000}")
+    private int pageSize;
+
+    @Value("${status-history.backfill-max-pages:2000}")
+    private int maxPages;
+
+    private final Map<String, GameHistory> games = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<GameHistory>> backfilling = new ConcurrentHashMap<>();
+
+    public ServiceStatusHistory(ServiceStatusRepository serviceStatusRepository,
+                                PythonProxyService pythonProxyService,
+                                @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor) {
+        this.serviceStatusRepository = serviceStatusRepository;
+        this.pythonProxyService = pythonProxyService;
+        this.upstreamExecutor = upstreamExecutor;
+    }
+
+    /**
+     * Latest result of a check; results of older ticks than a span already recorded are ignored
+     */
+    public void record(String gameId, String teamId, String service, int tickNumber, CheckStatus status) {
+        if (status == null) {
+            return;
+        }
+        games.computeIfAbsent(gameId, id -> new GameHistory()).record(teamId, service, tickNumber, status);
+    }
+
+    // === Queries ===
+
+    /**
+     * Spans of each (team, service) overlapping [from, to], optionally for one team / service
+     */
+    public CompletableFuture<Map<String, Object>> timeline(String gameId, String teamId, String service,
+                                                            Integer from, Integer to) {
+        return history(gameId).thenApply(history -> history.read(() -> {
+            int start = from != null ? from : Integer.MIN_VALUE;
+            int end = to != null ? to : Integer.MAX_VALUE;
+            List<Map<String, Object>> cells = new ArrayList<>();
+            history.forEach(teamId, service, (team, name, runs) -> {
+                List<Map<String, Object>> spans = new ArrayList<>();
+                for (int i = runs.firstEndingAtOrAfter(start); i < runs.size && runs.starts[i] <= end; i++) {
+                    Map<String, Object> span = new LinkedHashMap<>();
+                    span.put("from_tick", Math.max(runs.starts[i], start));
+                    span.put("to_tick", Math.min(runs.ends[i], end));
+                    span.put("status", STATUSES[runs.codes[i]].name());
+                    spans.add(span);
+                }
+                Map<String, Object> cell = new LinkedHashMap<>();
+                cell.put("team_id", team);
+                cell.put("service", name);
+                cell.put("spans", spans);
+                cells.add(cell);
+            });
+            Map<String, Object> result = history.header(gameId);
+            result.put("timelines", cells);
+            return result;
+        }));
+    }
+
+    /**
+     * Uptime (OK ticks / observed ticks) per (team, service), per team and per service over [from, to]
+     */
+    public CompletableFuture<Map<String, Object>> uptime(String gameId, Integer from, Integer to) {
+        return history(gameId).thenApply(history -> history.read(() -> {
+            int start = from != null ? from : Integer.MIN_VALUE;
+            int end = to != null ? to : Integer.MAX_VALUE;
+            Map<String, long[]> byTeam = new TreeMap<>();
+            Map<String, long[]> byService = new TreeMap<>();
+            List<Map<String, Object>> cells = new ArrayList<>();
+            history.forEach(null, null, (team, name, runs) -> {
+                long[] counts = new long[STATUSES.length];
+                for (int i = runs.firstEndingAtOrAfter(start); i < runs.size && runs.starts[i] <= end; i++) {
+                    counts[runs.codes[i]] += (long) Math.min(runs.ends[i], end) - Math.max(runs.starts[i], start) + 1;
+                }
+                add(byTeam.computeIfAbsent(team, k -> new long[STATUSES.length]), counts);
+                add(byService.computeIfAbsent(name, k -> new long[STATUSES.length]), counts);
+                Map<String, Object> cell = uptimeView(counts);
+                cell.put("team_id", team);
+                cell.put("service", name);
+                cells.add(cell);
+            });
+
+            Map<String, Object> result = history.header(gameId);
+            result.put("cells", cells);
+            Map<String, Object> teams = new LinkedHashMap<>();
+            byTeam.forEach((team, counts) -> teams.put(team, uptimeView(counts)));
+            result.put("teams", teams);
+            Map<String, Object> services = new LinkedHashMap<>();
+            byService.forEach((name, counts) -> services.put(name, uptimeView(counts)));
+            result.put("services", services);
+            return result;
+        }));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long totalRuns = 0;
+        Map<String, Object> perGame = new TreeMap<>();
+        for (Map.Entry<String, GameHistory> game : games.entrySet()) {
+            long[] counts = game.getValue().read(game.getValue()::counts);
+            perGame.put(game.getKey(), Map.of("cells", counts[0], "runs", counts[1]));
+            totalRuns += counts[1];
+        }
+        stats.put("games", perGame);
+        stats.put("runs", totalRuns);
+        stats.put("approx_bytes", totalRuns * Runs.BYTES_PER_RUN);
+        return stats;
+    }
+
+    private static void add(long[] total, long[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            total[i] += counts[i];
+        }
+    }
+
+    private static Map<String, Object> uptimeView(long[] counts) {
+        long observed = Arrays.stream(counts).sum();
+        long ok = counts[CheckStatus.OK.ordinal()];
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("observed_ticks", observed);
+        Map<String, Long> statuses = new LinkedHashMap<>();
+        for (CheckStatus status : STATUSES) {
+            statuses.put(status.name(), counts[status.ordinal()]);
+        }
+        view.put("ticks_by_status", statuses);
+        view.put("uptime_percent", observed == 0 ? null : Math.round(ok * 10000.0 / observed) / 100.0);
+        return view;
+    }
+
+    // === Backfill ===
+
+    /**
+     * History of a game; the first query for a game not watched yet rebuilds it once
+     */
+    private CompletableFuture<GameHistory> history(String gameId) {
+        GameHistory history = games.get(gameId);
+        if (history != null && history.backfilled) {
+            return CompletableFuture.completedFuture(history);
+        }
+        return load(gameId);
+    }
+
+    /**
+     * Rebuild a game's spans from service_statuses and merge them under the live ones (asynchronous)
+     */
+    public CompletableFuture<Map<String, Object>> backfill(String gameId) {
+        return load(gameId).thenApply(history -> {
+            long[] counts = history.read(history::counts);
+            return Map.of("game_id", gameId, "cells", counts[0], "runs", counts[1]);
+        });
+    }
+
+    private CompletableFuture<GameHistory> load(String gameId) {
+        CompletableFuture<GameHistory> future = new CompletableFuture<>();
+        CompletableFuture<GameHistory> inFlight = backfilling.putIfAbsent(gameId, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        upstreamExecutor.execute(() -> {
+            try {
+                GameHistory rebuilt = rebuild(gameId);
+                GameHistory merged = games.compute(gameId, (id, live) -> {
+                    if (live == null) {
+                        return rebuilt;
+                    }
+                    live.mergeOlder(rebuilt);
+                    return live;
+                });
+                log.info("Status history of game {} backfilled: {} runs", gameId, merged.read(merged::counts)[1]);
+                future.complete(merged);
+            } catch (Exception e) {
+                log.warn("Status history backfill failed for game {}: {}", gameId, e.getMessage());
+                future.completeExceptionally(e);
+            } finally {
+                backfilling.remove(gameId, future);
+            }
+        });
+        return future;
+    }
+
+    private GameHistory rebuild(String gameId) {
+        // service_statuses only knows tick ids; numbers come from the core's tick list
+        Map<String, Integer> tickNumbers = new HashMap<>();
+        for (int page = 0; page < maxPages; page++) {
+            Object response = pythonProxyService.proxyGet(String.format("/ticks?game_id=%s&skip=%d&limit=%d",
+                    gameId, page * pageSize, pageSize), Object.class);
+            List<Map<String, Object>> ticks = CorePayloads.asList(response, "ticks");
+            for (Map<String, Object> tick : ticks) {
+                Integer number = CorePayloads.asInteger(CorePayloads.firstNonNull(tick.get("tick_number"), tick.get("number")));
+                if (tick.get("id") != null && number != null) {
+                    tickNumbers.put(tick.get("id").toString(), number);
+                }
+            }
+            if (ticks.size() < pageSize) {
+                break;
+            }
+        }
+        if (tickNumbers.isEmpty()) {
+            throw new ResourceNotFoundException("Ticks", "game_id", gameId);
+        }
+
+        GameHistory history = new GameHistory();
+        history.backfilled = true;
+        // Keyset: each page continues after the last (checked_at, id) read, no OFFSET re-scan
+        LocalDateTime afterCheckedAt = null;
+        String afterId = null;
+        for (int page = 0; page < maxPages; page++) {
+            List<ServiceStatusEntity> rows = afterCheckedAt == null
+                    ? serviceStatusRepository.findByGameIdAndCheckedAtNotNullOrderByCheckedAtAscIdAsc(
+                            gameId, PageRequest.of(0, pageSize))
+                    : serviceStatusRepository.findPageAfter(gameId, afterCheckedAt, afterId, PageRequest.of(0, pageSize));
+            for (ServiceStatusEntity row : rows) {
+                Integer tick = tickNumbers.get(row.getTickId());
+                if (tick != null && row.getTeamId() != null) {
+                    history.record(row.getTeamId(), ServiceStatusGrid.serviceOf(row), tick, row.getCheckStatus());
+                }
+            }
+            if (rows.size() < pageSize) {
+                return history;
+            }
+            ServiceStatusEntity last = rows.get(rows.size() - 1);
+            afterCheckedAt = last.getCheckedAt();
+            afterId = last.getId();
+        }
+        log.warn("Stopped backfilling status history of game {} after {} pages", gameId, maxPages);
+        return history;
+    }
+
+    // === Storage ===
+
+    @FunctionalInterface
+    private interface CellVisitor {
+        void visit(String teamId, String service, Runs runs);
+    }
+
+    /**
+     * All (team, service) runs of one game
+     */
+    static final class GameHistory {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Map<String, Runs>> teams = new TreeMap<>();
+        private volatile boolean backfilled;
+
+        void record(String teamId, String service, int tick, CheckStatus status) {
+            if (status == null) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                teams.computeIfAbsent(teamId, k -> new TreeMap<>())
+                        .computeIfAbsent(service, k -> new Runs())
+                        .record(tick, (byte) status.ordinal());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Keep live spans, put the rebuilt spans of earlier ticks in front of them
+         */
+        void mergeOlder(GameHistory older) {
+            lock.writeLock().lock();
+            try {
+                older.teams.forEach((teamId, services) -> services.forEach((service, runs) -> {
+                    Map<String, Runs> live = teams.computeIfAbsent(teamId, k -> new TreeMap<>());
+                    Runs current = live.get(service);
+                    live.put(service, current == null ? runs : runs.prependTo(current));
+                }));
+                backfilled = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        <T> T read(Supplier<T> reader) {
+            lock.readLock().lock();
+            try {
+                return reader.get();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void forEach(String teamId, String service, CellVisitor visitor) {
+            teams.forEach((team, services) -> {
+                if (teamId == null || teamId.equals(team)) {
+                    services.forEach((name, runs) -> {
+                        if (service == null || service.equals(name)) {
+                            visitor.visit(team, name, runs);
+                        }
+                    });
+                }
+            });
+        }
+
+        Map<String, Object> header(String gameId) {
+            int first = Integer.MAX_VALUE;
+            int last = Integer.MIN_VALUE;
+            for (Map<String, Runs> services : teams.values()) {
+                for (Runs runs : services.values()) {
+                    if (runs.size > 0) {
+                        first = Math.min(first, runs.starts[0]);
+                        last = Math.max(last, runs.ends[runs.size - 1]);
+                    }
+                }
+            }
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("game_id", gameId);
+            header.put("first_tick", first == Integer.MAX_VALUE ? null : first);
+            header.put("last_tick", last == Integer.MIN_VALUE ? null : last);
+            return header;
+        }
+
+        long[] counts() {
+            long cells = 0;
+            long runs = 0;
+            for (Map<String, Runs> services : teams.values()) {
+                cells += services.size();
+                for (Runs cell : services.values()) {
+                    runs += cell.size;
+                }
+            }
+            return new long[]{cells, runs};
+        }
+    }
+
+    /**
+     * Runs of one (team, service), ordered by tick; parallel arrays, doubled on growth
+     */
+    static final class Runs {
+        static final int BYTES_PER_RUN = 9;
+
+        int[] starts = new int[4];
+        int[] ends = new int[4];
+        byte[] codes = new byte[4];
+        int size;
+
+        void record(int tick, byte code) {
+            if (size == 0) {
+                append(tick, code);
+                return;
+            }
+            int last = size - 1;
+            if (tick < ends[last]) {
+                return; // older than what is recorded
+            }
+            if (tick == ends[last]) {
+                if (codes[last] == code) {
+                    return;
+                }
+                // Re-check within the tick: the tick moves to a run of the new status
+                if (starts[last] == ends[last]) {
+                    size--;
+                } else {
+                    ends[last]--;
+                }
+            }
+            last = size - 1;
+            if (last >= 0 && ends[last] == tick - 1 && codes[last] == code) {
+                ends[last] = tick;
+            } else {
+                append(tick, code);
+            }
+        }
+
+        private void append(int tick, byte code) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            starts[size] = tick;
+            ends[size] = tick;
+            codes[size] = code;
+            size++;
+        }
+
+        /**
+         * Index of the first run with toTick >= tick (binary search)
+         */
+        int firstEndingAtOrAfter(int tick) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] < tick) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * This (older) history's runs before the first tick of newer, followed by newer
+         */
+        Runs prependTo(Runs newer) {
+            if (newer.size == 0) {
+                return this;
+            }
+            int cut = newer.starts[0];
+            Runs merged = new Runs();
+            for (int i = 0; i < size && starts[i] < cut; i++) {
+                merged.extendTo(starts[i], Math.min(ends[i], cut - 1), codes[i]);
+            }
+            for (int i = 0; i < newer.size; i++) {
+                merged.extendTo(newer.starts[i], newer.ends[i], newer.codes[i]);
+            }
+            return merged;
+        }
+
+        private void extendTo(int from, int to, byte code) {
+            int last = size - 1;
+            if (last >= 0 && ends[last] == from - 1 && codes[last] == code) {
+                ends[last] = to;
+                return;
+            }
+            append(from, code);
+            ends[size - 1] = to;
+        }
+    }
+}
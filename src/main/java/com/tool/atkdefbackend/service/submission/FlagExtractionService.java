@@ -0,0 +1,155 @@
+package com.tool.atkdefbackend.service.submission;
+
+import com.tool.atkdefbackend.service.flag.FlagValueIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Flag extraction - submit every flag found in raw exploit output
+ *
+ * The body is read in chunks and scanned with one precompiled pattern; only the
+ * last flag-extract.max-flag-length chars are carried between chunks, so megabytes of
+ * output never sit in memory. Unique flags are submitted through
+ * {@link FlagSubmissionService} while reading continues (at most max-in-flight at once),
+ * each one charged against the team's {@link SubmissionRateLimiter} budget like a
+ * POST /submissions; flags over the budget come back as RATE_LIMITED without being sent.
+ */
+@Slf4j
+@Service
+public class FlagExtractionService {
+
+    private static final int CHUNK_CHARS = 8192;
+
+    private final FlagSubmissionService flagSubmissionService;
+    private final Pattern flagPattern;
+
+    @Value("${flag-extract.max-flag-length:128}")
+    private int maxFlagLength;
+
+    @Value("${flag-extract.max-flags:2000}")
+    private int maxFlags;
+
+    @Value("${flag-extract.max-chars:67108864}")
+    private long maxChars;
+
+    @Value("${flag-extract.max-in-flight:16}")
+    private int maxInFlight;
+
+    public FlagExtractionService(FlagSubmissionService flagSubmissionService,
+                                 @Value("${flag-extract.pattern:}") String pattern) {
+        this.flagSubmissionService = flagSubmissionService;
+        this.flagPattern = Pattern.compile(pattern.isBlank() ? FlagValueIndex.DEFAULT_PATTERN : pattern);
+    }
+
+    /**
+     * Scan the body and submit each unique flag for the team / game of {@code base}
+     * (team already enforced). Blocks while reading; completes when all replies are in.
+     */
+    public CompletableFuture<Map<String, Object>> extractAndSubmit(String principal, Reader body,
+                                                                   Map<String, Object> base)
+            throws IOException {
+        Set<String> seen = new HashSet<>();
+        Map<String, CompletableFuture<Map<String, Object>>> submitted = new LinkedHashMap<>();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        int[] duplicates = {0};
+        int[] skipped = {0};
+
+        ScanResult scan = scan(body, flagPattern, maxFlagLength, maxChars, flag -> {
+            if (!seen.add(flag)) {
+                duplicates[0]++;
+                return;
+            }
+            if (submitted.size() >= maxFlags) {
+                skipped[0]++;
+                return;
+            }
+            Map<String, Object> request = new LinkedHashMap<>(base);
+            request.put("flag", flag);
+            inFlight.acquireUninterruptibly(); // back-pressure: stop reading while the core catches up
+            submitted.put(flag, flagSubmissionService.submit(principal, "EXTRACT", request)
+                    .handle((result, error) -> {
+                        inFlight.release();
+                        return FlagSubmissionService.resultView(flag, result, error);
+                    }));
+        });
+
+        return CompletableFuture.allOf(submitted.values().toArray(CompletableFuture[]::new)).thenApply(done -> {
+            List<Map<String, Object>> results = new ArrayList<>(submitted.size());
+            Map<String, Integer> byStatus = new TreeMap<>();
+            for (CompletableFuture<Map<String, Object>> future : submitted.values()) {
+                Map<String, Object> result = future.join();
+                results.add(result);
+                byStatus.merge((String) result.get("status"), 1, Integer::sum);
+            }
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("chars_scanned", scan.chars());
+            response.put("truncated", scan.truncated());
+            response.put("flags_found", submitted.size() + duplicates[0] + skipped[0]);
+            response.put("duplicates", duplicates[0]);
+            response.put("not_submitted", skipped[0]);
+            response.put("rate_limited", byStatus.getOrDefault("RATE_LIMITED", 0));
+            response.put("by_status", byStatus);
+            response.put("results", results);
+            return response;
+        });
+    }
+
+    record ScanResult(long chars, boolean truncated) {
+    }
+
+    /**
+     * Emit every match of {@code pattern} in reading order. A match starting in the last
+     * maxFlagLength chars of the window may still grow, so it waits for the next chunk.
+     */
+    static ScanResult scan(Reader reader, Pattern pattern, int maxFlagLength, long maxChars,
+                           Consumer<String> onFlag) throws IOException {
+        char[] chunk = new char[CHUNK_CHARS];
+        StringBuilder window = new StringBuilder(CHUNK_CHARS + maxFlagLength);
+        Matcher matcher = pattern.matcher(window);
+        long chars = 0;
+        boolean truncated = false;
+        int read;
+        while ((read = reader.read(chunk)) != -1) {
+            if (chars + read > maxChars) {
+                read = (int) (maxChars - chars);
+                truncated = true;
+            }
+            window.append(chunk, 0, read);
+            chars += read;
+            drain(window, matcher, maxFlagLength, false, onFlag);
+            if (truncated) {
+                break;
+            }
+        }
+        drain(window, matcher, maxFlagLength, true, onFlag);
+        return new ScanResult(chars, truncated);
+    }
+
+    private static void drain(StringBuilder window, Matcher matcher, int maxFlagLength, boolean end,
+                              Consumer<String> onFlag) {
+        int safe = end ? window.length() : window.length() - maxFlagLength;
+        int deferFrom = window.length();
+        int consumed = 0;
+        matcher.reset(window);
+        while (matcher.find()) {
+            if (!end && matcher.start() >= safe) {
+                deferFrom = matcher.start();
+                break;
+            }
+            onFlag.accept(matcher.group());
+            consumed = matcher.end();
+        }
+        int cut = end ? window.length() : Math.max(consumed, Math.min(safe, deferFrom));
+        window.delete(0, Math.max(0, cut));
+    }
+}
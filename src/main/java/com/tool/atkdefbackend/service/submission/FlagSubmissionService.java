@@ -0,0 +1,209 @@
+package com.tool.atkdefbackend.service.submission;
+
+import com.tool.atkdefbackend.exception.ForbiddenException;
+import com.tool.atkdefbackend.exception.RateLimitExceededException;
+import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.auth.UserDetailsImpl;
+import com.tool.atkdefbackend.service.journal.SubmissionJournal;
+import com.tool.atkdefbackend.service.stats.CaptureStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flag submission path shared by every transport (HTTP, TCP line protocol)
+ *
+ * Team isolation is enforced here, then the submission is charged against the team's
+ * {@link SubmissionRateLimiter} budget, journaled, forwarded to the core and recorded
+ * once in the team history and capture statistics.
+ */
+@Slf4j
+@Service
+public class FlagSubmissionService {
+
+    private final PythonProxyService pythonProxyService;
+    private final SubmissionHistoryService submissionHistory;
+    private final CaptureStatsService captureStats;
+    private final SubmissionJournal submissionJournal;
+    private final SubmissionRateLimiter rateLimiter;
+
+    // Journal seqs of this process still waiting for the core's answer (queued or in flight)
+    private final Set<Long> liveSeqs = ConcurrentHashMap.newKeySet();
+
+    public FlagSubmissionService(PythonProxyService pythonProxyService, SubmissionHistoryService submissionHistory,
+                                 CaptureStatsService captureStats, SubmissionJournal submissionJournal,
+                                 SubmissionRateLimiter rateLimiter) {
+        this.pythonProxyService = pythonProxyService;
+        this.submissionHistory = submissionHistory;
+        this.captureStats = captureStats;
+        this.submissionJournal = submissionJournal;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * SECURITY: TEAM/STUDENT users always submit as their own team (team_id is forced
+     * into the request); ADMIN/TEACHER may submit for any team.
+     *
+     * @return the team the submission is made for, null if staff left team_id open
+     */
+    public String enforceTeam(UserDetailsImpl userDetails, Map<String, Object> request) {
+        if (!isTeamUser(userDetails)) {
+            Object teamId = request.get("team_id");
+            return teamId != null ? teamId.toString() : null;
+        }
+
+        String authenticatedTeamId = userDetails.getTeamId();
+        if (authenticatedTeamId == null || authenticatedTeamId.equals("0")) {
+            log.warn("SECURITY: User {} is not assigned to any team", userDetails.getUsername());
+            throw new ForbiddenException("You are not assigned to any team");
+        }
+
+        // Check if user is trying to submit with different team_id
+        if (request.containsKey("team_id") &&
+            !authenticatedTeamId.equals(String.valueOf(request.get("team_id")))) {
+            log.warn("SECURITY: User {} attempted to submit flag as different team (auth: {}, request: {})",
+                     userDetails.getUsername(), authenticatedTeamId, request.get("team_id"));
+            throw new ForbiddenException("Cannot submit flags for other teams");
+        }
+
+        // Always use authenticated team ID for security
+        request.put("team_id", authenticatedTeamId);
+        return authenticatedTeamId;
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    public static boolean isTeamUser(UserDetailsImpl userDetails) {
+        return userDetails.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_TEAM") ||
+                              a.getAuthority().equals("ROLE_STUDENT"));
+    }
+
+    /**
+     * Charge, journal and forward a submission whose team was already enforced
+     *
+     * @param source transport it came in through (HTTP, TCP, EXTRACT, ...)
+     * @return failed with RateLimitExceededException (nothing sent) when the team is over its budget
+     *         (only for transports the rate limit applies to)
+     */
+    public CompletableFuture<Map<String, Object>> submit(String principal, String source, Map<String, Object> request) {
+        String team = asString(request.get("team_id"));
+        if (team != null && rateLimiter.appliesTo(source) && !rateLimiter.tryAcquire(team, 1)) {
+            return CompletableFuture.failedFuture(new RateLimitExceededException(
+                    "Submission rate limit of team " + team + " exceeded", 1));
+        }
+        return forward(journal(principal, source, request), request);
+    }
+
+    /**
+     * Journal the arrival only (queued submissions are forwarded later with {@link #forward})
+     *
+     * @return journal sequence number, 0 when the journal is off
+     */
+    public long journal(String principal, String source, Map<String, Object> request) {
+        long seq = submissionJournal.arrived(principal, asString(request.get("team_id")), asString(request.get("game_id")),
+                asString(request.get("flag")), source);
+        if (seq > 0) {
+            liveSeqs.add(seq);
+        }
+        return seq;
+    }
+
+    /**
+     * Whether journal seq was taken by this process and its answer is still to come,
+     * i.e. it must not be replayed
+     */
+    public boolean isLive(long journalSeq) {
+        return liveSeqs.contains(journalSeq);
+    }
+
+    /**
+     * Forward to the core; recorded once per upstream call, the answer is journaled under journalSeq
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Map<String, Object>> forward(long journalSeq, Map<String, Object> request) {
+        return pythonProxyService.proxyPostAsync("/submissions", request, Map.class)
+                .whenComplete((result, error) -> {
+                    submissionJournal.result(journalSeq, error != null ? "ERROR" : statusOf((Map<String, Object>) result));
+                    liveSeqs.remove(journalSeq);
+                })
+                .thenApply(result -> {
+                    Object teamId = request.get("team_id");
+                    String team = teamId != null ? teamId.toString() : null;
+                    submissionHistory.record(team, request, result);
+                    captureStats.recordSubmission(team, request, result);
+                    return (Map<String, Object>) result;
+                });
+    }
+
+    /**
+     * SubmissionStatus name of a core reply; error maps carry the HTTP status as a number
+     * (4xx = INVALID, anything else = ERROR). A successful reply without a status is
+     * UNKNOWN: the core took the flag, it was not rejected.
+     */
+    public static String statusOf(Map<String, Object> result) {
+        if (result == null) {
+            return "ERROR";
+        }
+        Object status = result.get("status");
+        if (status instanceof Number code) {
+            return code.intValue() >= 400 && code.intValue() < 500 ? "INVALID" : "ERROR";
+        }
+        if (status == null) {
+            return Boolean.FALSE.equals(result.get("success")) ? "ERROR" : "UNKNOWN";
+        }
+        return status.toString().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Why a submission was not processed (error replies only), else null
+     */
+    public static String reasonOf(Map<String, Object> result) {
+        if (result == null) {
+            return "empty response";
+        }
+        if (!(result.get("status") instanceof Number) && result.get("status") != null) {
+            return null;
+        }
+        for (String field : new String[]{"detail", "message", "error"}) {
+            if (result.get(field) != null) {
+                return result.get(field).toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Per-flag result for batch replies: flag, status, message / points when present
+     */
+    public static Map<String, Object> resultView(String flag, Map<String, Object> result, Throwable error) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("flag", flag);
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            view.put("status", cause instanceof RateLimitExceededException ? "RATE_LIMITED" : "ERROR");
+            view.put("message", cause.getMessage());
+            return view;
+        }
+        view.put("status", statusOf(result));
+        String reason = reasonOf(result);
+        if (reason != null) {
+            view.put("message", reason);
+        } else if (result.get("message") != null) {
+            view.put("message", result.get("message"));
+        }
+        if (result.get("points") != null) {
+            view.put("points", result.get("points"));
+        }
+        return view;
+    }
+}
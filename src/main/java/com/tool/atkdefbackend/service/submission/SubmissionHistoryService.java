@@ -0,0 +1,349 @@
+package com.tool.atkdefbackend.service.submission;
+
+import com.tool.atkdefbackend.service.changefeed.GatewayChangeEvent;
+import com.tool.atkdefbackend.service.tick.TickStartedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-team history of recent flag submissions
+ *
+ * Every submission passing through the gateway is recorded (newest first) in a bounded
+ * ring per team, so a team's "my submissions" page right after submitting is answered
+ * from memory and always contains the submission just made (read-your-writes).
+ * A page is served from memory only when the ring provably holds it:
+ *   - the ring has at least skip + limit matching entries (they are the newest ones), or
+ *   - the ring holds the team's whole history (seeded from a short upstream listing
+ *     and nothing evicted since).
+ * Anything else (older pages) falls through to Python Core.
+ * Recorded rows have exactly the columns of upstream listing rows (learned from the first
+ * listing) and carry the core-assigned id; a submit answer without an id cannot be turned
+ * into such a row, so it drops the team's ring instead and the next page goes upstream.
+ * Rings forget a game when it is deleted or reset (its tick number goes backwards).
+ *
+ * Assumes one gateway instance in front of the core; submissions made elsewhere only
+ * show up through the upstream fallback.
+ */
+@Slf4j
+@Service
+public class SubmissionHistoryService {
+
+    private static final List<String> LIST_KEYS = List.of("submissions", "items", "data");
+
+    @Value("${submission-history.per-team:200}")
+    private int perTeam;
+
+    private final Map<String, TeamHistory> histories = new ConcurrentHashMap<>();
+
+    /**
+     * Shape of upstream listings (bare array or {"<key>": [...]}), learned from the first one
+     * so pages served from memory look exactly like upstream ones
+     */
+    private volatile ListShape listShape;
+
+    /**
+     * Columns of an upstream listing row, in upstream order
+     */
+    private volatile List<String> rowColumns;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder pageHits = new LongAdder();
+    private final LongAdder pageMisses = new LongAdder();
+    private final LongAdder seeded = new LongAdder();
+    private final LongAdder ownershipHits = new LongAdder();
+    private final LongAdder invalidated = new LongAdder();
+
+    private record ListShape(String key) {
+    }
+
+    // === Recording ===
+
+    /**
+     * Record a submission result; core error maps (success=false) are ignored
+     */
+    public void record(String teamId, Map<String, Object> request, Object response) {
+        if (teamId == null || !(response instanceof Map<?, ?> result) || Boolean.FALSE.equals(result.get("success"))) {
+            return;
+        }
+        List<String> columns = rowColumns;
+        Object id = result.get("id") != null ? result.get("id") : result.get("submission_id");
+        if (id == null || columns == null) {
+            // Not representable as a listing row: memory can no longer prove the newest pages
+            history(teamId).invalidate();
+            invalidated.increment();
+            return;
+        }
+
+        Map<String, Object> known = new HashMap<>();
+        known.put("team_id", teamId);
+        known.put("game_id", request.get("game_id"));
+        known.put("flag", request.get("flag"));
+        known.put("submitted_at", Instant.now().toString());
+        result.forEach((key, value) -> known.put(String.valueOf(key), value));
+        known.put("id", id);
+        known.put("submission_id", id);
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        for (String column : columns) {
+            entry.put(column, known.get(column));
+        }
+        history(teamId).add(entry, perTeam);
+        recorded.increment();
+    }
+
+    /**
+     * Admin deleted a submission: drop it from whichever ring holds it
+     */
+    public void forget(String submissionId) {
+        histories.values().forEach(history -> history.remove(submissionId));
+    }
+
+    /**
+     * Game deleted or reset: its submissions are gone upstream too
+     */
+    public void forgetGame(String gameId) {
+        if (gameId != null) {
+            histories.values().forEach(history -> history.removeGame(gameId));
+        }
+    }
+
+    @EventListener
+    public void onGameChanged(GatewayChangeEvent event) {
+        if (event.isTable("games") && "DELETE".equalsIgnoreCase(event.operation())) {
+            forgetGame(event.id());
+        }
+    }
+
+    @EventListener
+    public void onTickStarted(TickStartedEvent event) {
+        if (event.isTransition() && event.tick().tickNumber() < event.previousTickNumber()) {
+            log.info("Game {} was reset (tick {} -> {}), forgetting its submissions", event.gameId(),
+                    event.previousTickNumber(), event.tick().tickNumber());
+            forgetGame(event.gameId());
+        }
+    }
+
+    // === Reads ===
+
+    /**
+     * Version of a team's ring, taken before an upstream listing so {@link #learn} can tell
+     * whether submissions were recorded meanwhile
+     */
+    public long version(String teamId) {
+        return history(teamId).version();
+    }
+
+    /**
+     * A page of the team's submissions (newest first) if memory can answer it exactly
+     */
+    public Optional<Object> page(String teamId, String gameId, String status, int skip, int limit) {
+        ListShape shape = listShape;
+        if (shape == null || skip < 0 || limit <= 0) {
+            pageMisses.increment();
+            return Optional.empty();
+        }
+        Optional<List<Map<String, Object>>> items = history(teamId).page(gameId, status, skip, limit);
+        if (items.isEmpty()) {
+            pageMisses.increment();
+            return Optional.empty();
+        }
+        pageHits.increment();
+        return Optional.of(shape.key() == null ? items.get() : Map.of(shape.key(), items.get()));
+    }
+
+    /**
+     * Learn from an upstream listing: its shape, and - for an unfiltered first page shorter
+     * than the limit - the team's complete history
+     */
+    public void learn(String teamId, String gameId, String status, int skip, int limit, Object response,
+                      long versionBefore) {
+        List<Map<String, Object>> items = extractItems(response);
+        if (items == null) {
+            return;
+        }
+        if (listShape == null) {
+            listShape = new ListShape(response instanceof Map<?, ?> map ? listKey(map) : null);
+        }
+        if (rowColumns == null && !items.isEmpty() && idOf(items.get(0)) != null) {
+            rowColumns = List.copyOf(items.get(0).keySet());
+        }
+        if (skip == 0 && gameId == null && status == null && items.size() < limit
+                && history(teamId).seed(newestFirst(items), perTeam, versionBefore)) {
+            seeded.increment();
+            log.debug("Seeded submission history of team {} with {} entries", teamId, items.size());
+        }
+    }
+
+    /**
+     * Ownership from memory: TRUE/FALSE if some ring knows the submission, empty otherwise
+     */
+    public Optional<Boolean> isOwnedBy(String submissionId, String teamId) {
+        for (Map.Entry<String, TeamHistory> history : histories.entrySet()) {
+            if (history.getValue().contains(submissionId)) {
+                ownershipHits.increment();
+                return Optional.of(history.getKey().equals(teamId));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("teams", histories.size());
+        stats.put("per_team", perTeam);
+        stats.put("recorded", recorded.sum());
+        stats.put("page_hits", pageHits.sum());
+        stats.put("page_misses", pageMisses.sum());
+        stats.put("seeded", seeded.sum());
+        stats.put("ownership_hits", ownershipHits.sum());
+        stats.put("invalidated", invalidated.sum());
+        return stats;
+    }
+
+    private TeamHistory history(String teamId) {
+        return histories.computeIfAbsent(teamId, id -> new TeamHistory());
+    }
+
+    // === Upstream JSON helpers ===
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> extractItems(Object response) {
+        Object items = response instanceof Map<?, ?> map ? map.get(listKey(map)) : response;
+        if (!(items instanceof List<?> list)) {
+            return null;
+        }
+        List<Map<String, Object>> result = new ArrayList<>(list.size());
+        for (Object item : list) {
+            if (item instanceof Map<?, ?>) {
+                result.add((Map<String, Object>) item);
+            }
+        }
+        return result;
+    }
+
+    private static String listKey(Map<?, ?> response) {
+        for (String key : LIST_KEYS) {
+            if (response.get(key) instanceof List<?>) {
+                return key;
+            }
+        }
+        return LIST_KEYS.get(0);
+    }
+
+    /**
+     * The core's sort order is not part of its contract: flip ascending listings
+     */
+    private static List<Map<String, Object>> newestFirst(List<Map<String, Object>> items) {
+        if (items.size() < 2) {
+            return items;
+        }
+        String first = submittedAt(items.get(0));
+        String last = submittedAt(items.get(items.size() - 1));
+        if (first != null && last != null && first.compareTo(last) < 0) {
+            List<Map<String, Object>> reversed = new ArrayList<>(items);
+            Collections.reverse(reversed);
+            return reversed;
+        }
+        return items;
+    }
+
+    private static String submittedAt(Map<String, Object> item) {
+        Object value = item.getOrDefault("submitted_at", item.get("created_at"));
+        return value != null ? value.toString() : null;
+    }
+
+    static String idOf(Map<String, Object> entry) {
+        Object id = entry.getOrDefault("id", entry.get("submission_id"));
+        return id != null ? id.toString() : null;
+    }
+
+    /**
+     * Bounded newest-first ring of one team
+     */
+    private static class TeamHistory {
+        private final ArrayDeque<Map<String, Object>> entries = new ArrayDeque<>();
+        private boolean complete; // entries == the team's entire history
+        private long version;
+
+        synchronized void add(Map<String, Object> entry, int capacity) {
+            entries.addFirst(entry);
+            version++;
+            while (entries.size() > capacity) {
+                entries.removeLast();
+                complete = false;
+            }
+        }
+
+        synchronized boolean seed(List<Map<String, Object>> items, int capacity, long versionBefore) {
+            if (version != versionBefore) {
+                return false; // recorded while the listing was in flight, it may be missing
+            }
+            entries.clear();
+            for (Map<String, Object> item : items) {
+                if (entries.size() == capacity) {
+                    break;
+                }
+                entries.addLast(item);
+            }
+            complete = entries.size() == items.size();
+            version++;
+            return true;
+        }
+
+        synchronized void invalidate() {
+            entries.clear();
+            complete = false;
+            version++;
+        }
+
+        synchronized void removeGame(String gameId) {
+            if (entries.removeIf(entry -> gameId.equals(String.valueOf(entry.get("game_id"))))) {
+                version++;
+            }
+        }
+
+        synchronized void remove(String submissionId) {
+            if (entries.removeIf(entry -> submissionId.equals(idOf(entry)))) {
+                version++;
+            }
+        }
+
+        synchronized boolean contains(String submissionId) {
+            for (Map<String, Object> entry : entries) {
+                if (submissionId.equals(idOf(entry))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        synchronized Optional<List<Map<String, Object>>> page(String gameId, String status, int skip, int limit) {
+            int wanted = (int) Math.min((long) skip + limit, Integer.MAX_VALUE);
+            List<Map<String, Object>> matching = new ArrayList<>(Math.min(entries.size(), wanted));
+            for (Map<String, Object> entry : entries) {
+                if (matching.size() == wanted) {
+                    break;
+                }
+                if ((gameId == null || gameId.equals(String.valueOf(entry.get("game_id"))))
+                        && (status == null || status.equalsIgnoreCase(String.valueOf(entry.get("status"))))) {
+                    matching.add(entry);
+                }
+            }
+            if (matching.size() < wanted && !complete) {
+                return Optional.empty();
+            }
+            return Optional.of(List.copyOf(matching.subList(Math.min(skip, matching.size()), matching.size())));
+        }
+    }
+}
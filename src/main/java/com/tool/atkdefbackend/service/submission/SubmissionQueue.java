@@ -0,0 +1,526 @@
+package com.tool.atkdefbackend.service.submission;
+
+import com.tool.atkdefbackend.exception.ServiceOverloadedException;
+import com.tool.atkdefbackend.service.journal.SubmissionJournal;
+import com.tool.atkdefbackend.service.journal.SubmissionJournalReader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous submissions - 202 + ticket now, result later
+ *
+ * Flags are validated by the caller, charged against the team's {@link SubmissionRateLimiter}
+ * budget, put on a bounded per-team backlog and answered with a ticket right away.
+ * submission-queue.workers workers take one ticket per team in turn (round-robin), so a
+ * team with a big backlog cannot starve the others, and forward them through
+ * {@link FlagSubmissionService}. Each team's results get an increasing sequence number,
+ * are kept in a per-team ring and are read by cursor (poll) or pushed to the team's SSE
+ * streams in sequence order (event id = sequence, Last-Event-ID resumes). Results are
+ * numbered and handed to each stream's outbox under the team lock; the network writes
+ * happen outside it, one drain task per stream at a time, so a slow client neither
+ * blocks the workers nor reorders its own events.
+ */
+@Slf4j
+@Service
+public class SubmissionQueue {
+
+    private final FlagSubmissionService flagSubmissionService;
+    private final ExecutorService upstreamExecutor;
+    private final SubmissionJournal submissionJournal;
+    private final SubmissionRateLimiter rateLimiter;
+
+    @Value("${submission-queue.capacity:10000}")
+    private int capacity;
+
+    @Value("${submission-queue.max-per-team:1000}")
+    private int maxPerTeam;
+
+    @Value("${submission-queue.max-flags-per-request:200}")
+    private int maxFlagsPerRequest;
+
+    @Value("${submission-queue.workers:32}")
+    private int workers;
+
+    @Value("${submission-queue.results-per-team:2000}")
+    private int resultsPerTeam;
+
+    @Value("${submission-queue.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    // per-team backlogs, served round-robin in the order of ready; guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<String, ArrayDeque<Ticket>> backlogs = new HashMap<>();
+    private final ArrayDeque<String> ready = new ArrayDeque<>();
+    private final Set<Thread> workerThreads = new HashSet<>();
+    private int queued;
+    private volatile boolean running;
+
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Map<String, TeamResults> teams = new ConcurrentHashMap<>();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public SubmissionQueue(FlagSubmissionService flagSubmissionService,
+                           @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor,
+                           SubmissionJournal submissionJournal, SubmissionRateLimiter rateLimiter) {
+        this.flagSubmissionService = flagSubmissionService;
+        this.upstreamExecutor = upstreamExecutor;
+        this.submissionJournal = submissionJournal;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * One queued flag; result and sequence are set once when it completes
+     */
+    public static final class Ticket {
+        private final String id = UUID.randomUUID().toString();
+        private final String teamId;
+        private final String gameId;
+        private final String flag;
+        private final long journalSeq;
+        private final Instant createdAt = Instant.now();
+        private volatile Map<String, Object> result;
+        private volatile long sequence;
+
+        private Ticket(String teamId, String gameId, String flag, long journalSeq) {
+            this.teamId = teamId;
+            this.gameId = gameId;
+            this.flag = flag;
+            this.journalSeq = journalSeq;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTeamId() {
+            return teamId;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("ticket_id", id);
+            view.put("game_id", gameId);
+            if (result == null) {
+                view.put("flag", flag);
+                view.put("status", "QUEUED");
+            } else {
+                view.put("sequence", sequence);
+                view.putAll(result);
+            }
+            view.put("created_at", createdAt.toString());
+            return view;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            upstreamExecutor.execute(this::work);
+        }
+    }
+
+    /**
+     * Stop the workers: idle ones are woken by an interrupt, busy ones exit after their
+     * current flag. Flags still queued stay unanswered in the journal and can be replayed.
+     */
+    @PreDestroy
+    public void destroy() {
+        lock.lock();
+        try {
+            running = false;
+            workerThreads.forEach(Thread::interrupt);
+            if (queued > 0) {
+                log.warn("{} queued submissions dropped on shutdown (still in the journal for replay)", queued);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue flags of one team (team already enforced); all or nothing when the queue or the
+     * team's share of it is full, or when the team is over its submission rate.
+     * Each flag is journaled when queued, so a restart does not lose it.
+     */
+    public List<Ticket> enqueue(String principal, String source, String teamId, String gameId, List<String> flags) {
+        if (flags.size() > maxFlagsPerRequest) {
+            throw new IllegalArgumentException("At most " + maxFlagsPerRequest + " flags per request");
+        }
+        return admit(principal, source, teamId, gameId, flags, true);
+    }
+
+    /**
+     * @param charged count against the team's share and submission rate (false for replays)
+     */
+    private List<Ticket> admit(String principal, String source, String teamId, String gameId, List<String> flags,
+                               boolean charged) {
+        TeamResults team = teams.computeIfAbsent(teamId, id -> new TeamResults());
+        List<Ticket> admitted = new ArrayList<>(flags.size());
+        lock.lock();
+        try { // batch admission: either every flag fits or none is queued
+            if (capacity - queued < flags.size()) {
+                shed.add(flags.size());
+                throw new ServiceOverloadedException("Submission queue full (" + queued + " queued)", 1);
+            }
+            if (charged) {
+                if (team.pending.get() + flags.size() > maxPerTeam) {
+                    shed.add(flags.size());
+                    throw new ServiceOverloadedException("Team " + teamId + " already has " + team.pending.get()
+                            + " queued submissions", 1);
+                }
+                rateLimiter.acquire(teamId, flags.size());
+            }
+            ArrayDeque<Ticket> backlog = backlogs.computeIfAbsent(teamId, id -> new ArrayDeque<>());
+            if (backlog.isEmpty()) {
+                ready.addLast(teamId);
+            }
+            for (String flag : flags) {
+                Ticket ticket = new Ticket(teamId, gameId, flag,
+                        flagSubmissionService.journal(principal, source, request(teamId, gameId, flag)));
+                tickets.put(ticket.id, ticket);
+                backlog.addLast(ticket);
+                admitted.add(ticket);
+            }
+            queued += flags.size();
+            team.pending.addAndGet(flags.size());
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        enqueued.add(flags.size());
+        return admitted;
+    }
+
+    /**
+     * Next ticket of the team whose turn it is; blocks while nothing is queued
+     */
+    private Ticket take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (ready.isEmpty()) {
+                if (!running) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+            String teamId = ready.pollFirst();
+            ArrayDeque<Ticket> backlog = backlogs.get(teamId);
+            Ticket ticket = backlog.pollFirst();
+            if (backlog.isEmpty()) {
+                backlogs.remove(teamId);
+            } else {
+                ready.addLast(teamId); // back of the line
+            }
+            queued--;
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-queue journaled submissions since {@code since} that never got an answer (or got
+     * ERROR), e.g. after a crash; originals are marked REPLAYED so they are not replayed twice.
+     * Submissions this process is still working on are skipped. All or nothing: when the
+     * queue cannot take every one of them, nothing is queued or marked (503).
+     */
+    public Map<String, Object> replay(Instant since, int limit) {
+        List<SubmissionJournalReader.Entry> pending = submissionJournal.query(null, since, true, limit);
+        Map<List<String>, List<SubmissionJournalReader.Entry>> groups = new LinkedHashMap<>();
+        int live = 0;
+        int replayable = 0;
+        for (SubmissionJournalReader.Entry entry : pending) {
+            if (flagSubmissionService.isLive(entry.seq())) {
+                live++;
+            } else if (entry.teamId() != null && entry.flag() != null) {
+                groups.computeIfAbsent(Arrays.asList(entry.principal(), entry.teamId(), entry.gameId()),
+                        key -> new ArrayList<>()).add(entry);
+                replayable++;
+            }
+        }
+        lock.lock(); // admit below re-enters: capacity cannot change between the check and the last group
+        try {
+            if (capacity - queued < replayable) {
+                shed.add(replayable);
+                throw new ServiceOverloadedException("Submission queue cannot take " + replayable
+                        + " replayed submissions (" + queued + " queued)", 1);
+            }
+            for (Map.Entry<List<String>, List<SubmissionJournalReader.Entry>> group : groups.entrySet()) {
+                List<String> key = group.getKey();
+                admit(key.get(0), "REPLAY", key.get(1), key.get(2),
+                        group.getValue().stream().map(SubmissionJournalReader.Entry::flag).toList(), false);
+                group.getValue().forEach(entry -> submissionJournal.result(entry.seq(), "REPLAYED"));
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Replayed {} journaled submissions since {} ({} still in progress skipped)", replayable, since, live);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("since", since.toString());
+        response.put("pending_found", pending.size());
+        response.put("in_progress", live);
+        response.put("requeued", replayable);
+        return response;
+    }
+
+    private void work() {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            workerThreads.add(Thread.currentThread());
+        } finally {
+            lock.unlock();
+        }
+        try {
+            while (running) {
+                Ticket ticket;
+                try {
+                    ticket = take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (ticket == null) {
+                    return;
+                }
+                process(ticket);
+            }
+        } finally {
+            lock.lock();
+            try {
+                workerThreads.remove(Thread.currentThread());
+                Thread.interrupted(); // the pool thread is shared: do not leak our stop signal
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void process(Ticket ticket) {
+        Map<String, Object> view;
+        try {
+            view = FlagSubmissionService.resultView(ticket.flag, flagSubmissionService.forward(ticket.journalSeq,
+                    request(ticket.teamId, ticket.gameId, ticket.flag)).join(), null);
+        } catch (CompletionException e) {
+            view = FlagSubmissionService.resultView(ticket.flag, null, e.getCause() != null ? e.getCause() : e);
+        } catch (Exception e) {
+            view = FlagSubmissionService.resultView(ticket.flag, null, e);
+        }
+        complete(ticket, view);
+    }
+
+    private static Map<String, Object> request(String teamId, String gameId, String flag) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("game_id", gameId);
+        request.put("team_id", teamId);
+        request.put("flag", flag);
+        return request;
+    }
+
+    private void complete(Ticket ticket, Map<String, Object> view) {
+        TeamResults team = teams.computeIfAbsent(ticket.teamId, id -> new TeamResults());
+        List<Stream> streams;
+        team.lock.lock();
+        try { // numbering and queueing under one lock: every outbox gets sequences in order
+            ticket.result = view;
+            ticket.sequence = ++team.lastSequence;
+            team.completed.addLast(ticket);
+            while (team.completed.size() > resultsPerTeam) {
+                tickets.remove(team.completed.pollFirst().id);
+            }
+            streams = List.copyOf(team.streams);
+            streams.forEach(stream -> stream.outbox.add(ticket));
+        } finally {
+            team.lock.unlock();
+        }
+        streams.forEach(stream -> drain(team, stream));
+        team.pending.decrementAndGet();
+        completed.increment();
+    }
+
+    // === Reads ===
+
+    public Optional<Ticket> getTicket(String ticketId) {
+        return Optional.ofNullable(tickets.get(ticketId));
+    }
+
+    /**
+     * Results of a team with sequence > after, oldest first
+     */
+    public Map<String, Object> results(String teamId, long after, int limit) {
+        TeamResults team = teams.computeIfAbsent(teamId, id -> new TeamResults());
+        List<Map<String, Object>> results = new ArrayList<>();
+        long next = after;
+        team.lock.lock();
+        try {
+            for (Ticket ticket : team.completed) {
+                if (ticket.sequence > after && results.size() < limit) {
+                    results.add(ticket.toMap());
+                    next = ticket.sequence;
+                }
+            }
+            if (results.isEmpty()) {
+                next = Math.max(after, team.lastSequence);
+            }
+        } finally {
+            team.lock.unlock();
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("team_id", teamId);
+        response.put("results", results);
+        response.put("next", next); // pass as ?after= on the next poll
+        response.put("pending", team.pending.get());
+        return response;
+    }
+
+    /**
+     * SSE stream of a team's results; replays results after lastEventId first
+     */
+    public SseEmitter stream(String teamId, Long lastEventId) {
+        TeamResults team = teams.computeIfAbsent(teamId, id -> new TeamResults());
+        Stream stream = new Stream(new SseEmitter(sseTimeoutMs));
+        Runnable remove = () -> close(team, stream);
+        stream.emitter.onCompletion(remove);
+        stream.emitter.onTimeout(remove);
+        stream.emitter.onError(error -> remove.run());
+
+        team.lock.lock();
+        try { // replay + register atomically: no result is missed or sent twice
+            if (lastEventId != null) {
+                for (Ticket ticket : team.completed) {
+                    if (ticket.sequence > lastEventId) {
+                        stream.outbox.add(ticket);
+                    }
+                }
+            }
+            team.streams.add(stream);
+        } finally {
+            team.lock.unlock();
+        }
+        drain(team, stream);
+        return stream.emitter;
+    }
+
+    /**
+     * Start the stream's drain task unless one is already running; the task re-checks the
+     * outbox after releasing the flag, so a result queued meanwhile is not stranded
+     */
+    private void drain(TeamResults team, Stream stream) {
+        if (stream.outbox.isEmpty() || !stream.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            upstreamExecutor.execute(() -> {
+                do {
+                    Ticket ticket;
+                    while ((ticket = stream.outbox.poll()) != null) {
+                        if (!send(team, stream, ticket)) {
+                            return; // closed: the flag stays set, nothing is sent to it again
+                        }
+                    }
+                    stream.draining.set(false);
+                } while (!stream.outbox.isEmpty() && stream.draining.compareAndSet(false, true));
+            });
+        } catch (RejectedExecutionException e) { // shutting down
+            stream.draining.set(false);
+        }
+    }
+
+    private boolean send(TeamResults team, Stream stream, Ticket ticket) {
+        try {
+            stream.emitter.send(SseEmitter.event()
+                    .id(Long.toString(ticket.sequence))
+                    .name("result")
+                    .data(ticket.toMap()));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            close(team, stream);
+            stream.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private static void close(TeamResults team, Stream stream) {
+        team.lock.lock();
+        try {
+            team.streams.remove(stream);
+        } finally {
+            team.lock.unlock();
+        }
+        stream.outbox.clear();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", capacity);
+        stats.put("max_per_team", maxPerTeam);
+        lock.lock();
+        try {
+            stats.put("queued", queued);
+            stats.put("teams_queued", backlogs.size());
+        } finally {
+            lock.unlock();
+        }
+        stats.put("workers", workers);
+        stats.put("enqueued", enqueued.sum());
+        stats.put("completed", completed.sum());
+        stats.put("shed", shed.sum());
+        stats.put("teams", teams.size());
+        stats.put("sse_streams", teams.values().stream().mapToInt(team -> {
+            team.lock.lock();
+            try {
+                return team.streams.size();
+            } finally {
+                team.lock.unlock();
+            }
+        }).sum());
+        return stats;
+    }
+
+    /**
+     * Completed results and live streams of one team (guarded by lock; never held while
+     * writing to a client)
+     */
+    private static final class TeamResults {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Ticket> completed = new ArrayDeque<>();
+        private final List<Stream> streams = new ArrayList<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private long lastSequence;
+    }
+
+    /**
+     * One SSE client: results waiting to be written, in sequence order, and whether a drain
+     * task currently owns the emitter
+     */
+    private static final class Stream {
+        private final SseEmitter emitter;
+        private final Queue<Ticket> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Stream(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
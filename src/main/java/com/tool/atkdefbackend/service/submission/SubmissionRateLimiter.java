@@ -0,0 +1,112 @@
+package com.tool.atkdefbackend.service.submission;
+
+import com.tool.atkdefbackend.exception.RateLimitExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-team flag submission budget shared by every transport
+ *
+ * One token bucket per team (submission-rate.per-second, up to submission-rate.burst
+ * saved up); each flag costs one token whether it arrives through the async queue,
+ * /extract or the TCP server, so a team cannot get around the limit by switching
+ * transport. Plain POST /submissions is charged only with submission-rate.http-enabled
+ * (off by default, so existing HTTP clients keep just the per-IP limit they had). The per-IP RateLimitingFilter only sees HTTP requests, not flags.
+ */
+@Component
+public class SubmissionRateLimiter {
+
+    @Value("${submission-rate.enabled:true}")
+    private boolean enabled;
+
+    @Value("${submission-rate.per-second:20}")
+    private double perSecond;
+
+    @Value("${submission-rate.burst:200}")
+    private int burst;
+
+    @Value("${submission-rate.http-enabled:false}")
+    private boolean httpEnabled;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+
+    /**
+     * Largest number of flags one call can ever be granted
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Whether flags coming in through this transport are charged (HTTP, TCP, EXTRACT, ...)
+     */
+    public boolean appliesTo(String source) {
+        return enabled && (httpEnabled || !"HTTP".equals(source));
+    }
+
+    /**
+     * Take tokens for flags of a team if all of them are available
+     */
+    public boolean tryAcquire(String teamId, int flags) {
+        if (!enabled || flags <= 0) {
+            return true;
+        }
+        boolean ok = buckets.computeIfAbsent(teamId, id -> new Bucket(burst)).tryTake(flags, perSecond, burst);
+        (ok ? granted : limited).add(flags);
+        return ok;
+    }
+
+    /**
+     * Like {@link #tryAcquire}, rejecting the whole request with 429 + Retry-After
+     */
+    public void acquire(String teamId, int flags) {
+        if (flags > burst && enabled) {
+            throw new IllegalArgumentException("At most " + burst + " flags per request");
+        }
+        if (!tryAcquire(teamId, flags)) {
+            throw new RateLimitExceededException("Submission rate limit of team " + teamId + " exceeded",
+                    Math.max(1, (long) Math.ceil(flags / perSecond)));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("http_enabled", httpEnabled);
+        stats.put("per_second", perSecond);
+        stats.put("burst", burst);
+        stats.put("teams", buckets.size());
+        stats.put("granted_flags", granted.sum());
+        stats.put("limited_flags", limited.sum());
+        return stats;
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        Bucket(int burst) {
+            this.tokens = burst;
+        }
+
+        synchronized boolean tryTake(int count, double perSecond, int burst) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) * perSecond / TimeUnit.SECONDS.toNanos(1));
+            refilledAt = now;
+            if (tokens < count) {
+                return false;
+            }
+            tokens -= count;
+            return true;
+        }
+    }
+}
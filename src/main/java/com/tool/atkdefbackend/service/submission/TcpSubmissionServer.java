@@ -0,0 +1,283 @@
+package com.tool.atkdefbackend.service.submission;
+
+import com.tool.atkdefbackend.config.security.JwtUtils;
+import com.tool.atkdefbackend.exception.DeadlineExceededException;
+import com.tool.atkdefbackend.exception.RateLimitExceededException;
+import com.tool.atkdefbackend.exception.ServiceOverloadedException;
+import com.tool.atkdefbackend.service.auth.UserDetailsImpl;
+import com.tool.atkdefbackend.service.auth.UserDetailsServiceImpl;
+import com.tool.atkdefbackend.service.tick.TickClock;
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyInbound;
+import reactor.netty.NettyOutbound;
+import reactor.netty.tcp.TcpServer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TCP flag submission server - one flag per line, one status per line (opt-in)
+ *
+ * Protocol (UTF-8, '\n' terminated):
+ * <pre>
+ *   server: "Welcome! Send your token"
+ *   client: "&lt;jwt&gt; [game_id]"          (game_id optional while exactly one game is running)
+ *   server: "OK team &lt;team_id&gt; game &lt;game_id&gt;"   or "ERROR &lt;code&gt;" and close
+ *   client: "FLAG{...}"                     (any number, pipelined)
+ *   server: "FLAG{...} ACCEPTED"            (one reply per flag, in request order)
+ *   server: "ERROR TOKEN_EXPIRED"           (when the token expires; the connection is closed)
+ * </pre>
+ * Replies carry a {@link com.tool.atkdefbackend.enums.SubmissionStatus} name, or one of the
+ * generic codes RATE_LIMITED, TIMEOUT, BUSY, UNAVAILABLE (details are only logged), or
+ * UNKNOWN when the core answered without a status.
+ * Authentication happens once per connection, for a running game, and lasts until the
+ * token expires; every flag then goes through {@link FlagSubmissionService} exactly like
+ * POST /api/proxy/submissions, and is charged against the team's rate limit.
+ */
+@Slf4j
+@Component
+public class TcpSubmissionServer {
+
+    private static final String GREETING = "Welcome! Send your token";
+
+    private final JwtUtils jwtUtils;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final TickClock tickClock;
+    private final FlagSubmissionService flagSubmissionService;
+    private final Scheduler blockingScheduler;
+
+    @Value("${submission-tcp.enabled:false}")
+    private boolean enabled;
+
+    @Value("${submission-tcp.host:0.0.0.0}")
+    private String host;
+
+    @Value("${submission-tcp.port:31337}")
+    private int port;
+
+    @Value("${submission-tcp.max-connections:512}")
+    private int maxConnections;
+
+    @Value("${submission-tcp.max-in-flight:32}")
+    private int maxInFlight;
+
+    @Value("${submission-tcp.max-line-length:512}")
+    private int maxLineLength;
+
+    @Value("${submission-tcp.idle-timeout-seconds:300}")
+    private long idleTimeoutSeconds;
+
+    private DisposableServer server;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder refusedConnections = new LongAdder();
+    private final LongAdder authFailures = new LongAdder();
+    private final LongAdder submissions = new LongAdder();
+
+    public TcpSubmissionServer(JwtUtils jwtUtils, UserDetailsServiceImpl userDetailsService, TickClock tickClock,
+                               FlagSubmissionService flagSubmissionService,
+                               @Qualifier("upstreamExecutor") ExecutorService upstreamExecutor) {
+        this.jwtUtils = jwtUtils;
+        this.userDetailsService = userDetailsService;
+        this.tickClock = tickClock;
+        this.flagSubmissionService = flagSubmissionService;
+        this.blockingScheduler = Schedulers.fromExecutorService(upstreamExecutor, "tcp-submission");
+    }
+
+    /**
+     * Authenticated connection: team and game are fixed for its lifetime, which ends at expiresAt
+     */
+    private record Session(String username, String teamId, String gameId, Instant expiresAt) {
+    }
+
+    /**
+     * Session refusal with a code that is safe to send to the client
+     */
+    private static final class RefusedException extends RuntimeException {
+        RefusedException(String code) {
+            super(code);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        server = TcpServer.create()
+                .host(host)
+                .port(port)
+                .doOnConnection(connection -> connection
+                        .addHandlerLast(new LineBasedFrameDecoder(maxLineLength))
+                        .onReadIdle(Duration.ofSeconds(idleTimeoutSeconds).toMillis(), connection::dispose))
+                .handle(this::handle)
+                .bindNow();
+        log.info("TCP flag submission server listening on {}:{}", host, server.port());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private Mono<Void> handle(NettyInbound inbound, NettyOutbound outbound) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            refusedConnections.increment();
+            return outbound.sendString(Mono.just("ERROR too many connections\n"), StandardCharsets.UTF_8).then();
+        }
+        acceptedConnections.increment();
+
+        Flux<String> lines = inbound.receive().asString(StandardCharsets.UTF_8)
+                .map(String::strip)
+                .filter(line -> !line.isEmpty());
+
+        Flux<String> replies = lines.switchOnFirst((first, all) -> {
+            if (!first.hasValue()) {
+                return Flux.empty();
+            }
+            return Mono.fromCallable(() -> authenticate(first.get()))
+                    .subscribeOn(blockingScheduler) // user lookup hits the database
+                    .flatMapMany(session -> {
+                        Duration valid = Duration.between(Instant.now(), session.expiresAt());
+                        return Flux.concat(
+                                Mono.just("OK team " + session.teamId() + " game " + session.gameId()),
+                                all.skip(1)
+                                        .takeUntilOther(Mono.delay(valid)) // stop reading flags at token expiry
+                                        .flatMapSequential(flag -> submit(session, flag), maxInFlight),
+                                Mono.fromSupplier(() -> Instant.now().isBefore(session.expiresAt())
+                                        ? null : "ERROR TOKEN_EXPIRED"));
+                    })
+                    .onErrorResume(e -> {
+                        if (e instanceof RefusedException) {
+                            return Mono.just("ERROR " + e.getMessage());
+                        }
+                        log.warn("TCP submission session failed: {}", e.getMessage());
+                        return Mono.just("ERROR UNAVAILABLE");
+                    });
+        });
+
+        return outbound.sendString(Flux.concat(Mono.just(GREETING), replies).map(line -> line + "\n"),
+                        StandardCharsets.UTF_8)
+                .then()
+                .doFinally(signal -> connections.decrementAndGet());
+    }
+
+    /**
+     * First line: "&lt;jwt&gt; [game_id]" (a "Bearer " prefix is accepted)
+     */
+    private Session authenticate(String line) {
+        try {
+            return openSession(line);
+        } catch (RuntimeException e) {
+            authFailures.increment();
+            throw e;
+        }
+    }
+
+    private Session openSession(String line) {
+        String[] parts = line.replaceFirst("^Bearer\\s+", "").split("\\s+");
+        String token = parts[0];
+        if (!jwtUtils.validateJwtToken(token)) {
+            throw new RefusedException("INVALID_TOKEN");
+        }
+        UserDetailsImpl user;
+        try {
+            user = (UserDetailsImpl) userDetailsService.loadUserByUsername(jwtUtils.getUserNameFromJwtToken(token));
+        } catch (UsernameNotFoundException e) {
+            throw new RefusedException("INVALID_TOKEN");
+        }
+        if (!FlagSubmissionService.isTeamUser(user) || user.getTeamId() == null || user.getTeamId().equals("0")) {
+            throw new RefusedException("TEAM_ACCOUNT_REQUIRED");
+        }
+        Date expiration = jwtUtils.getExpirationFromJwtToken(token);
+        Instant expiresAt = expiration != null ? expiration.toInstant() : Instant.now().plusSeconds(idleTimeoutSeconds);
+
+        String gameId = parts.length > 1 ? parts[1] : null;
+        if (gameId == null) {
+            List<String> running = tickClock.trackedGames().stream()
+                    .filter(tickClock::isRunning)
+                    .toList();
+            if (running.size() != 1) {
+                throw new RefusedException("GAME_ID_REQUIRED");
+            }
+            gameId = running.get(0);
+        } else if (!tickClock.track(gameId)) {
+            throw new RefusedException("GAME_NOT_RUNNING"); // only running games are tracked
+        }
+
+        Map<String, Object> probe = new LinkedHashMap<>();
+        String teamId = flagSubmissionService.enforceTeam(user, probe);
+        log.info("TCP submission session for team {} (user: {}) in game {}", teamId, user.getUsername(), gameId);
+        return new Session(user.getUsername(), teamId, gameId, expiresAt);
+    }
+
+    private Mono<String> submit(Session session, String flag) {
+        submissions.increment();
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("game_id", session.gameId());
+        request.put("team_id", session.teamId());
+        request.put("flag", flag);
+        return Mono.fromFuture(() -> flagSubmissionService.submit(session.username(), "TCP", request))
+                .map(result -> {
+                    String status = FlagSubmissionService.statusOf(result);
+                    String reason = FlagSubmissionService.reasonOf(result);
+                    return flag + " " + status + (reason != null ? " " + reason : "");
+                })
+                .onErrorResume(e -> Mono.just(flag + " " + errorCode(e)));
+    }
+
+    /**
+     * Generic reply for a failed submission; the exception text stays in the log
+     */
+    private static String errorCode(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RateLimitExceededException) {
+            return "RATE_LIMITED";
+        }
+        log.warn("TCP submission failed: {}", cause.getMessage());
+        if (cause instanceof DeadlineExceededException) {
+            return "TIMEOUT";
+        }
+        if (cause instanceof ServiceOverloadedException) {
+            return "BUSY";
+        }
+        return "UNAVAILABLE";
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("port", server != null ? server.port() : port);
+        stats.put("open_connections", connections.get());
+        stats.put("accepted_connections", acceptedConnections.sum());
+        stats.put("refused_connections", refusedConnections.sum());
+        stats.put("auth_failures", authFailures.sum());
+        stats.put("submissions", submissions.sum());
+        return stats;
+    }
+}
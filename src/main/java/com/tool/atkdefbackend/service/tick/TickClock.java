@@ -0,0 +1,276 @@
+package com.tool.atkdefbackend.service.tick;
+
+import com.tool.atkdefbackend.enums.GameStatus;
+import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.changefeed.ChangeFeedResyncEvent;
+import com.tool.atkdefbackend.service.changefeed.GatewayChangeEvent;
+import com.tool.atkdefbackend.service.proxy.CorePayloads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Central tick clock - the single upstream tick observer of the gateway
+ *
+ * Tracks the current tick of every RUNNING game and publishes {@link TickEndedEvent} /
+ * {@link TickStartedEvent} as Spring application events. Caches, long-poll waiters,
+ * scoreboard refreshers etc. subscribe with @EventListener instead of polling
+ * /ticks/current themselves, so the whole gateway agrees on one tick number.
+ *
+ * Polling is aligned to tick boundaries: after observing a tick the next poll is
+ * scheduled at started_at + tick_duration_seconds + grace, then retried quickly
+ * until the core has actually advanced. Listeners run on the clock thread and must
+ * be quick (hand heavy work to an executor).
+ */
+@Slf4j
+@Service
+public class TickClock {
+
+    private final PythonProxyService pythonProxyService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${tick-clock.enabled:true}")
+    private boolean enabled;
+
+    @Value("${tick-clock.games-refresh-ms:15000}")
+    private long gamesRefreshMs;
+
+    @Value("${tick-clock.boundary-grace-ms:300}")
+    private long boundaryGraceMs;
+
+    @Value("${tick-clock.catch-up-interval-ms:250}")
+    private long catchUpIntervalMs;
+
+    @Value("${tick-clock.fallback-interval-ms:2000}")
+    private long fallbackIntervalMs;
+
+    @Value("${tick-clock.max-interval-ms:10000}")
+    private long maxIntervalMs;
+
+    private final ConcurrentHashMap<String, GameClock> clocks = new ConcurrentHashMap<>();
+    private volatile Set<String> runningGames = Set.of(); // RUNNING as of the last games refresh
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+        Thread thread = new Thread(r, "tick-clock");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TickClock(PythonProxyService pythonProxyService, ApplicationEventPublisher eventPublisher) {
+        this.pythonProxyService = pythonProxyService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Tick clock disabled");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::refreshRunningGames, 0, gamesRefreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Last observed tick of a game
+     */
+    public Optional<TickSnapshot> current(String gameId) {
+        GameClock clock = clocks.get(gameId);
+        return clock != null ? Optional.ofNullable(clock.snapshot) : Optional.empty();
+    }
+
+    /**
+     * Current tick number of a game, or null if not observed yet
+     */
+    public Integer currentTickNumber(String gameId) {
+        return current(gameId).map(TickSnapshot::tickNumber).orElse(null);
+    }
+
+    /**
+     * Whether the last games refresh saw the game RUNNING. Client-supplied game ids must
+     * pass this before anything is parked or tracked for them.
+     */
+    public boolean isRunning(String gameId) {
+        return gameId != null && runningGames.contains(gameId);
+    }
+
+    /**
+     * Make sure a RUNNING game is observed (e.g. its clock was dropped by a failed poll).
+     * Ids the games refresh does not know as RUNNING are ignored, so callers can never
+     * start upstream polling for an arbitrary id.
+     *
+     * @return whether the game is tracked
+     */
+    public boolean track(String gameId) {
+        if (!enabled || !isRunning(gameId)) {
+            return false;
+        }
+        clocks.computeIfAbsent(gameId, id -> {
+            GameClock clock = new GameClock(id, null);
+            schedule(clock, 0);
+            return clock;
+        });
+        return true;
+    }
+
+    public Set<String> trackedGames() {
+        return Collections.unmodifiableSet(clocks.keySet());
+    }
+
+    // === Running games discovery ===
+
+    /**
+     * Game started/paused/finished in the database: refresh now instead of at the next interval
+     */
+    @EventListener
+    public void onGameChanged(GatewayChangeEvent event) {
+        if (enabled && event.isTable("games")) {
+            scheduler.execute(this::refreshRunningGames);
+        }
+    }
+
+    @EventListener
+    public void onResync(ChangeFeedResyncEvent event) {
+        if (enabled) {
+            scheduler.execute(this::refreshRunningGames);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void refreshRunningGames() {
+        try {
+            Map<String, Object> body = pythonProxyService.proxyGetUncached("/games?skip=0&limit=100", Map.class);
+            if (!(body.get("games") instanceof List<?> games)) {
+                return;
+            }
+
+            Map<String, Integer> running = new HashMap<>();
+            for (Object item : games) {
+                if (item instanceof Map<?, ?> game && game.get("id") != null
+                        && GameStatus.RUNNING.name().equalsIgnoreCase(String.valueOf(game.get("status")))) {
+                    running.put(game.get("id").toString(), CorePayloads.asInteger(game.get("tick_duration_seconds")));
+                }
+            }
+
+            runningGames = Set.copyOf(running.keySet());
+            running.forEach((gameId, duration) -> {
+                GameClock clock = clocks.computeIfAbsent(gameId, id -> {
+                    GameClock created = new GameClock(id, duration);
+                    schedule(created, 0);
+                    log.info("Tick clock tracking game {} (tick {}s)", id, duration);
+                    return created;
+                });
+                clock.durationSeconds = duration;
+            });
+
+            clocks.values().removeIf(clock -> {
+                if (running.containsKey(clock.gameId)) {
+                    return false;
+                }
+                ScheduledFuture<?> next = clock.next;
+                if (next != null) {
+                    next.cancel(false);
+                }
+                log.info("Tick clock stopped tracking game {} (not running)", clock.gameId);
+                return true;
+            });
+        } catch (Exception e) {
+            log.warn("Tick clock games refresh failed: {}", e.getMessage());
+        }
+    }
+
+    // === Per-game observation ===
+
+    private void schedule(GameClock clock, long delayMs) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        clock.next = scheduler.schedule(() -> observe(clock), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void observe(GameClock clock) {
+        if (clocks.get(clock.gameId) != clock) {
+            return; // untracked meanwhile
+        }
+        TickSnapshot previous = clock.snapshot;
+        TickSnapshot observed = null;
+        try {
+            if (clock.durationSeconds == null) {
+                Map<String, Object> game = pythonProxyService.proxyGetUncached("/games/" + clock.gameId, Map.class);
+                clock.durationSeconds = CorePayloads.asInteger(game.get("tick_duration_seconds"));
+            }
+            Map<String, Object> tick = pythonProxyService.proxyGetUncached("/ticks/current?game_id=" + clock.gameId, Map.class);
+            observed = TickSnapshot.from(clock.gameId, tick, clock.durationSeconds);
+        } catch (Exception e) {
+            log.warn("Tick clock poll failed for game {}: {}", clock.gameId, e.getMessage());
+        }
+
+        if (observed != null) {
+            clock.snapshot = observed;
+            if (previous == null || previous.tickNumber() != observed.tickNumber()) {
+                publishTransition(previous, observed);
+            }
+        }
+        schedule(clock, nextDelayMs(clock.snapshot));
+    }
+
+    private void publishTransition(TickSnapshot previous, TickSnapshot started) {
+        if (previous != null) {
+            log.info("Tick transition in game {}: {} -> {}", started.gameId(), previous.tickNumber(), started.tickNumber());
+            publish(new TickEndedEvent(previous));
+        }
+        publish(new TickStartedEvent(started, previous != null ? previous.tickNumber() : null));
+    }
+
+    private void publish(Object event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (Exception e) {
+            log.error("Tick event listener failed for {}: {}", event, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Poll again just after the expected boundary, quickly while the core is late
+     */
+    private long nextDelayMs(TickSnapshot snapshot) {
+        Instant end = snapshot != null ? snapshot.expectedEnd() : null;
+        if (end == null) {
+            return fallbackIntervalMs;
+        }
+        long untilBoundary = Duration.between(Instant.now(), end).toMillis() + boundaryGraceMs;
+        if (untilBoundary <= 0) {
+            // Core is late: retry fast for a while, then stop hammering it
+            return -untilBoundary < maxIntervalMs ? catchUpIntervalMs : fallbackIntervalMs;
+        }
+        return Math.min(untilBoundary, maxIntervalMs);
+    }
+
+    /**
+     * Observation state of one game
+     */
+    private static class GameClock {
+        private final String gameId;
+        private volatile Integer durationSeconds;
+        private volatile TickSnapshot snapshot;
+        private volatile ScheduledFuture<?> next;
+
+        GameClock(String gameId, Integer durationSeconds) {
+            this.gameId = gameId;
+            this.durationSeconds = durationSeconds;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.tool.atkdefbackend.service.tick;
+
+/**
+ * Published by {@link TickClock} right before the {@link TickStartedEvent} of the next tick
+ * (ServiceStatusGrid takes a last read of the ended tick on it)
+ */
+public record TickEndedEvent(TickSnapshot tick) {
+
+    public String gameId() {
+        return tick.gameId();
+    }
+}
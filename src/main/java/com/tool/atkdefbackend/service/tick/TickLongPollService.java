@@ -0,0 +1,97 @@
+package com.tool.atkdefbackend.service.tick;
+
+import com.tool.atkdefbackend.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wait-for-next-tick long polling
+ *
+ * Requests are parked as DeferredResult (no servlet thread held) and all waiters
+ * of a game are released together when {@link TickClock} publishes the next
+ * {@link TickStartedEvent}. No upstream polling happens here.
+ * Only games the clock knows as RUNNING can be waited on (404 otherwise), and a
+ * game's waiter map is dropped with its last waiter.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TickLongPollService {
+
+    private static final int NO_TICK = Integer.MIN_VALUE; // waiter wants the next transition
+
+    private final TickClock tickClock;
+
+    @Value("${tick-longpoll.max-timeout-seconds:120}")
+    private long maxTimeoutSeconds;
+
+    private final ConcurrentHashMap<String, Map<DeferredResult<ResponseEntity<?>>, Integer>> waiters =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Park until the tick after {@code afterTick} starts (or the next transition if null).
+     * Completes with 204 No Content when the timeout elapses first.
+     */
+    public DeferredResult<ResponseEntity<?>> awaitNextTick(String gameId, Integer afterTick, long timeoutSeconds) {
+        if (!tickClock.track(gameId)) {
+            throw new ResourceNotFoundException("Running game", "game_id", gameId);
+        }
+        long timeout = Math.max(1, Math.min(timeoutSeconds, maxTimeoutSeconds));
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(
+                TimeUnit.SECONDS.toMillis(timeout), ResponseEntity.noContent().build());
+
+        Optional<TickSnapshot> current = tickClock.current(gameId);
+        if (afterTick != null && current.isPresent() && current.get().tickNumber() > afterTick) {
+            result.setResult(ResponseEntity.ok(current.get().toMap()));
+            return result;
+        }
+
+        int after = afterTick != null ? afterTick : NO_TICK;
+        waiters.compute(gameId, (id, pending) -> {
+            Map<DeferredResult<ResponseEntity<?>>, Integer> map = pending != null ? pending : new ConcurrentHashMap<>();
+            map.put(result, after);
+            return map;
+        });
+        result.onCompletion(() -> waiters.computeIfPresent(gameId, (id, pending) -> {
+            pending.remove(result);
+            return pending.isEmpty() ? null : pending;
+        }));
+
+        // A tick that started between the check above and the registration published its
+        // event before this waiter was visible: check again now that it is
+        if (afterTick != null) {
+            tickClock.current(gameId)
+                    .filter(tick -> tick.tickNumber() > afterTick)
+                    .ifPresent(tick -> result.setResult(ResponseEntity.ok(tick.toMap())));
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onTickStarted(TickStartedEvent event) {
+        Map<DeferredResult<ResponseEntity<?>>, Integer> pending = waiters.get(event.gameId());
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+
+        int number = event.tick().tickNumber();
+        ResponseEntity<?> response = ResponseEntity.ok(event.tick().toMap());
+        pending.forEach((waiter, after) -> {
+            boolean release = after == NO_TICK ? event.isTransition() : number > after;
+            if (release) {
+                waiter.setResult(response);
+            }
+        });
+        log.debug("Tick {} of game {} released waiters, {} still parked", number, event.gameId(), pending.size());
+    }
+}
@@ -0,0 +1,69 @@
+package com.tool.atkdefbackend.service.tick;
+
+import com.tool.atkdefbackend.service.proxy.CorePayloads;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable view of one game's current tick as observed by {@link TickClock}
+ *
+ * @param raw tick object exactly as returned by Python Core /ticks/current
+ */
+public record TickSnapshot(
+        String gameId,
+        int tickNumber,
+        String tickId,
+        Instant startedAt,
+        Integer durationSeconds,
+        Instant observedAt,
+        Map<String, Object> raw) {
+
+    /**
+     * Build a snapshot from a /ticks/current payload, or null if it holds no tick
+     */
+    public static TickSnapshot from(String gameId, Map<String, Object> tick, Integer durationSeconds) {
+        if (tick == null) {
+            return null;
+        }
+        Integer number = CorePayloads.asInteger(tick.get("tick_number") != null ? tick.get("tick_number") : tick.get("number"));
+        if (number == null) {
+            return null; // No running tick (or error map from core)
+        }
+        Object id = tick.get("id");
+        Instant started = CorePayloads.asInstant(tick.get("started_at") != null ? tick.get("started_at") : tick.get("start_time"));
+        return new TickSnapshot(gameId, number, id != null ? id.toString() : null, started, durationSeconds,
+                Instant.now(), tick);
+    }
+
+    /**
+     * When this tick should end, if start time and duration are known
+     */
+    public Instant expectedEnd() {
+        if (startedAt == null || durationSeconds == null) {
+            return null;
+        }
+        return startedAt.plusSeconds(durationSeconds);
+    }
+
+    public Long remainingSeconds() {
+        Instant end = expectedEnd();
+        if (end == null) {
+            return null;
+        }
+        return Math.max(0, Duration.between(Instant.now(), end).toSeconds());
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("game_id", gameId);
+        map.put("tick_number", tickNumber);
+        map.put("tick_id", tickId);
+        map.put("remaining_seconds", remainingSeconds());
+        map.put("observed_at", observedAt.toString());
+        map.put("tick", raw);
+        return map;
+    }
+}
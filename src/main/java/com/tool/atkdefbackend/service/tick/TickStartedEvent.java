@@ -0,0 +1,17 @@
+package com.tool.atkdefbackend.service.tick;
+
+/**
+ * Published by {@link TickClock} when a game's current tick is first observed or changes
+ *
+ * @param previousTickNumber null on the first observation of a game (not a real transition)
+ */
+public record TickStartedEvent(TickSnapshot tick, Integer previousTickNumber) {
+
+    public String gameId() {
+        return tick.gameId();
+    }
+
+    public boolean isTransition() {
+        return previousTickNumber != null;
+    }
+}
@@ -0,0 +1,43 @@
+-- ==============================================================
+-- Gateway change feed (PostgreSQL LISTEN/NOTIFY)
+-- Idempotent: safe to run many times, skips tables that do not exist yet and
+-- tables that already have the trigger (never drops a trigger on a live table)
+-- Installed by the gateway when change-feed.install-triggers=true; it re-runs this
+-- on reconnect / periodically until every table below has its trigger
+-- ==============================================================
+
+-- Payload: {"table": "games", "op": "UPDATE", "id": "...", "game_id": "..."}
+-- Only identifiers are sent (NOTIFY payload limit is 8000 bytes)
+CREATE OR REPLACE FUNCTION gateway_notify_change() RETURNS trigger AS $$
+DECLARE
+    row_data jsonb;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        row_data := to_jsonb(OLD);
+    ELSE
+        row_data := to_jsonb(NEW);
+    END IF;
+    PERFORM pg_notify('gateway_changes', json_build_object(
+        'table', TG_TABLE_NAME,
+        'op', TG_OP,
+        'id', row_data ->> 'id',
+        'game_id', row_data ->> 'game_id')::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Low-volume tables the gateway caches (NOT flags / submissions / service_statuses)
+DO $$
+DECLARE
+    tbl text;
+BEGIN
+    FOREACH tbl IN ARRAY ARRAY['games', 'game_teams', 'teams', 'checkers', 'vulnboxes'] LOOP
+        IF to_regclass('public.' || tbl) IS NOT NULL AND NOT EXISTS (
+                SELECT 1 FROM pg_trigger
+                WHERE tgname = 'gateway_change_feed' AND tgrelid = to_regclass('public.' || tbl)) THEN
+            EXECUTE format('CREATE TRIGGER gateway_change_feed AFTER INSERT OR UPDATE OR DELETE ON public.%I '
+                           || 'FOR EACH ROW EXECUTE FUNCTION gateway_notify_change()', tbl);
+        END IF;
+    END LOOP;
+END;
+$$;
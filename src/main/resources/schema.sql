@@ -37,6 +37,17 @@ INSERT INTO teams (username, password, role, name)
 VALUES ('admin', '$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZRGdjGj/n3YJHgkIvPh2DPFT.Nqje', 'ADMIN', 'Administrator')
 ON CONFLICT (username) DO NOTHING;
 
+-- ==============================================================
+-- 2. GATEWAY GAME PINS (static game -> Python Core instance)
+-- ==============================================================
+CREATE TABLE IF NOT EXISTS gateway_game_pins (
+    game_id         VARCHAR(64) PRIMARY KEY,
+    upstream        VARCHAR(255) NOT NULL,
+    pinned_at       TIMESTAMP NOT NULL
+);
+
+COMMENT ON TABLE gateway_game_pins IS 'Admin shard pins of the gateway, reloaded on startup';
+
 -- ==============================================================
 -- OTHER TABLES ARE CREATED BY GAMECORESERVER
 -- ==============================================================
@@ -50,3 +61,9 @@ ON CONFLICT (username) DO NOTHING;
 -- vulnboxes       - Created by GameCoreServer
 -- checkers        - Created by GameCoreServer
 -- ==============================================================
+
+-- ==============================================================
+-- CHANGE FEED TRIGGERS (gateway cache invalidation)
+-- ==============================================================
+-- See db/change-feed.sql - run it after GameCoreServer created its tables,
+-- or let the gateway install it (change-feed.enabled=true)
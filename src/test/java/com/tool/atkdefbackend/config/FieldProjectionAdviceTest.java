@@ -0,0 +1,79 @@
+package com.tool.atkdefbackend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tool.atkdefbackend.service.proxy.FieldProjection;
+import com.tool.atkdefbackend.service.proxy.ResponseCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FieldProjectionAdviceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private FieldProjectionAdvice advice;
+
+    @BeforeEach
+    void setUp() {
+        FieldProjection projection = new FieldProjection(objectMapper);
+        ReflectionTestUtils.setField(projection, "maxFields", 32);
+        ReflectionTestUtils.setField(projection, "maxBytes", 1_000_000L);
+        projection.init();
+        advice = new FieldProjectionAdvice(projection,
+                new ResponseCache(objectMapper, Executors.newVirtualThreadPerTaskExecutor()), objectMapper);
+    }
+
+    private Object write(Object body, String method, String fields, int status) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/proxy/scoreboard/g/top");
+        if (fields != null) {
+            request.setParameter(FieldProjection.PARAM, fields);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+        return advice.beforeBodyWrite(body, null, MediaType.APPLICATION_JSON, MappingJackson2HttpMessageConverter.class,
+                new ServletServerHttpRequest(request), new ServletServerHttpResponse(response));
+    }
+
+    @Test
+    void projectsObjectBodies() {
+        Map<String, Object> leaderboard = Map.of("game_id", "g",
+                "entries", List.of(Map.of("team_id", "1", "total", 10, "rank", 1)));
+
+        Object projected = write(leaderboard, "GET", "team_id", 200);
+
+        assertThat(projected.toString()).isEqualTo("{\"entries\":[{\"team_id\":\"1\"}]}");
+    }
+
+    @Test
+    void leavesHttpErrorsUntouched() {
+        Map<String, Object> error = Map.of("success", false, "error", "bad request");
+
+        assertThat(write(error, "GET", "error", 400)).isSameAs(error);
+    }
+
+    @Test
+    void leavesCoreErrorRepliesUntouched() {
+        Map<String, Object> error = Map.of("success", false, "status", 503, "detail", "down");
+
+        assertThat(write(error, "GET", "detail", 200)).isSameAs(error);
+    }
+
+    @Test
+    void ignoresWritesAndRequestsWithoutFields() {
+        Map<String, Object> body = Map.of("a", 1, "b", 2);
+
+        assertThat(write(body, "POST", "a", 200)).isSameAs(body);
+        assertThat(write(body, "GET", null, 200)).isSameAs(body);
+    }
+}
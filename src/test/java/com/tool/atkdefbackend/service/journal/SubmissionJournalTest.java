@@ -0,0 +1,216 @@
+package com.tool.atkdefbackend.service.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubmissionJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<SubmissionJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() {
+        opened.forEach(SubmissionJournal::destroy);
+    }
+
+    /**
+     * Journal on directory with tiny segments (a handful of records each), recovering what is there
+     */
+    private SubmissionJournal open(Path directory, int maxSegments) {
+        SubmissionJournal journal = new SubmissionJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "dir", directory.toString());
+        ReflectionTestUtils.setField(journal, "segmentBytes", 256);
+        ReflectionTestUtils.setField(journal, "maxSegments", maxSegments);
+        ReflectionTestUtils.setField(journal, "fsyncIntervalMs", 1000L);
+        journal.init();
+        opened.add(journal);
+        return journal;
+    }
+
+    private static ByteBuffer segmentOf(byte[]... records) {
+        int size = SubmissionJournalReader.HEADER_BYTES + 4;
+        for (byte[] record : records) {
+            size += record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(SubmissionJournalReader.MAGIC).putLong(7);
+        for (byte[] record : records) {
+            buffer.put(record);
+        }
+        return buffer.putInt(0).flip();
+    }
+
+    @Test
+    void recordsRoundTrip() {
+        byte[] arrived = SubmissionJournalReader.encode(SubmissionJournalReader.ARRIVED, 7, 1000L,
+                "alice", "3", "game-1", "FLAG{abc}", null);
+        byte[] result = SubmissionJournalReader.encode(SubmissionJournalReader.RESULT, 7, 2000L, "ACCEPTED");
+        List<SubmissionJournalReader.Record> records = new ArrayList<>();
+
+        SubmissionJournalReader.Tail tail = SubmissionJournalReader.read(segmentOf(arrived, result), records::add);
+
+        assertThat(records).hasSize(2);
+        assertThat(records.get(0).type()).isEqualTo(SubmissionJournalReader.ARRIVED);
+        assertThat(records.get(0).seq()).isEqualTo(7);
+        assertThat(records.get(0).epochMillis()).isEqualTo(1000L);
+        assertThat(records.get(0).fields()).containsExactly("alice", "3", "game-1", "FLAG{abc}", null);
+        assertThat(records.get(1).type()).isEqualTo(SubmissionJournalReader.RESULT);
+        assertThat(records.get(1).fields()).containsExactly("ACCEPTED");
+        assertThat(tail.position()).isEqualTo(SubmissionJournalReader.HEADER_BYTES + arrived.length + result.length);
+        assertThat(tail.lastSeq()).isEqualTo(7);
+    }
+
+    @Test
+    void tornRecordEndsTheSegment() {
+        byte[] first = SubmissionJournalReader.encode(SubmissionJournalReader.ARRIVED, 7, 1000L, "a", "1", "g", "FLAG{1}", "HTTP");
+        byte[] second = SubmissionJournalReader.encode(SubmissionJournalReader.ARRIVED, 8, 1001L, "a", "1", "g", "FLAG{2}", "HTTP");
+        second[second.length - 1] ^= 0x5A; // CRC no longer matches
+        List<SubmissionJournalReader.Record> records = new ArrayList<>();
+
+        SubmissionJournalReader.Tail tail = SubmissionJournalReader.read(segmentOf(first, second), records::add);
+
+        assertThat(records).extracting(SubmissionJournalReader.Record::seq).containsExactly(7L);
+        assertThat(tail.position()).isEqualTo(SubmissionJournalReader.HEADER_BYTES + first.length);
+    }
+
+    @Test
+    void badMagicIsUnreadable() {
+        ByteBuffer buffer = segmentOf();
+        buffer.putInt(0, 0xDEADBEEF);
+
+        assertThat(SubmissionJournalReader.read(buffer, null).position()).isNegative();
+    }
+
+    @Test
+    void rotatesAndQueriesAcrossSegments() throws IOException {
+        SubmissionJournal journal = open(dir, 64);
+        List<Long> seqs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            long seq = journal.arrived("alice", "1", "g", "FLAG{" + i + "}", "HTTP");
+            seqs.add(seq);
+            if (i % 2 == 0) {
+                journal.result(seq, "ACCEPTED");
+            }
+        }
+
+        assertThat(SubmissionJournalReader.segments(dir)).hasSizeGreaterThan(1);
+        assertThat(seqs).doesNotHaveDuplicates().isSorted();
+        List<SubmissionJournalReader.Entry> all = journal.query(null, Instant.EPOCH, false, 100);
+        assertThat(all).extracting(SubmissionJournalReader.Entry::seq).containsExactlyElementsOf(seqs);
+        assertThat(journal.query("1", Instant.EPOCH, true, 100))
+                .extracting(SubmissionJournalReader.Entry::flag)
+                .containsExactly("FLAG{1}", "FLAG{3}", "FLAG{5}", "FLAG{7}", "FLAG{9}",
+                        "FLAG{11}", "FLAG{13}", "FLAG{15}", "FLAG{17}", "FLAG{19}");
+    }
+
+    @Test
+    void limitedQueriesMatchTheFirstEntriesOfAFullScan() throws IOException {
+        SubmissionJournal journal = open(dir, 64);
+        List<Long> seqs = new ArrayList<>();
+        Map<Long, String> statuses = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            seqs.add(journal.arrived("alice", String.valueOf(i % 2), "g", "FLAG{" + i + "}", "HTTP"));
+            if (i >= 4 && i % 3 != 0) { // answered a few arrivals (and segments) later
+                long answered = seqs.get(i - 4);
+                statuses.put(answered, i % 5 == 0 ? "ERROR" : "ACCEPTED");
+                journal.result(answered, statuses.get(answered));
+            }
+            long earlier = i >= 8 ? seqs.get(i - 8) : -1;
+            if (earlier > 0 && !"ACCEPTED".equals(statuses.get(earlier))) {
+                journal.result(earlier, "REPLAYED"); // supersedes a missing or ERROR result
+            }
+        }
+        assertThat(SubmissionJournalReader.segments(dir)).hasSizeGreaterThan(3);
+
+        for (String team : new String[]{null, "1"}) {
+            for (boolean pendingOnly : new boolean[]{false, true}) {
+                List<SubmissionJournalReader.Entry> all = journal.query(team, Instant.EPOCH, pendingOnly, Integer.MAX_VALUE);
+                for (int limit = 1; limit <= all.size() + 1; limit++) {
+                    assertThat(journal.query(team, Instant.EPOCH, pendingOnly, limit))
+                            .as("team %s, pending only %s, limit %d", team, pendingOnly, limit)
+                            .isEqualTo(all.subList(0, Math.min(limit, all.size())));
+                }
+            }
+        }
+    }
+
+    @Test
+    void recoveryAfterCrashNeverReusesSeqs() throws IOException {
+        // crash after every operation count, losing everything written to the newest segment
+        // (unsynced): some crashes land right after a rotation that a result triggered, leaving
+        // the answered arrival readable in the previous segment
+        for (int operations = 1; operations <= 30; operations++) {
+            Path run = dir.resolve("run-" + operations);
+            SubmissionJournal before = open(run, 64);
+            for (int i = 0; i < operations; i++) {
+                long seq = before.arrived("alice", "1", "g", "FLAG{" + i + "}", "TCP");
+                before.result(seq, "INVALID");
+            }
+            before.destroy();
+            List<Path> segments = SubmissionJournalReader.segments(run);
+            try (FileChannel channel = FileChannel.open(segments.get(segments.size() - 1), StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(4), SubmissionJournalReader.HEADER_BYTES); // end of data right after the header
+            }
+            long highest = SubmissionJournalReader.query(run, null, null, false, Integer.MAX_VALUE).stream()
+                    .mapToLong(SubmissionJournalReader.Entry::seq)
+                    .max().orElse(0);
+
+            SubmissionJournal after = open(run, 64);
+            assertThat(after.arrived("bob", "2", "g", "FLAG{new}", "HTTP"))
+                    .as("first seq after %d operations", operations)
+                    .isGreaterThan(highest);
+        }
+    }
+
+    @Test
+    void unreadableNewestSegmentStartsPastReadableSeqs() throws IOException {
+        SubmissionJournal before = open(dir, 64);
+        long highest = 0;
+        for (int i = 0; i < 12; i++) {
+            highest = before.arrived("alice", "1", "g", "FLAG{" + i + "}", "HTTP");
+        }
+        List<Path> segments = SubmissionJournalReader.segments(dir);
+        assertThat(segments).hasSizeGreaterThan(1);
+        try (FileChannel channel = FileChannel.open(segments.get(segments.size() - 1), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), 0); // wipe the magic
+        }
+
+        SubmissionJournal after = open(dir, 64);
+
+        assertThat(after.arrived("bob", "2", "g", "FLAG{new}", "HTTP"))
+                .isGreaterThan(SubmissionJournalReader.baseOf(segments.get(segments.size() - 1)))
+                .isGreaterThan(highest - 4); // at most the unreadable segment's few records are lost
+        assertThat(SubmissionJournalReader.segments(dir)).hasSize(segments.size() + 1);
+    }
+
+    @Test
+    void oldestSegmentsAreDeletedBeyondMax() throws IOException {
+        SubmissionJournal journal = open(dir, 3);
+        for (int i = 0; i < 40; i++) {
+            journal.arrived("alice", "1", "g", "FLAG{" + i + "}", "HTTP");
+        }
+        journal.destroy(); // waits for the flusher to retire the rotated segments
+
+        List<Path> segments = SubmissionJournalReader.segments(dir);
+        assertThat(segments).hasSize(3);
+        assertThat(segments).extracting(SubmissionJournalReader::baseOf).isSorted();
+    }
+}
@@ -0,0 +1,122 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FieldProjectionTest {
+
+    private FieldProjection projection;
+
+    @BeforeEach
+    void setUp() {
+        projection = new FieldProjection(new ObjectMapper());
+        ReflectionTestUtils.setField(projection, "maxFields", 3);
+        ReflectionTestUtils.setField(projection, "maxBytes", 1_000_000L);
+        projection.init();
+    }
+
+    private String project(String json, String... fields) {
+        byte[] projected = projection.project(json.getBytes(StandardCharsets.UTF_8), Set.of(fields));
+        return new String(projected, StandardCharsets.UTF_8);
+    }
+
+    private static ResponseCache.Body body(String json, boolean error) {
+        return new ResponseCache.Body(json.getBytes(StandardCharsets.UTF_8), "\"base\"", error);
+    }
+
+    @Test
+    void keepsListedFieldsAndThePathToThem() {
+        String json = "{\"game\":\"g1\",\"entries\":[{\"team_name\":\"A\",\"total\":10,\"rank\":1},"
+                + "{\"team_name\":\"B\",\"total\":5,\"rank\":2}]}";
+
+        assertThat(project(json, "team_name", "total"))
+                .isEqualTo("{\"entries\":[{\"team_name\":\"A\",\"total\":10},{\"team_name\":\"B\",\"total\":5}]}");
+    }
+
+    @Test
+    void projectsInsideNestedArrays() {
+        String json = "{\"rows\":[[{\"id\":1,\"x\":true}],[{\"id\":2,\"x\":false},{\"y\":3}]],\"other\":[1,2]}";
+
+        assertThat(project(json, "id")).isEqualTo("{\"rows\":[[{\"id\":1}],[{\"id\":2}]]}");
+    }
+
+    @Test
+    void listedFieldIsKeptWhole() {
+        String json = "{\"team\":{\"id\":7,\"services\":[{\"name\":\"web\"}]},\"total\":3}";
+
+        assertThat(project(json, "team")).isEqualTo("{\"team\":{\"id\":7,\"services\":[{\"name\":\"web\"}]}}");
+    }
+
+    @Test
+    void topLevelArrayKeepsMatchingElementsOnly() {
+        String json = "[{\"id\":1,\"name\":\"a\"},{\"name\":\"b\"},{\"id\":3}]";
+
+        assertThat(project(json, "id")).isEqualTo("[{\"id\":1},{\"id\":3}]");
+    }
+
+    @Test
+    void noMatchGivesEmptyContainerOfSameKind() {
+        assertThat(project("{\"a\":1,\"b\":{\"c\":2}}", "zzz")).isEqualTo("{}");
+        assertThat(project("  [{\"a\":1},{\"b\":2}]", "zzz")).isEqualTo("[]");
+    }
+
+    @Test
+    void errorRepliesPassThroughUntouched() {
+        ResponseCache.Body error = body("{\"success\":false,\"status\":404,\"detail\":\"missing\"}", true);
+
+        assertThat(projection.apply(error, "detail")).isSameAs(error);
+    }
+
+    @Test
+    void noFieldsReturnsBodyAsIs() {
+        ResponseCache.Body full = body("{\"a\":1}", false);
+
+        assertThat(projection.apply(full, null)).isSameAs(full);
+    }
+
+    @Test
+    void variantsGetOwnEtagAndAreReused() {
+        ResponseCache.Body full = body("{\"a\":1,\"b\":2}", false);
+
+        ResponseCache.Body first = projection.apply(full, "a");
+        ResponseCache.Body second = projection.apply(full, "a");
+
+        assertThat(new String(first.json(), StandardCharsets.UTF_8)).isEqualTo("{\"a\":1}");
+        assertThat(first.etag()).isNotEqualTo(full.etag()).startsWith("\"").endsWith("\"");
+        assertThat(second).isSameAs(first);
+        assertThat(projection.getStats()).containsEntry("variant_hits", 1L).containsEntry("projected", 1L);
+    }
+
+    @Test
+    void requestedFieldsAreNormalized() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter(FieldProjection.PARAM, " total, team_name,,total ");
+
+        assertThat(projection.requestedFields(request)).isEqualTo("team_name,total");
+    }
+
+    @Test
+    void tooManyFieldsAreRejected() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter(FieldProjection.PARAM, "a,b,c,d");
+
+        assertThatThrownBy(() -> projection.requestedFields(request)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void blankFieldsMeanNoProjection() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter(FieldProjection.PARAM, " , ");
+
+        assertThat(projection.requestedFields(request)).isNull();
+    }
+}
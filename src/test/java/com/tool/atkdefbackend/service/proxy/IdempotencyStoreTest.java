@@ -0,0 +1,188 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tool.atkdefbackend.exception.DeadlineExceededException;
+import com.tool.atkdefbackend.repository.GamePinRepository;
+import com.tool.atkdefbackend.service.PythonProxyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyStoreTest {
+
+    private IdempotencyStore store;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        store = new IdempotencyStore(new ObjectMapper());
+        ReflectionTestUtils.setField(store, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(store, "maxEntries", 100);
+        ReflectionTestUtils.setField(store, "maxKeyLength", 255);
+    }
+
+    private IdempotencyStore.Outcome submit(String scope, String key, Object body, CompletableFuture<?> upstream) {
+        return store.execute(scope, key, "POST", "/submissions", body, () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+    }
+
+    /**
+     * POST /submissions through the real async proxy (and its error mapping) as the idempotent call
+     */
+    private IdempotencyStore.Outcome send(PythonProxyService proxy, String key) {
+        Map<String, Object> body = Map.of("flag", "FLAG{a}");
+        return store.execute("team:1", key, "POST", "/submissions", body, () -> {
+            calls.incrementAndGet();
+            return proxy.proxyPostAsync("/submissions", body, Map.class);
+        });
+    }
+
+    private static PythonProxyService proxyTo(int port) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        GamePinRepository pins = mock(GamePinRepository.class);
+        when(pins.findAll()).thenReturn(List.of());
+        UpstreamRouter router = new UpstreamRouter(pins);
+        ReflectionTestUtils.setField(router, "defaultUpstream", "http://127.0.0.1:" + port);
+        ReflectionTestUtils.setField(router, "shardUrls", List.of());
+        router.init();
+        return new PythonProxyService(new RestTemplate(), objectMapper, new HedgedRequestExecutor(executor), router,
+                new UpstreamDeadlineExecutor(executor), WebClient.create(), new ResponseCache(objectMapper, executor),
+                new FieldProjection(objectMapper));
+    }
+
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    void completedResponseIsReplayedWithoutCallingUpstream() {
+        Map<String, Object> body = Map.of("flag", "FLAG{a}");
+        IdempotencyStore.Outcome first = submit("team:1", "k", body, CompletableFuture.completedFuture("ok"));
+        IdempotencyStore.Outcome second = submit("team:1", "k", body, CompletableFuture.completedFuture("other"));
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(second.replayed()).isTrue();
+        assertThat(second.response().join()).isEqualTo("ok");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void duplicateWhileInFlightJoinsTheSameCall() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        IdempotencyStore.Outcome first = submit("team:1", "k", null, upstream);
+        IdempotencyStore.Outcome joined = submit("team:1", "k", null, new CompletableFuture<>());
+
+        upstream.complete("done");
+        assertThat(first.response().join()).isEqualTo("done");
+        assertThat(joined.response().join()).isEqualTo("done");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void signatureIgnoresMapOrder() {
+        Map<String, Object> ab = new LinkedHashMap<>();
+        ab.put("a", 1);
+        ab.put("b", 2);
+        Map<String, Object> ba = new LinkedHashMap<>();
+        ba.put("b", 2);
+        ba.put("a", 1);
+
+        submit("team:1", "k", ab, CompletableFuture.completedFuture("ok"));
+        assertThat(submit("team:1", "k", ba, CompletableFuture.completedFuture("x")).replayed()).isTrue();
+    }
+
+    @Test
+    void reusingKeyForDifferentBodyIsRejected() {
+        submit("team:1", "k", Map.of("flag", "FLAG{a}"), CompletableFuture.completedFuture("ok"));
+        assertThatThrownBy(() -> submit("team:1", "k", Map.of("flag", "FLAG{b}"), CompletableFuture.completedFuture("ok")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void keysAreScoped() {
+        submit("team:1", "k", null, CompletableFuture.completedFuture("ok"));
+        assertThat(submit("team:2", "k", null, CompletableFuture.completedFuture("ok")).replayed()).isFalse();
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void serverErrorLeavesKeyLockedAsUnknown() {
+        submit("team:1", "k", null, CompletableFuture.completedFuture(Map.of("success", false, "status", 502)));
+        assertThatThrownBy(() -> submit("team:1", "k", null, CompletableFuture.completedFuture("ok")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void connectionRefusedReleasesKey() throws IOException {
+        PythonProxyService proxy = proxyTo(closedPort());
+
+        Object refused = send(proxy, "k").response().join();
+
+        assertThat(refused).isInstanceOf(Map.class);
+        assertThat(((Map<?, ?>) refused).get("status")).isEqualTo(500);
+        assertThat(((Map<?, ?>) refused).get(PythonProxyService.REQUEST_SENT)).isEqualTo(false);
+        assertThat(send(proxy, "k").replayed()).isFalse();
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void deadlineGoneBeforeSendingReleasesKey() throws IOException {
+        PythonProxyService proxy = proxyTo(closedPort());
+        RequestDeadline.set(0);
+        try {
+            assertThatThrownBy(() -> send(proxy, "k").response().join())
+                    .hasCauseInstanceOf(DeadlineExceededException.class);
+            assertThatThrownBy(() -> send(proxy, "k").response().join())
+                    .hasCauseInstanceOf(DeadlineExceededException.class);
+        } finally {
+            RequestDeadline.clear();
+        }
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void timeoutLeavesKeyLockedAsUnknown() throws IOException {
+        try (ServerSocket silent = new ServerSocket(0)) { // accepts (backlog) but never answers
+            PythonProxyService proxy = proxyTo(silent.getLocalPort());
+            RequestDeadline.set(300);
+            try {
+                assertThatThrownBy(() -> send(proxy, "k").response().join())
+                        .hasCauseInstanceOf(DeadlineExceededException.class);
+            } finally {
+                RequestDeadline.clear();
+            }
+
+            assertThatThrownBy(() -> send(proxy, "k")).isInstanceOf(IllegalStateException.class);
+            assertThat(calls).hasValue(1);
+        }
+    }
+
+    @Test
+    void blankKeyIsNotDeduplicated() {
+        submit("team:1", null, null, CompletableFuture.completedFuture("ok"));
+        submit("team:1", " ", null, CompletableFuture.completedFuture("ok"));
+        assertThat(calls).hasValue(2);
+    }
+}
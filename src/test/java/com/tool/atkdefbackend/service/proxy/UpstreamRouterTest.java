@@ -0,0 +1,118 @@
+package com.tool.atkdefbackend.service.proxy;
+
+import com.tool.atkdefbackend.entity.GamePinEntity;
+import com.tool.atkdefbackend.repository.GamePinRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UpstreamRouterTest {
+
+    private static final String DEFAULT = "http://core-default:8000";
+    private static final List<String> THREE = List.of("http://core-a:8000", "http://core-b:8000", "http://core-c:8000");
+
+    private static UpstreamRouter router(List<String> shards, GamePinEntity... pins) {
+        GamePinRepository repository = mock(GamePinRepository.class);
+        when(repository.findAll()).thenReturn(List.of(pins));
+        UpstreamRouter router = new UpstreamRouter(repository);
+        ReflectionTestUtils.setField(router, "defaultUpstream", DEFAULT);
+        ReflectionTestUtils.setField(router, "shardUrls", shards);
+        router.init();
+        return router;
+    }
+
+    private static Map<String, String> owners(UpstreamRouter router, int games) {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < games; i++) {
+            String gameId = "game-" + i;
+            owners.put(gameId, router.baseUrlFor(gameId));
+        }
+        return owners;
+    }
+
+    @Test
+    void withoutShardsEverythingGoesToDefault() {
+        UpstreamRouter router = router(List.of());
+
+        assertThat(router.baseUrlFor("any")).isEqualTo(DEFAULT);
+        assertThat(router.resolve("/games/g1", null)).isEqualTo(DEFAULT);
+    }
+
+    @Test
+    void ownerIsStableAcrossRouters() {
+        assertThat(owners(router(THREE), 500)).isEqualTo(owners(router(THREE), 500));
+    }
+
+    @Test
+    void gamesSpreadOverAllShards() {
+        Map<String, String> owners = owners(router(THREE), 3000);
+
+        for (String shard : THREE) {
+            long owned = owners.values().stream().filter(shard::equals).count();
+            assertThat(owned).as("games on %s", shard).isBetween(600L, 1400L);
+        }
+    }
+
+    @Test
+    void addingShardOnlyMovesGamesToTheNewShard() {
+        List<String> four = List.of(THREE.get(0), THREE.get(1), THREE.get(2), "http://core-d:8000");
+        Map<String, String> before = owners(router(THREE), 3000);
+        Map<String, String> after = owners(router(four), 3000);
+
+        long moved = before.keySet().stream().filter(game -> !before.get(game).equals(after.get(game))).count();
+        assertThat(before.keySet().stream().filter(game -> !before.get(game).equals(after.get(game))))
+                .allMatch(game -> after.get(game).equals("http://core-d:8000"));
+        assertThat(moved).isBetween(450L, 1050L); // about a quarter
+    }
+
+    @Test
+    void extractsGameIdFromPathQueryAndBody() {
+        UpstreamRouter router = router(THREE);
+
+        assertThat(router.extractGameId("/games/g1/teams", null)).isEqualTo("g1");
+        assertThat(router.extractGameId("/scoreboard/g2?limit=5", null)).isEqualTo("g2");
+        assertThat(router.extractGameId("/flags?skip=0&game_id=g3&limit=5", null)).isEqualTo("g3");
+        assertThat(router.extractGameId("/submissions", Map.of("game_id", "g4"))).isEqualTo("g4");
+        assertThat(router.extractGameId("/flags/abc", Map.of("flag", "x"))).isNull();
+        assertThat(router.resolve("/flags/abc", null)).isEqualTo(DEFAULT);
+        assertThat(router.resolve("/games/g1", null)).isEqualTo(router.baseUrlFor("g1"));
+    }
+
+    @Test
+    void pinsOverrideHashingAndUnknownUpstreamsAreIgnored() {
+        UpstreamRouter plain = router(THREE);
+        String hashed = plain.baseUrlFor("pinned-game");
+        String other = THREE.stream().filter(url -> !url.equals(hashed)).findFirst().orElseThrow();
+
+        UpstreamRouter router = router(THREE,
+                GamePinEntity.builder().gameId("pinned-game").upstream(other).build(),
+                GamePinEntity.builder().gameId("lost-game").upstream("http://gone:8000").build());
+
+        assertThat(router.baseUrlFor("pinned-game")).isEqualTo(other);
+        assertThat(router.baseUrlFor("lost-game")).isEqualTo(plain.baseUrlFor("lost-game"));
+    }
+
+    @Test
+    void pinRefusesUnknownUpstreamAndMovingARunningGame() {
+        UpstreamRouter router = router(THREE);
+        String owner = router.baseUrlFor("g1");
+        String other = THREE.stream().filter(url -> !url.equals(owner)).findFirst().orElseThrow();
+
+        assertThatThrownBy(() -> router.pin("g1", "http://gone:8000", false, false))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> router.pin("g1", other, true, false))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(router.baseUrlFor("g1")).isEqualTo(owner);
+
+        assertThat(router.pin("g1", other, true, true)).isEqualTo(owner);
+        assertThat(router.baseUrlFor("g1")).isEqualTo(other);
+    }
+}
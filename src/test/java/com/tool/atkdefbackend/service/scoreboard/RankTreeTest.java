@@ -0,0 +1,98 @@
+package com.tool.atkdefbackend.service.scoreboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankTreeTest {
+
+    private static RankTree.Key key(double total, String teamId) {
+        return new RankTree.Key(total, teamId);
+    }
+
+    @Test
+    void ranksByTotalDescending() {
+        RankTree tree = new RankTree();
+        tree.insert(key(10, "1"));
+        tree.insert(key(30, "2"));
+        tree.insert(key(20, "3"));
+
+        assertThat(tree.rank(key(30, "2"))).isZero();
+        assertThat(tree.rank(key(20, "3"))).isEqualTo(1);
+        assertThat(tree.rank(key(10, "1"))).isEqualTo(2);
+        assertThat(tree.range(0, 3)).containsExactly(key(30, "2"), key(20, "3"), key(10, "1"));
+    }
+
+    @Test
+    void tiesAreOrderedByNumericTeamId() {
+        RankTree tree = new RankTree();
+        tree.insert(key(50, "10"));
+        tree.insert(key(50, "9"));
+        tree.insert(key(50, "100"));
+        tree.insert(key(50, "alpha"));
+
+        assertThat(tree.range(0, 4)).extracting(RankTree.Key::teamId).containsExactly("9", "10", "100", "alpha");
+        assertThat(tree.rank(key(50, "10"))).isEqualTo(1);
+    }
+
+    @Test
+    void compareTeamIdsHandlesLeadingZerosAndLongIds() {
+        assertThat(RankTree.compareTeamIds("007", "8")).isNegative();
+        assertThat(RankTree.compareTeamIds("99999999999999999999", "100000000000000000000")).isNegative();
+        assertThat(RankTree.compareTeamIds("07", "7")).isNotZero();
+        assertThat(RankTree.compareTeamIds("b", "a")).isPositive();
+    }
+
+    @Test
+    void deleteAndReinsertMovesTeam() {
+        RankTree tree = new RankTree();
+        tree.insert(key(10, "1"));
+        tree.insert(key(20, "2"));
+
+        tree.delete(key(10, "1"));
+        tree.insert(key(30, "1"));
+
+        assertThat(tree.size()).isEqualTo(2);
+        assertThat(tree.rank(key(30, "1"))).isZero();
+        assertThat(tree.rank(key(10, "1"))).isEqualTo(-1);
+    }
+
+    @Test
+    void rangeIsClampedToTree() {
+        RankTree tree = new RankTree();
+        tree.insert(key(1, "1"));
+        tree.insert(key(2, "2"));
+
+        assertThat(tree.range(-3, 1)).containsExactly(key(2, "2"));
+        assertThat(tree.range(1, 10)).containsExactly(key(1, "1"));
+        assertThat(tree.range(5, 10)).isEmpty();
+    }
+
+    @Test
+    void matchesSortedListUnderRandomUpdates() {
+        Random random = new Random(42);
+        RankTree tree = new RankTree();
+        List<RankTree.Key> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String team = String.valueOf(random.nextInt(60));
+            expected.stream().filter(k -> k.teamId().equals(team)).findFirst().ifPresent(old -> {
+                tree.delete(old);
+                expected.remove(old);
+            });
+            RankTree.Key fresh = key(random.nextInt(10) * 10, team);
+            tree.insert(fresh);
+            expected.add(fresh);
+        }
+        expected.sort(RankTree.ORDER);
+
+        assertThat(tree.size()).isEqualTo(expected.size());
+        assertThat(tree.range(0, expected.size())).containsExactlyElementsOf(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(tree.rank(expected.get(i))).isEqualTo(i);
+        }
+    }
+}
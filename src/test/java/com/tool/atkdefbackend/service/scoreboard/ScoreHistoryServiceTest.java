@@ -0,0 +1,89 @@
+package com.tool.atkdefbackend.service.scoreboard;
+
+import com.tool.atkdefbackend.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScoreHistoryServiceTest {
+
+    private static final String GAME = "g1";
+
+    private ScoreHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ScoreHistoryService();
+        ReflectionTestUtils.setField(service, "maxTicks", 5);
+    }
+
+    private void tick(int tick, String... teamTotals) {
+        List<ScoreEntry> entries = Arrays.stream(teamTotals).map(pair -> {
+            String[] parts = pair.split("=");
+            double total = Double.parseDouble(parts[1]);
+            return new ScoreEntry(parts[0], null, total, 0, 0, total);
+        }).toList();
+        service.onScoreboardUpdated(new ScoreboardUpdatedEvent(GAME, tick, entries, Instant.now()));
+    }
+
+    @Test
+    void keepsAtMostMaxTicks() {
+        for (int t = 1; t <= 8; t++) {
+            tick(t, "1=" + t * 10);
+        }
+        Map<String, Object> described = service.describe(GAME);
+        assertThat(described.get("first_tick")).isEqualTo(4);
+        assertThat(described.get("last_tick")).isEqualTo(8);
+        assertThat(service.teamSeries(GAME, "1", null, null).get("total_points"))
+                .isEqualTo(List.of(40, 50, 60, 70, 80));
+    }
+
+    @Test
+    void jumpPastKeptWindowResetsColumns() {
+        tick(1, "1=10");
+        tick(2, "1=20");
+        tick(50, "1=500");
+
+        Map<String, Object> described = service.describe(GAME);
+        assertThat(described.get("first_tick")).isEqualTo(46);
+        assertThat(described.get("last_tick")).isEqualTo(50);
+        assertThat(service.teamSeries(GAME, "1", null, null).get("total_points"))
+                .isEqualTo(Arrays.asList(null, null, null, null, 500));
+        assertThatThrownBy(() -> service.atTick(GAME, 2)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void skippedTicksStayMissing() {
+        tick(1, "1=10", "2=5");
+        tick(3, "1=30");
+
+        assertThat(service.teamSeries(GAME, "1", null, null).get("total_points")).isEqualTo(Arrays.asList(10, null, 30));
+        assertThat(service.teamSeries(GAME, "2", null, null).get("total_points")).isEqualTo(Arrays.asList(5, null, null));
+    }
+
+    @Test
+    void reReadOfTickReplacesItsCells() {
+        tick(1, "1=10");
+        tick(1, "1=15");
+
+        assertThat(service.teamSeries(GAME, "1", 1, 1).get("total_points")).isEqualTo(List.of(15));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void atTickRanksByTotalThenNumericTeamId() {
+        tick(1, "10=5", "9=5", "3=7");
+
+        List<Map<String, Object>> entries = (List<Map<String, Object>>) service.atTick(GAME, 1).get("entries");
+        assertThat(entries).extracting(entry -> entry.get("team_id")).containsExactly("3", "9", "10");
+        assertThat(entries).extracting(entry -> entry.get("rank")).containsExactly(1, 2, 3);
+    }
+}
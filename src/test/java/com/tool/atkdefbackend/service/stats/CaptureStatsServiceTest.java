@@ -0,0 +1,78 @@
+package com.tool.atkdefbackend.service.stats;
+
+import com.tool.atkdefbackend.service.PythonProxyService;
+import com.tool.atkdefbackend.service.flag.FlagValueIndex;
+import com.tool.atkdefbackend.service.tick.TickClock;
+import com.tool.atkdefbackend.service.tick.TickSnapshot;
+import com.tool.atkdefbackend.service.tick.TickStartedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CaptureStatsServiceTest {
+
+    private static final String GAME = "g1";
+    private static final String FLAG = "FLAG{abc}";
+
+    private final FlagValueIndex flagValueIndex = mock(FlagValueIndex.class);
+    private CaptureStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CaptureStatsService(mock(PythonProxyService.class), flagValueIndex, mock(TickClock.class),
+                Executors.newVirtualThreadPerTaskExecutor());
+        ReflectionTestUtils.setField(service, "pendingRetryTicks", 2);
+        when(flagValueIndex.find(GAME, FLAG)).thenReturn(Optional.empty());
+    }
+
+    private void acceptedWithoutVictim() {
+        service.recordSubmission("7", Map.of("game_id", GAME, "flag", FLAG), Map.of("status", "ACCEPTED"));
+    }
+
+    private void nextTick(int tickNumber) {
+        TickSnapshot tick = new TickSnapshot(GAME, tickNumber, null, Instant.now(), 60, Instant.now(), Map.of());
+        service.onTickStarted(new TickStartedEvent(tick, tickNumber - 1));
+    }
+
+    @Test
+    void pendingCaptureIsCountedWhenTheIndexLearnsItsVictim() {
+        acceptedWithoutVictim();
+        assertThat(service.getMatrix(GAME)).containsEntry("total_captures", 0L).containsEntry("unresolved_captures", 1);
+
+        when(flagValueIndex.find(GAME, FLAG))
+                .thenReturn(Optional.of(new FlagValueIndex.FlagInfo("f1", GAME, "3", "web", 4)));
+        nextTick(5);
+
+        assertThat(service.getMatrix(GAME))
+                .containsEntry("total_captures", 1L)
+                .containsEntry("unresolved_captures", 0)
+                .containsEntry("resolved_late", 1L)
+                .containsEntry("matrix", Map.of("7", Map.of("3", 1L)));
+        assertThat(service.getTickCells(GAME, 4)).hasSize(1);
+    }
+
+    @Test
+    void pendingCaptureIsGivenUpAfterItsRetries() {
+        acceptedWithoutVictim();
+        nextTick(5);
+        nextTick(6);
+        assertThat(service.getMatrix(GAME)).containsEntry("unresolved_given_up", 1L);
+
+        when(flagValueIndex.find(GAME, FLAG))
+                .thenReturn(Optional.of(new FlagValueIndex.FlagInfo("f1", GAME, "3", "web", 4)));
+        nextTick(7);
+
+        assertThat(service.getMatrix(GAME))
+                .containsEntry("total_captures", 0L)
+                .containsEntry("unresolved_captures", 1);
+    }
+}
@@ -0,0 +1,108 @@
+package com.tool.atkdefbackend.service.submission;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlagExtractionServiceTest {
+
+    private static final Pattern PATTERN = Pattern.compile("FLAG\\{[A-Za-z0-9_\\-+/=]{1,100}\\}");
+    private static final int MAX_FLAG_LENGTH = 128;
+    private static final int CHUNK = 8192;
+
+    private static List<String> scan(Reader reader, long maxChars) throws IOException {
+        List<String> flags = new ArrayList<>();
+        FlagExtractionService.scan(reader, PATTERN, MAX_FLAG_LENGTH, maxChars, flags::add);
+        return flags;
+    }
+
+    private static List<String> scan(String text) throws IOException {
+        return scan(new StringReader(text), Long.MAX_VALUE);
+    }
+
+    /**
+     * Hands out at most {@code step} chars per read, like a slow socket
+     */
+    private static Reader trickle(String text, int step) {
+        return new FilterReader(new StringReader(text)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(step, length));
+            }
+        };
+    }
+
+    @Test
+    void findsFlagsInReadingOrder() throws IOException {
+        assertThat(scan("noise FLAG{a} more FLAG{b}\nFLAG{c}")).containsExactly("FLAG{a}", "FLAG{b}", "FLAG{c}");
+    }
+
+    @Test
+    void flagSplitAcrossChunkBoundaryIsFoundOnce() throws IOException {
+        String flag = "FLAG{" + "x".repeat(40) + "}";
+        for (int offset = CHUNK - flag.length() - 2; offset <= CHUNK + 2; offset++) {
+            String text = ".".repeat(offset) + flag + ".".repeat(100);
+            assertThat(scan(text)).as("flag at offset %d", offset).containsExactly(flag);
+        }
+    }
+
+    @Test
+    void flagEndingExactlyAtEndOfInputIsFound() throws IOException {
+        String flag = "FLAG{end}";
+        assertThat(scan(".".repeat(CHUNK - 3) + flag)).containsExactly(flag);
+    }
+
+    @Test
+    void flagLongerThanCarryIsNotCutShort() throws IOException {
+        String flag = "FLAG{" + "y".repeat(100) + "}";
+        String text = ".".repeat(CHUNK - 50) + flag;
+        assertThat(scan(text)).containsExactly(flag);
+    }
+
+    @Test
+    void tinyReadsGiveSameResultAsOneBigRead() throws IOException {
+        StringBuilder text = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String flag = "FLAG{f" + i + "}";
+            text.append("junk ".repeat(i % 7)).append(flag);
+            expected.add(flag);
+        }
+        assertThat(scan(trickle(text.toString(), 3), Long.MAX_VALUE)).containsExactlyElementsOf(expected);
+        assertThat(scan(text.toString())).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void adjacentFlagsAcrossBoundaryAreNotMerged() throws IOException {
+        String first = "FLAG{one}";
+        String second = "FLAG{two}";
+        String text = ".".repeat(CHUNK - first.length()) + first + second;
+        assertThat(scan(text)).containsExactly(first, second);
+    }
+
+    @Test
+    void stopsAtMaxCharsAndReportsTruncation() throws IOException {
+        String text = "FLAG{kept}" + ".".repeat(100) + "FLAG{dropped}";
+        List<String> flags = new ArrayList<>();
+        FlagExtractionService.ScanResult result = FlagExtractionService.scan(new StringReader(text), PATTERN,
+                MAX_FLAG_LENGTH, 50, flags::add);
+
+        assertThat(flags).containsExactly("FLAG{kept}");
+        assertThat(result.truncated()).isTrue();
+        assertThat(result.chars()).isEqualTo(50);
+    }
+
+    @Test
+    void flagCutByMaxCharsIsNotEmitted() throws IOException {
+        String text = "....FLAG{partial}";
+        assertThat(scan(new StringReader(text), 10)).isEmpty();
+    }
+}